@@ -0,0 +1,27 @@
+package competitive.programming.gametheory;
+
+/**
+ * @author Manwe
+ *
+ * Optional extension of a game state evaluated in an array provided by the search engine instead of a new one.
+ * The engines detect it and call it instead of evaluate, with a buffer they allocate once:
+ * the evaluation of the leaves, the most frequent call of the search, does not allocate anything.
+ *
+ * Hint: evaluate can simply fill a new array with evaluateInto, so that both give the same scores.
+ */
+public interface IBufferedEvaluationGame extends IGame {
+
+    /**
+     * @return the number of players, the length of the arrays given to evaluateInto
+     */
+    int players();
+
+    /**
+     * Evaluate the game for each player, as evaluate does.
+     *
+     * @param scores the array to fill with the evaluation of each player.
+     * Convention: player id represent the index of the player in the evaluated array
+     * @param depth the current depth when exploring the game tree, as for evaluate
+     */
+    void evaluateInto(double[] scores, int depth);
+}
@@ -0,0 +1,46 @@
+package competitive.programming.gametheory;
+
+import java.util.List;
+
+/**
+ * @author Manwe
+ *
+ * Optional extension of a move generator for the games with random events (dice, random spawns, hidden draws...).
+ * A position where the next event is random is a chance node: its outcomes are generated as moves, each with its probability.
+ * Search engines able to handle chance nodes (Expectimax) detect it and compute the expected value of the chance nodes.
+ *
+ * Hint: group the outcomes having the same effect on the game (for instance the sum of two dice) to reduce the branching.
+ *
+ * @param <M>
+ * 		The move class representing the action a player can do, or the outcome of a random event
+ * @param <G>
+ * 		The game class representing the game state
+ */
+public interface IChanceMoveGenerator<M extends IMove<G>, G extends IGame> extends IMoveGenerator<M, G> {
+
+    /**
+     * @param game
+     * 	The game state
+     * @return true if the next event is random instead of being decided by the current player
+     */
+    boolean isChanceNode(G game);
+
+    /**
+     * Generate all the possible outcomes of the random event of a chance node
+     *
+     * @param game
+     * 	The game state of the chance node
+     * @return
+     *  The list of the outcomes, executed and canceled as moves. If no outcomes are generated, we consider the game is ended
+     */
+    List<M> generateOutcomes(G game);
+
+    /**
+     * @param game
+     * 	The game state of the chance node
+     * @param outcome
+     * 	One of the outcomes generated for this game state
+     * @return the probability of the outcome. The probabilities of the outcomes of a chance node sum to 1
+     */
+    double probability(G game, M outcome);
+}
@@ -0,0 +1,20 @@
+package competitive.programming.gametheory;
+
+/**
+ * @author Manwe
+ *
+ * Optional extension of a game state able to copy itself.
+ * Parallel search engines detect it in order to give each thread its own game state to execute and cancel moves on.
+ *
+ * @param <G>
+ * 	The game class representing the game state
+ */
+public interface ICloneableGame<G extends IGame> extends IGame {
+
+    /**
+     * The copy must not share any mutable state with the original game: both will be modified at the same time by different threads.
+     *
+     * @return a deep copy of the game state
+     */
+    G copy();
+}
@@ -0,0 +1,21 @@
+package competitive.programming.gametheory;
+
+/**
+ * @author Manwe
+ *
+ * Optional extension of a game state that is able to give a 64 bits hash of itself.
+ * Search engines detect it and use it to recognise positions they already analysed through another move order.
+ *
+ * Hint: use Zobrist hashing (see ZobristKeys) and update the hash incrementally in your moves execute and cancel methods,
+ * recomputing it from scratch at each node would cost more than what the transposition table saves
+ */
+public interface IHashableGame extends IGame {
+
+    /**
+     * Two game states that are equivalent for the search (same board, same player to play...) must return the same hash.
+     * Two different game states should return different hashes with a very high probability.
+     *
+     * @return the 64 bits hash of the current game state
+     */
+    long hash();
+}
@@ -0,0 +1,27 @@
+package competitive.programming.gametheory;
+
+/**
+ * @author Manwe
+ *
+ * Optional extension of a move able to tell how it changes the evaluation of each player.
+ * When the incremental evaluation is enabled, the engines keep the evaluation of the position reached by the executed moves (IncrementalEvaluation):
+ * the leaves are evaluated in the time of a move instead of the time of a full evaluation.
+ *
+ * Hint: it only works if the evaluation is a sum of terms a move changes locally (material, cells owned, ...).
+ * Enable the check of the incremental evaluation while you write your deltas, it compares them to the full evaluation at each leaf.
+ *
+ * @param <G>
+ * 	The game state the move can impact
+ */
+public interface IIncrementalMove<G extends IGame> extends IMove<G> {
+
+    /**
+     * Add the change of the evaluation of each player made by the move. It is called before the move is executed.
+     *
+     * @param game
+     *            the game state before the move
+     * @param scores
+     *            the evaluation of each player before the move, to which the changes must be added
+     */
+    void addDeltas(G game, double[] scores);
+}
@@ -0,0 +1,24 @@
+package competitive.programming.gametheory;
+
+/**
+ * @author Manwe
+ *
+ * Optional extension of a move that gives a small integer key identifying it independently of the position.
+ * Search engines detect it and use the key to remember which moves were good in other branches of the game tree (killer moves, history heuristic),
+ * in order to explore them first.
+ *
+ * Hint: for a board game, from cell * cells + to cell is usually a good key
+ *
+ * @param <G>
+ * 	The game state the move can impact
+ */
+public interface IOrderableMove<G extends IGame> extends IMove<G> {
+
+    /**
+     * Two moves doing the same action must return the same key, even if they are generated from different positions.
+     * Keys must be positive and lower than the number of keys declared to the search engine.
+     *
+     * @return the key of the move
+     */
+    int key();
+}
@@ -0,0 +1,39 @@
+package competitive.programming.gametheory;
+
+/**
+ * @author Manwe
+ *
+ * Optional extension of a game state allowing the current player to pass its turn.
+ * Search engines detect it in order to use the null move pruning: if a player is still winning after giving the turn to its opponent,
+ * there is no need to search its moves deeply.
+ *
+ * Hint: Like the moves, you can either clone the game state or modify it and revert it when the pass is canceled.
+ * Do not forget to update the hash of the game if it implements IHashableGame.
+ *
+ * @param <G>
+ * 	The game class representing the game state
+ */
+public interface IPassableGame<G extends IGame> extends IGame {
+
+    /**
+     * The null move pruning is wrong in the positions where passing would be better than any move (zugzwang).
+     * It is usually the case in end games, or when the player has very few moves left.
+     *
+     * @return true if the current player is allowed to pass in this position
+     */
+    boolean canPass();
+
+    /**
+     * The current player passes its turn: the next player plays.
+     *
+     * @return the (new or modified) game state where the next player plays
+     */
+    G pass();
+
+    /**
+     * Cancel the pass
+     *
+     * @return the (cached or reverted) game state with the pass canceled
+     */
+    G cancelPass();
+}
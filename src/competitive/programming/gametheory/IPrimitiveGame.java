@@ -0,0 +1,29 @@
+package competitive.programming.gametheory;
+
+/**
+ * @author Manwe
+ *
+ * Game state playing moves encoded as int, the primitive alternative to IMove.
+ * Together with IPrimitiveMoveGenerator, the search engines do not need any move object: the search itself does not allocate anything per node.
+ *
+ * Hint: the move code is yours (an index in a table of moves, packed coordinates...). It must hold everything needed to revert the move,
+ * or the game must keep a stack of what it needs to revert it.
+ */
+public interface IPrimitiveGame extends IGame {
+
+    /**
+     * Execute a move on the game state
+     *
+     * @param move
+     *            the code of the move, as generated by the IPrimitiveMoveGenerator
+     */
+    void execute(int move);
+
+    /**
+     * Cancel a move: the moves are canceled in the reverse order of their execution
+     *
+     * @param move
+     *            the code of the last executed move
+     */
+    void cancel(int move);
+}
@@ -0,0 +1,42 @@
+package competitive.programming.gametheory;
+
+/**
+ * @author Manwe
+ *
+ * Interface producing the possible moves of a IPrimitiveGame, encoded as int, in a buffer provided by the search engine.
+ * The engines keep one buffer per depth, allocated once, so that generating the moves does not allocate anything.
+ *
+ * Only Minimax and MaxNTree accept it: the other engines (Paranoid, BestReplySearch, Expectimax, MtdfSearch, ProofNumberSearch,
+ * the Monte Carlo tree searches, BeamSearch and RollingHorizonEvolution) need an IMoveGenerator.
+ * A game can implement both APIs to be searched by all the engines.
+ *
+ * Hint: like IMoveGenerator, it might be worth generating only the "interesting" moves.
+ *
+ * @param <G>
+ * 		The game class representing the game state
+ */
+public interface IPrimitiveMoveGenerator<G extends IPrimitiveGame> {
+
+    /**
+     * Returned by the engines when there is no move to play. The generated codes must be different
+     */
+    int NO_MOVE = Integer.MIN_VALUE;
+
+    /**
+     * @return the maximum number of moves generated in any game state, the size of the buffers allocated by the engines
+     */
+    int maxMoves();
+
+    /**
+     * Generate all the moves a player can do from a given game state.
+     * If no moves are generated, we consider the game is ended
+     *
+     * @param game
+     * 	The game state from which you must generate the moves
+     * @param moves
+     *  The buffer to fill with the codes of the moves, from index 0. Its length is at least maxMoves()
+     * @return
+     *  The number of moves generated
+     */
+    int generateMoves(G game, int[] moves);
+}
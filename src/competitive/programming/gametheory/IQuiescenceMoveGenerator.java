@@ -0,0 +1,29 @@
+package competitive.programming.gametheory;
+
+import java.util.List;
+
+/**
+ * @author Manwe
+ *
+ * Optional extension of a move generator able to produce only the "noisy" moves of a position:
+ * the moves that change a lot the evaluation (captures, promotions, moves ending a fight...).
+ * Search engines detect it and keep on searching those moves when the fixed depth is reached, so that a position is not evaluated in the middle of an exchange.
+ *
+ * Hint: keep the noisy moves as few as possible. Quiet moves are not searched, the player can always decide to keep the static evaluation instead of a noisy move.
+ *
+ * @param <M>
+ * 		The move class representing the action a player can do
+ * @param <G>
+ * 		The game class representing the game state
+ */
+public interface IQuiescenceMoveGenerator<M extends IMove<G>, G extends IGame> extends IMoveGenerator<M, G> {
+    /**
+     * Generate the noisy moves a player can do from a given game state.
+     *
+     * @param game
+     * 	The game state from which you must generate the moves
+     * @return
+     *  The list of the noisy moves, empty if the position is quiet
+     */
+    List<M> generateNoisyMoves(G game);
+}
@@ -0,0 +1,34 @@
+package competitive.programming.gametheory;
+
+import java.util.List;
+
+/**
+ * @author Manwe
+ *
+ * Game state where all the players play at the same time: the game advances once per joint action, made of one move of each player.
+ * The moves of all the players are chosen from the same game state, so that no player knows the moves of the others.
+ *
+ * Hint: the game can execute each move on its own (IMove.execute) to apply what only depends on its player,
+ * then resolve what depends on the moves of several players (collisions, fights...).
+ *
+ * @param <M>
+ * 	The move class representing the action of one player
+ */
+public interface ISimultaneousGame<M> extends IGame {
+
+    /**
+     * Execute a joint action on the game state
+     *
+     * @param moves
+     *            the move of each player, indexed by player
+     */
+    void execute(List<M> moves);
+
+    /**
+     * Cancel a joint action: the joint actions are canceled in the reverse order of their execution
+     *
+     * @param moves
+     *            the last executed joint action
+     */
+    void cancel(List<M> moves);
+}
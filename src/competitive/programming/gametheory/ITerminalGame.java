@@ -0,0 +1,24 @@
+package competitive.programming.gametheory;
+
+/**
+ * @author Manwe
+ *
+ * Optional extension of a game state able to tell if the game is over, and who won.
+ * Solvers detect it in order to stop at the positions that are decided before the players run out of moves (a line of four, a checkmate...).
+ * Without it, a game is over when no move is generated, and the winner is the player with the best evaluation.
+ */
+public interface ITerminalGame extends IGame {
+    /**
+     * The game goes on
+     */
+    int NOT_OVER = -2;
+    /**
+     * The game is over and nobody won
+     */
+    int DRAW = -1;
+
+    /**
+     * @return NOT_OVER if the game goes on, DRAW if nobody won, otherwise the index of the winner
+     */
+    int winner();
+}
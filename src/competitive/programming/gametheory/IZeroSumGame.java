@@ -0,0 +1,20 @@
+package competitive.programming.gametheory;
+
+/**
+ * @author Manwe
+ *
+ * Optional extension of a two players zero sum game state, evaluated with a single value instead of an array.
+ * Minimax detects it and calls it at the leaves instead of evaluate: the evaluation does not allocate any array.
+ *
+ * @see IBufferedEvaluationGame for the N players games
+ */
+public interface IZeroSumGame extends IGame {
+
+    /**
+     * Evaluate the game from the point of view of player 0.
+     *
+     * @param depth the current depth when exploring the game tree, as for evaluate
+     * @return the same value as evaluate(depth)[0] - evaluate(depth)[1]
+     */
+    double evaluateScore(int depth);
+}
@@ -0,0 +1,132 @@
+package competitive.programming.gametheory;
+
+import java.util.Arrays;
+
+/**
+ * @author Manwe
+ *
+ *         Evaluation of the game states kept up to date by the moves (IIncrementalMove) instead of being computed at each leaf.
+ *         The evaluation of each position from the root to the current one is kept on a stack: executing a move pushes the evaluation
+ *         of the position it reaches, canceling it pops it. The stack is allocated once, for the deepest position reached.
+ *         The game is only fully evaluated at the root, or after a move that is not an IIncrementalMove.
+ *
+ *         Hint: the incremental evaluation does not depend on the depth. The engines still use the full evaluation at the end of the game,
+ *         so that a win or a loss can be scored in function of the depth.
+ *
+ * @param <G>
+ *            The class that model the Game state
+ */
+public class IncrementalEvaluation<G extends IGame> {
+
+    private static final double CHECK_TOLERANCE = 1e-9;
+
+    private final boolean check;
+    private double[][] scores = new double[0][];
+    // false if a move between the root and the position is not incremental
+    private boolean[] incremental = new boolean[0];
+    private int ply;
+
+    /**
+     * @param check
+     *            true to compare the incremental evaluation with the full one each time it is used,
+     *            and throw an IllegalStateException if they are different. It is a debug option: as slow as the full evaluation
+     */
+    public IncrementalEvaluation(boolean check) {
+        this.check = check;
+    }
+
+    /**
+     * Start from a new root: its evaluation is the full one
+     *
+     * @param game
+     *            the game state at the root of the search
+     */
+    public void start(G game) {
+        ply = 0;
+        final double[] evaluation = game.evaluate(0);
+        ensureCapacity(0, evaluation.length);
+        System.arraycopy(evaluation, 0, scores[0], 0, evaluation.length);
+        incremental[0] = true;
+    }
+
+    /**
+     * Push the evaluation of the position reached by a move. Call it before executing the move.
+     *
+     * @param move
+     *            the move about to be executed
+     * @param game
+     *            the game state before the move
+     */
+    @SuppressWarnings("unchecked")
+    public void execute(IMove<G> move, G game) {
+        push();
+        if (move instanceof IIncrementalMove) {
+            ((IIncrementalMove<G>) move).addDeltas(game, scores[ply]);
+        } else {
+            incremental[ply] = false;
+        }
+    }
+
+    /**
+     * Push the evaluation of the position reached when the current player passes: it does not change
+     */
+    public void pass() {
+        push();
+    }
+
+    /**
+     * Pop the evaluation of the position reached by the last move or pass, when it is canceled
+     */
+    public void cancel() {
+        ply--;
+    }
+
+    /**
+     * @return true if the evaluation of the current game state is known incrementally, false if it needs the full evaluation
+     */
+    public boolean isIncremental() {
+        return incremental[ply];
+    }
+
+    /**
+     * @param game
+     *            the current game state
+     * @param depth
+     *            the depth given to the full evaluation, if it is needed
+     * @return the evaluation of each player in the current game state, the incremental one if possible.
+     *         The array is reused: copy it if you need to keep it
+     */
+    public double[] evaluate(G game, int depth) {
+        if (!incremental[ply]) {
+            return game.evaluate(depth);
+        }
+        if (check) {
+            final double[] expected = game.evaluate(depth);
+            for (int i = 0; i < expected.length; i++) {
+                if (Math.abs(expected[i] - scores[ply][i]) > CHECK_TOLERANCE * Math.max(1, Math.abs(expected[i]))) {
+                    throw new IllegalStateException("Incremental evaluation " + Arrays.toString(scores[ply]) + " instead of " + Arrays.toString(expected)
+                            + " at ply " + ply);
+                }
+            }
+        }
+        return scores[ply];
+    }
+
+    private void push() {
+        final int players = scores[ply].length;
+        ensureCapacity(ply + 1, players);
+        System.arraycopy(scores[ply], 0, scores[ply + 1], 0, players);
+        incremental[ply + 1] = incremental[ply];
+        ply++;
+    }
+
+    private void ensureCapacity(int ply, int players) {
+        if (ply >= scores.length) {
+            scores = Arrays.copyOf(scores, ply * 2 + 1);
+            incremental = Arrays.copyOf(incremental, ply * 2 + 1);
+        }
+        if (scores[ply] == null || scores[ply].length != players) {
+            scores[ply] = new double[players];
+        }
+    }
+}
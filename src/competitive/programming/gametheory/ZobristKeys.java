@@ -0,0 +1,41 @@
+package competitive.programming.gametheory;
+
+import java.util.Random;
+
+/**
+ * @author Manwe
+ *
+ *         Set of random 64 bits keys used to compute a Zobrist hash of a game state.
+ *         Each feature of your game (a piece type on a cell, the player to play, a remaining bonus...) is given an index,
+ *         and the hash of the game is the xor of the keys of all the features present in the game.
+ *         Since xor is its own inverse, executing or canceling a move only needs to xor the keys of the features it changes.
+ * @see <a href="https://en.wikipedia.org/wiki/Zobrist_hashing">Zobrist hashing</a>
+ */
+public class ZobristKeys {
+    private final long[] keys;
+
+    /**
+     * Generates the keys
+     *
+     * @param features
+     *            the number of features your game state can be made of
+     * @param seed
+     *            seed of the random generator. Using a fixed seed gives the same hashes from a run to another
+     */
+    public ZobristKeys(int features, long seed) {
+        final Random random = new Random(seed);
+        keys = new long[features];
+        for (int i = 0; i < features; i++) {
+            keys[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * @param feature
+     *            the index of the feature
+     * @return the key to xor into the hash when the feature appears or disappears
+     */
+    public long key(int feature) {
+        return keys[feature];
+    }
+}
@@ -0,0 +1,414 @@
+package competitive.programming.gametheory.beamsearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import competitive.programming.gametheory.IBufferedEvaluationGame;
+import competitive.programming.gametheory.ICloneableGame;
+import competitive.programming.gametheory.IHashableGame;
+import competitive.programming.gametheory.IMove;
+import competitive.programming.gametheory.IMoveGenerator;
+import competitive.programming.timemanagement.TimeoutException;
+import competitive.programming.timemanagement.Timer;
+
+/**
+ * @author Manwe
+ *
+ *         BeamSearch class allows to find a good sequence of moves in a single player game (puzzles, optimisation contests),
+ *         where there is no opponent to search against.
+ *         The game tree is expanded one depth at a time, keeping only the best game states of each depth (the beam):
+ *         all the moves of the kept states are evaluated, and the best resulting states are kept for the next depth.
+ *         The heuristic of a state is the evaluation of the player playing at the root.
+ *
+ *         The moves are evaluated by executing and cancelling them on their parent state: only the kept states are copied.
+ *         If the game implements IHashableGame, the states reached by several sequences of moves at the same depth are kept once.
+ *         The best states are selected without sorting the whole depth.
+ *         The search is anytime: when the timer times out, the best sequence found so far is returned.
+ *         The states of a depth can be expanded by the threads of a ForkJoinPool.
+ *
+ *         Hint: the wider the beam, the better the sequence, but the shallower the search in the same time.
+ * @see <a href="https://en.wikipedia.org/wiki/Beam_search">Beam search</a>
+ *
+ * @param <M>
+ *            The class that model a move in the game tree
+ * @param <G>
+ *            The class that model the Game state
+ */
+public class BeamSearch<M extends IMove<G>, G extends ICloneableGame<G>> {
+
+    /*
+     * The moves of one state of the beam, with the heuristic and the hash of the states they lead to
+     */
+    private class Expansion {
+        private final List<M> moves;
+        private final double[] scores;
+        private final long[] hashes;
+
+        Expansion(List<M> moves) {
+            this.moves = moves;
+            this.scores = new double[moves.size()];
+            this.hashes = new long[moves.size()];
+        }
+    }
+
+    private final Timer timer;
+    private final int width;
+
+    private ForkJoinPool pool;
+    private int player;
+    private boolean hashable;
+
+    // candidates of the depth being expanded
+    private int candidates;
+    private int[] candidateParents = new int[0];
+    private Object[] candidateMoves = new Object[0];
+    private double[] candidateScores = new double[0];
+    private long[] candidateHashes = new long[0];
+    private int[] selection = new int[0];
+    private int[] hashTable = new int[0];
+
+    // kept states of each depth, to rebuild the best sequence
+    private final List<int[]> parents = new ArrayList<>();
+    private final List<Object[]> moves = new ArrayList<>();
+
+    private double bestScore;
+    private int bestDepth;
+    private int bestIndex;
+    private int reachedDepth;
+    private long evaluatedStates;
+    private long duplicates;
+
+    /**
+     * BeamSearch constructor
+     *
+     * @param timer
+     *            timer instance in order to stop the search when we are running out of time
+     * @param width
+     *            the number of game states kept at each depth
+     * @throws IllegalStateException
+     *             if the width is not strictly positive
+     */
+    public BeamSearch(Timer timer, int width) {
+        if (width <= 0) {
+            throw new IllegalStateException("The beam must keep at least one game state");
+        }
+        this.timer = timer;
+        this.width = width;
+    }
+
+    /**
+     * @param pool
+     *            the pool expanding the states of each depth in parallel, or null to expand them in the calling thread (default).
+     *            The move generator must then be thread safe.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Search the best sequence of moves until the timer times out or the maximum depth is reached
+     *
+     * @param game
+     *            The current state of the game. It is never modified
+     * @param generator
+     *            The move generator that will generate all the possible move at each turn
+     * @param maxDepth
+     *            the number of moves of the longest sequence searched
+     * @return the best sequence of moves found, empty if there is no move
+     */
+    public List<M> bestSequence(G game, IMoveGenerator<M, G> generator, int maxDepth) {
+        player = game.currentPlayer();
+        hashable = game instanceof IHashableGame;
+        parents.clear();
+        moves.clear();
+        reachedDepth = 0;
+        evaluatedStates = 0;
+        duplicates = 0;
+        bestScore = Double.NEGATIVE_INFINITY;
+        bestDepth = 0;
+        bestIndex = 0;
+        List<G> beam = new ArrayList<>();
+        beam.add(game.copy());
+        while (reachedDepth < maxDepth && !beam.isEmpty()) {
+            final List<Expansion> expansions = expand(beam, generator);
+            if (expansions == null) {
+                break;// timeout: the depth is not complete
+            }
+            collectCandidates(expansions);
+            final int selected = select(removeDuplicates());
+            beam = keep(beam, selected);
+            reachedDepth++;
+            if (beam == null) {
+                break;// timeout
+            }
+        }
+        return sequence();
+    }
+
+    /**
+     * @param game
+     *            The current state of the game. It is never modified
+     * @param generator
+     *            The move generator that will generate all the possible move at each turn
+     * @param maxDepth
+     *            the number of moves of the longest sequence searched
+     * @return the first move of the best sequence found, or null if there is no move
+     */
+    public M best(G game, IMoveGenerator<M, G> generator, int maxDepth) {
+        final List<M> sequence = bestSequence(game, generator, maxDepth);
+        return sequence.isEmpty() ? null : sequence.get(0);
+    }
+
+    /**
+     * @return the heuristic of the state reached by the best sequence found during the last search
+     */
+    public double getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * @return the number of depths completely expanded during the last search
+     */
+    public int getReachedDepth() {
+        return reachedDepth;
+    }
+
+    /**
+     * @return the number of game states evaluated during the last search
+     */
+    public long getEvaluatedStates() {
+        return evaluatedStates;
+    }
+
+    /**
+     * @return the number of game states discarded during the last search because they had already been reached at the same depth
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /*
+     * The moves of every state of the beam, or null if the timer timed out
+     */
+    private List<Expansion> expand(List<G> beam, IMoveGenerator<M, G> generator) {
+        final int depth = reachedDepth + 1;
+        final List<Expansion> expansions = new ArrayList<>(beam.size());
+        if (pool == null) {
+            try {
+                for (final G state : beam) {
+                    timer.timeCheck();
+                    expansions.add(expand(state, generator, depth));
+                }
+            } catch (final TimeoutException e) {
+                return null;
+            }
+            return expansions;
+        }
+        final List<Callable<Expansion>> tasks = new ArrayList<>(beam.size());
+        for (final G state : beam) {
+            tasks.add(() -> timer.isTimedOut() ? null : expand(state, generator, depth));
+        }
+        for (final Future<Expansion> future : pool.invokeAll(tasks)) {
+            final Expansion expansion = join(future);
+            if (expansion == null) {
+                return null;
+            }
+            expansions.add(expansion);
+        }
+        return expansions;
+    }
+
+    private Expansion expand(G state, IMoveGenerator<M, G> generator, int depth) {
+        final Expansion expansion = new Expansion(generator.generateMoves(state));
+        // one buffer per expansion: the expansions may run in parallel
+        final double[] evaluation = state instanceof IBufferedEvaluationGame ? new double[((IBufferedEvaluationGame) state).players()] : null;
+        for (int i = 0; i < expansion.moves.size(); i++) {
+            final M move = expansion.moves.get(i);
+            final G movedState = move.execute(state);
+            expansion.scores[i] = evaluate(movedState, depth, evaluation);
+            expansion.hashes[i] = movedState instanceof IHashableGame ? ((IHashableGame) movedState).hash() : 0;
+            move.cancel(movedState);
+        }
+        return expansion;
+    }
+
+    private Expansion join(Future<Expansion> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (final ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void collectCandidates(List<Expansion> expansions) {
+        candidates = 0;
+        for (final Expansion expansion : expansions) {
+            candidates += expansion.moves.size();
+        }
+        if (candidateParents.length < candidates) {
+            final int capacity = candidates * 2;
+            candidateParents = new int[capacity];
+            candidateMoves = new Object[capacity];
+            candidateScores = new double[capacity];
+            candidateHashes = new long[capacity];
+            selection = new int[capacity];
+        }
+        int candidate = 0;
+        for (int parent = 0; parent < expansions.size(); parent++) {
+            final Expansion expansion = expansions.get(parent);
+            for (int i = 0; i < expansion.moves.size(); i++) {
+                candidateParents[candidate] = parent;
+                candidateMoves[candidate] = expansion.moves.get(i);
+                candidateScores[candidate] = expansion.scores[i];
+                candidateHashes[candidate] = expansion.hashes[i];
+                candidate++;
+            }
+        }
+        evaluatedStates += candidates;
+    }
+
+    /*
+     * Fill the selection with the candidates, keeping only the best one of those having the same hash. Returns the number of selected candidates
+     */
+    private int removeDuplicates() {
+        if (!hashable || candidates == 0) {
+            for (int i = 0; i < candidates; i++) {
+                selection[i] = i;
+            }
+            return candidates;
+        }
+        int size = Integer.highestOneBit(candidates * 2 - 1) << 1;
+        if (hashTable.length < size) {
+            hashTable = new int[size];
+        } else {
+            size = hashTable.length;
+            Arrays.fill(hashTable, 0);
+        }
+        final int mask = size - 1;
+        int selected = 0;
+        for (int candidate = 0; candidate < candidates; candidate++) {
+            final long hash = candidateHashes[candidate];
+            int slot = (int) (hash ^ (hash >>> 32)) & mask;
+            while (true) {
+                final int entry = hashTable[slot];
+                if (entry == 0) {
+                    hashTable[slot] = selected + 1;
+                    selection[selected++] = candidate;
+                    break;
+                }
+                final int kept = selection[entry - 1];
+                if (candidateHashes[kept] == hash) {
+                    duplicates++;
+                    if (candidateScores[candidate] > candidateScores[kept]) {
+                        selection[entry - 1] = candidate;
+                    }
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+        return selected;
+    }
+
+    /*
+     * Move the best candidates at the beginning of the selection, without sorting them. Returns the number of kept candidates
+     */
+    private int select(int selected) {
+        if (selected <= width) {
+            return selected;
+        }
+        int left = 0;
+        int right = selected - 1;
+        while (left < right) {
+            final double pivot = candidateScores[selection[(left + right) >>> 1]];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (candidateScores[selection[i]] > pivot) {
+                    i++;
+                }
+                while (candidateScores[selection[j]] < pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    final int swap = selection[i];
+                    selection[i] = selection[j];
+                    selection[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (width - 1 <= j) {
+                right = j;
+            } else if (width - 1 >= i) {
+                left = i;
+            } else {
+                break;
+            }
+        }
+        return width;
+    }
+
+    /*
+     * Remember how the kept states have been reached, then copy them. Returns null if the timer timed out before all of them are copied:
+     * the best sequence can still end with one of them, but they can not be expanded.
+     */
+    private List<G> keep(List<G> beam, int selected) {
+        final int[] keptParents = new int[selected];
+        final Object[] keptMoves = new Object[selected];
+        for (int i = 0; i < selected; i++) {
+            final int candidate = selection[i];
+            keptParents[i] = candidateParents[candidate];
+            keptMoves[i] = candidateMoves[candidate];
+            if (candidateScores[candidate] > bestScore) {
+                bestScore = candidateScores[candidate];
+                bestDepth = parents.size() + 1;
+                bestIndex = i;
+            }
+        }
+        parents.add(keptParents);
+        moves.add(keptMoves);
+        final List<G> kept = new ArrayList<>(selected);
+        for (int i = 0; i < selected; i++) {
+            if (timer.isTimedOut()) {
+                return null;
+            }
+            @SuppressWarnings("unchecked")
+            final M move = (M) keptMoves[i];
+            kept.add(move.execute(beam.get(keptParents[i]).copy()));
+        }
+        return kept;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<M> sequence() {
+        final List<M> sequence = new ArrayList<>(bestDepth);
+        int index = bestIndex;
+        for (int depth = bestDepth; depth > 0; depth--) {
+            sequence.add((M) moves.get(depth - 1)[index]);
+            index = parents.get(depth - 1)[index];
+        }
+        Collections.reverse(sequence);
+        return sequence;
+    }
+
+    /*
+     * Heuristic of the root player, evaluated without allocating an array if the game implements IBufferedEvaluationGame
+     */
+    private double evaluate(G game, int depth, double[] evaluation) {
+        if (evaluation != null) {
+            ((IBufferedEvaluationGame) game).evaluateInto(evaluation, depth);
+            return evaluation[player];
+        }
+        return game.evaluate(depth)[player];
+    }
+}
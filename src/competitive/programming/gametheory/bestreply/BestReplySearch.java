@@ -0,0 +1,276 @@
+package competitive.programming.gametheory.bestreply;
+
+import java.util.List;
+
+import competitive.programming.gametheory.IBufferedEvaluationGame;
+import competitive.programming.gametheory.IMove;
+import competitive.programming.gametheory.IMoveGenerator;
+import competitive.programming.gametheory.IPassableGame;
+import competitive.programming.gametheory.maxntree.IScoreConverter;
+import competitive.programming.timemanagement.TimeoutException;
+import competitive.programming.timemanagement.Timer;
+
+/**
+ * @author Manwe
+ *
+ *         BestReplySearch class allows to find the best move a player can do in a N players game.
+ *         After each move of the player at the root, only one of his opponents replies: the one having the reply minimizing his score,
+ *         the other opponents pass. The root player moves every other level, so that the search is as deep as in a two players game,
+ *         and alpha beta pruning can be used since all the opponents minimize the score of the root player.
+ *         It is less pessimistic than the Paranoid search, and usually plays better in games where the players interact a lot.
+ *         The search can be bounded by a fixed depth, or by the timer using iterative deepening.
+ *
+ *         Convention: a level is either a move of the root player, or the best reply of one opponent.
+ *         When the root player plays twice in a row, the level of the replies between its two moves is empty.
+ *
+ * Hint: the game must let any opponent pass (IPassableGame), even when passing is not a legal move of the real game:
+ *         a reply that needs an opponent unable to pass is not searched.
+ *
+ * @param <M>
+ *            The class that model a move in the game tree
+ * @param <G>
+ *            The class that model the Game state
+ */
+public class BestReplySearch<M extends IMove<G>, G extends IPassableGame<G>> {
+
+    private final Timer timer;
+    private final IScoreConverter converter;
+
+    private int rootPlayer;
+    private double[] evaluation = new double[0];
+    private int players;
+    private M previousBest;
+    private int reachedDepth;
+    private long visitedNodes;
+
+    /**
+     * BestReplySearch constructor
+     *
+     * @param timer
+     *            timer instance in order to cancel the search of the best move
+     *            if we are running out of time
+     * @param converter
+     *            converts the scores of the players into the score of the player at the root,
+     *            which he maximizes and all the others minimize
+     */
+    public BestReplySearch(Timer timer, IScoreConverter converter) {
+        this.timer = timer;
+        this.converter = converter;
+    }
+
+    /**
+     * @param game
+     *            The current state of the game
+     * @param generator
+     *            The move generator that will generate all the possible move of
+     *            the playing player at each turn
+     * @param depth
+     *            the fixed number of levels up to which the game tree will be expanded
+     * @return the best move you can play considering the strongest opponent reply to each of your moves, or null if there is no move
+     * @throws TimeoutException
+     */
+    public M best(G game, IMoveGenerator<M, G> generator, int depth) throws TimeoutException {
+        visitedNodes = 0;
+        previousBest = null;
+        return search(game, generator, depth);
+    }
+
+    /**
+     * Search the best move increasing the depth one by one until the timer times out.
+     * Each iteration explores first the best move found by the previous one.
+     * The game state is restored when the timeout is reached.
+     *
+     * @param game
+     *            The current state of the game
+     * @param generator
+     *            The move generator that will generate all the possible move of
+     *            the playing player at each turn
+     * @param depthmax
+     *            the number of levels at which the search stops even if there is some time left
+     * @return the best move found by the deepest iteration that has been completed before the timeout
+     * @throws TimeoutException
+     *             if the timeout is reached before the end of the first iteration
+     */
+    public M bestIterativeDeepening(G game, IMoveGenerator<M, G> generator, int depthmax) throws TimeoutException {
+        visitedNodes = 0;
+        previousBest = null;
+        reachedDepth = 0;
+        M best = null;
+        for (int depth = 1; depth <= depthmax; depth++) {
+            try {
+                best = search(game, generator, depth);
+                reachedDepth = depth;
+            } catch (final TimeoutException e) {
+                if (reachedDepth == 0) {
+                    throw e;
+                }
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the depth of the deepest iteration completed during the last call to bestIterativeDeepening
+     */
+    public int getReachedDepth() {
+        return reachedDepth;
+    }
+
+    /**
+     * @return the number of game tree nodes visited during the last search
+     */
+    public long getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    private M search(G game, IMoveGenerator<M, G> generator, int depth) throws TimeoutException {
+        rootPlayer = game.currentPlayer();
+        players = game instanceof IBufferedEvaluationGame ? ((IBufferedEvaluationGame) game).players() : game.evaluate(0).length;
+        visitedNodes++;
+        final List<M> moves = generator.generateMoves(game);
+        M best = null;
+        double alpha = Double.NEGATIVE_INFINITY;
+        final int first = previousBest == null ? -1 : moves.indexOf(previousBest);
+        for (int i = -1; i < moves.size(); i++) {
+            // the best move of the previous iteration first
+            if (i == first) {
+                continue;
+            }
+            final M move = moves.get(i < 0 ? first : i);
+            timer.timeCheck();
+            final double value;
+            final G movedGame = move.execute(game);
+            try {
+                value = bestReply(movedGame, generator, depth - 1, 1, alpha, Double.POSITIVE_INFINITY, 1);
+            } finally {
+                move.cancel(game);
+            }
+            if (best == null || value > alpha) {
+                best = move;
+                alpha = value;
+            }
+        }
+        previousBest = best;
+        return best;
+    }
+
+    /*
+     * Level where the root player moves
+     */
+    private double rootPlayerMove(G game, IMoveGenerator<M, G> generator, int depth, int ply, double alpha, double beta) throws TimeoutException {
+        visitedNodes++;
+        if (depth == 0) {
+            return evaluate(game, ply);
+        }
+        final List<M> moves = generator.generateMoves(game);
+        if (moves.isEmpty()) {
+            return evaluate(game, ply);// Real end game status
+        }
+        double best = Double.NEGATIVE_INFINITY;
+        for (final M move : moves) {
+            timer.timeCheck();
+            final double value;
+            final G movedGame = move.execute(game);
+            try {
+                value = bestReply(movedGame, generator, depth - 1, ply + 1, alpha, beta, 1);
+            } finally {
+                move.cancel(game);
+            }
+            best = Math.max(best, value);
+            alpha = Math.max(alpha, value);
+            if (beta <= alpha) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /*
+     * Level where one of the opponents replies: the replies of the current player are searched,
+     * then it passes so that the replies of the next opponent are searched too, until the root player's turn.
+     */
+    private double bestReply(G game, IMoveGenerator<M, G> generator, int depth, int ply, double alpha, double beta, int opponent)
+            throws TimeoutException {
+        if (opponent == 1) {
+            visitedNodes++;
+            if (depth == 0) {
+                return evaluate(game, ply);
+            }
+            if (game.currentPlayer() == rootPlayer) {
+                // the root player plays again: no opponent replies at this level
+                return rootPlayerMove(game, generator, depth - 1, ply + 1, alpha, beta);
+            }
+        }
+        if (game.currentPlayer() == rootPlayer || opponent >= players) {
+            return Double.POSITIVE_INFINITY;// no more opponent
+        }
+        final List<M> moves = generator.generateMoves(game);
+        if (opponent == 1 && moves.isEmpty()) {
+            return evaluate(game, ply);// Real end game status
+        }
+        double best = Double.POSITIVE_INFINITY;
+        for (final M move : moves) {
+            timer.timeCheck();
+            final double value;
+            final G movedGame = move.execute(game);
+            try {
+                value = untilRootPlayerTurn(movedGame, generator, depth, ply, alpha, beta, opponent + 1);
+            } finally {
+                move.cancel(game);
+            }
+            best = Math.min(best, value);
+            beta = Math.min(beta, value);
+            if (beta <= alpha) {
+                return best;
+            }
+        }
+        if (game.canPass()) {
+            final G passedGame = game.pass();
+            try {
+                best = Math.min(best, bestReply(passedGame, generator, depth, ply, alpha, beta, opponent + 1));
+            } finally {
+                game.cancelPass();
+            }
+        }
+        if (opponent == 1 && best == Double.POSITIVE_INFINITY) {
+            // no opponent could reply
+            return evaluate(game, ply);
+        }
+        return best;
+    }
+
+    /*
+     * The opponents after the one that replied pass
+     */
+    private double untilRootPlayerTurn(G game, IMoveGenerator<M, G> generator, int depth, int ply, double alpha, double beta, int opponent)
+            throws TimeoutException {
+        if (game.currentPlayer() == rootPlayer) {
+            return rootPlayerMove(game, generator, depth - 1, ply + 1, alpha, beta);
+        }
+        if (opponent >= players || !game.canPass()) {
+            return Double.POSITIVE_INFINITY;// this reply can not be searched
+        }
+        final G passedGame = game.pass();
+        try {
+            return untilRootPlayerTurn(passedGame, generator, depth, ply, alpha, beta, opponent + 1);
+        } finally {
+            game.cancelPass();
+        }
+    }
+
+    /*
+     * Score of the root player, evaluated without allocating an array if the game implements IBufferedEvaluationGame
+     */
+    private double evaluate(G game, int ply) {
+        if (game instanceof IBufferedEvaluationGame) {
+            final IBufferedEvaluationGame bufferedGame = (IBufferedEvaluationGame) game;
+            if (evaluation.length != bufferedGame.players()) {
+                evaluation = new double[bufferedGame.players()];
+            }
+            bufferedGame.evaluateInto(evaluation, ply);
+            return converter.convert(evaluation, rootPlayer);
+        }
+        return converter.convert(game.evaluate(ply), rootPlayer);
+    }
+}
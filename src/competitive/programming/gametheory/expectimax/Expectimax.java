@@ -0,0 +1,429 @@
+package competitive.programming.gametheory.expectimax;
+
+import java.util.Arrays;
+import java.util.List;
+
+import competitive.programming.gametheory.IBufferedEvaluationGame;
+import competitive.programming.gametheory.IChanceMoveGenerator;
+import competitive.programming.gametheory.IGame;
+import competitive.programming.gametheory.IMove;
+import competitive.programming.gametheory.IMoveGenerator;
+import competitive.programming.gametheory.IZeroSumGame;
+import competitive.programming.timemanagement.TimeoutException;
+import competitive.programming.timemanagement.Timer;
+
+/**
+ * @author Manwe
+ *
+ *         Expectimax class allows to find the best move a player can do in a two players zero sum game with random events (dice, draws...).
+ *         The players nodes are searched as in the Minimax, with alpha beta pruning. The value of a chance node is the expected value of its outcomes,
+ *         if the move generator implements IChanceMoveGenerator.
+ *         If the scores are bounded, the chance nodes can be pruned too (Star1): once the outcomes searched so far prove the expected value
+ *         is out of the alpha beta window whatever the value of the others, the other outcomes are not searched.
+ *         The probing (Star2) first searches only one move after each outcome, to get cheaply a bound of each outcome before searching them fully:
+ *         the move that was the best at the same ply the last time, so that the bound is tight. It pays off only if that move is often a good one.
+ *         The search can be bounded by a fixed depth, or by the timer using iterative deepening.
+ *
+ *         Convention: as in the Minimax, the value of a game state is the evaluation of player 0 minus the evaluation of player 1.
+ *         The depth counts the moves of the players, the random events are always resolved.
+ * @see <a href="https://en.wikipedia.org/wiki/Expectiminimax">Expectiminimax</a>
+ *
+ * Hint: the tighter the bounds, the more the chance nodes are pruned. But a value out of the bounds gives a wrong result.
+ *
+ * @param <M>
+ *            The class that model a move in the game tree
+ * @param <G>
+ *            The class that model the Game state
+ */
+public class Expectimax<M extends IMove<G>, G extends IGame> {
+
+    private final Timer timer;
+
+    private boolean bounded;
+    private double minScore = Double.NEGATIVE_INFINITY;
+    private double maxScore = Double.POSITIVE_INFINITY;
+    private boolean probing;
+
+    private IChanceMoveGenerator<M, G> chanceGenerator;
+    private M previousBest;
+    private int reachedDepth;
+    private long visitedNodes;
+    private long chanceCutoffs;
+    private double[] evaluation = new double[2];
+    // probability, lower bound and upper bound of each outcome of the chance node at each ply
+    private double[][] probabilities = new double[0][];
+    private double[][] lowerBounds = new double[0][];
+    private double[][] upperBounds = new double[0][];
+    // index of the best move found by the last search of a player node at each ply, probed first by Star2
+    private int[] bestMoves = new int[0];
+
+    /**
+     * Expectimax constructor
+     *
+     * @param timer
+     *            timer instance in order to cancel the search of the best move
+     *            if we are running out of time
+     */
+    public Expectimax(Timer timer) {
+        this.timer = timer;
+    }
+
+    /**
+     * Enable the pruning of the chance nodes (Star1), and optionally the probing (Star2).
+     *
+     * @param minScore
+     *            the minimum value a game state can have
+     * @param maxScore
+     *            the maximum value a game state can have
+     * @param probing
+     *            true to search first one move after each outcome of a chance node, the last best move at the same ply
+     */
+    public void setBounds(double minScore, double maxScore, boolean probing) {
+        if (minScore >= maxScore) {
+            throw new IllegalStateException("The minimum score must be lower than the maximum score");
+        }
+        this.bounded = true;
+        this.minScore = minScore;
+        this.maxScore = maxScore;
+        this.probing = probing;
+    }
+
+    /**
+     * @param game
+     *            The current state of the game, where a player must play
+     * @param generator
+     *            The move generator that will generate all the possible move of
+     *            the playing player at each turn, and the outcomes of the random events if it implements IChanceMoveGenerator
+     * @param depth
+     *            the fixed number of moves of the players up to which the game tree will be expanded
+     * @return the best move you can play considering the other player is selecting
+     *         the best move for him at each turn, and the expected value of the random events, or null if there is no move
+     * @throws TimeoutException
+     */
+    public M best(G game, IMoveGenerator<M, G> generator, int depth) throws TimeoutException {
+        visitedNodes = 0;
+        chanceCutoffs = 0;
+        previousBest = null;
+        return search(game, generator, depth);
+    }
+
+    /**
+     * Search the best move increasing the depth one by one until the timer times out.
+     * Each iteration explores first the best move found by the previous one.
+     * The game state is restored when the timeout is reached.
+     *
+     * @param game
+     *            The current state of the game, where a player must play
+     * @param generator
+     *            The move generator that will generate all the possible move of
+     *            the playing player at each turn, and the outcomes of the random events if it implements IChanceMoveGenerator
+     * @param depthmax
+     *            the number of moves of the players at which the search stops even if there is some time left
+     * @return the best move found by the deepest iteration that has been completed before the timeout
+     * @throws TimeoutException
+     *             if the timeout is reached before the end of the first iteration
+     */
+    public M bestIterativeDeepening(G game, IMoveGenerator<M, G> generator, int depthmax) throws TimeoutException {
+        visitedNodes = 0;
+        chanceCutoffs = 0;
+        previousBest = null;
+        reachedDepth = 0;
+        M best = null;
+        for (int depth = 1; depth <= depthmax; depth++) {
+            try {
+                best = search(game, generator, depth);
+                reachedDepth = depth;
+            } catch (final TimeoutException e) {
+                if (reachedDepth == 0) {
+                    throw e;
+                }
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the depth of the deepest iteration completed during the last call to bestIterativeDeepening
+     */
+    public int getReachedDepth() {
+        return reachedDepth;
+    }
+
+    /**
+     * @return the number of game tree nodes visited during the last search
+     */
+    public long getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * @return the number of chance nodes whose remaining outcomes have been pruned during the last search
+     */
+    public long getChanceCutoffs() {
+        return chanceCutoffs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private M search(G game, IMoveGenerator<M, G> generator, int depth) throws TimeoutException {
+        chanceGenerator = generator instanceof IChanceMoveGenerator ? (IChanceMoveGenerator<M, G>) generator : null;
+        if (chanceGenerator != null && chanceGenerator.isChanceNode(game)) {
+            throw new IllegalStateException("The search must start from a position where a player plays");
+        }
+        visitedNodes++;
+        final boolean player = game.currentPlayer() == 0;
+        final List<M> moves = generator.generateMoves(game);
+        M best = null;
+        double bestValue = player ? minScore : maxScore;
+        final int first = previousBest == null ? -1 : moves.indexOf(previousBest);
+        for (int i = -1; i < moves.size(); i++) {
+            // the best move of the previous iteration first
+            if (i == first) {
+                continue;
+            }
+            final M move = moves.get(i < 0 ? first : i);
+            timer.timeCheck();
+            final double value;
+            final G movedGame = move.execute(game);
+            try {
+                value = expectimax(movedGame, generator, depth - 1, 1, player ? bestValue : minScore, player ? maxScore : bestValue);
+            } finally {
+                move.cancel(game);
+            }
+            if (best == null || (player ? value > bestValue : value < bestValue)) {
+                best = move;
+                bestValue = value;
+            }
+        }
+        previousBest = best;
+        return best;
+    }
+
+    /*
+     * Returns the value of the game state if it is in the alpha beta window, otherwise a bound of it out of the window (fail soft)
+     */
+    private double expectimax(G game, IMoveGenerator<M, G> generator, int depth, int ply, double alpha, double beta) throws TimeoutException {
+        visitedNodes++;
+        if (depth == 0) {
+            return evaluateGame(game, ply);
+        }
+        if (chanceGenerator != null && chanceGenerator.isChanceNode(game)) {
+            return chance(game, generator, depth, ply, alpha, beta);
+        }
+        final List<M> moves = generator.generateMoves(game);
+        if (moves.isEmpty()) {
+            return evaluateGame(game, ply);// Real end game status
+        }
+        final boolean maximizing = game.currentPlayer() == 0;
+        double best = maximizing ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        int bestMove = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            final M move = moves.get(i);
+            timer.timeCheck();
+            final double value;
+            final G movedGame = move.execute(game);
+            try {
+                value = expectimax(movedGame, generator, depth - 1, ply + 1, alpha, beta);
+            } finally {
+                move.cancel(game);
+            }
+            if (maximizing ? value > best : value < best) {
+                best = value;
+                bestMove = i;
+            }
+            if (maximizing) {
+                alpha = Math.max(alpha, value);
+            } else {
+                beta = Math.min(beta, value);
+            }
+            if (beta <= alpha) {
+                break;
+            }
+        }
+        if (probing) {
+            if (ply >= bestMoves.length) {
+                bestMoves = Arrays.copyOf(bestMoves, ply * 2 + 1);
+            }
+            bestMoves[ply] = bestMove;
+        }
+        return best;
+    }
+
+    /*
+     * Expected value of the outcomes. With bounds, each outcome is known to be between its lower and upper bound,
+     * and so is the expected value: the search stops as soon as those bounds are out of the window.
+     */
+    private double chance(G game, IMoveGenerator<M, G> generator, int depth, int ply, double alpha, double beta) throws TimeoutException {
+        final List<M> outcomes = chanceGenerator.generateOutcomes(game);
+        final int size = outcomes.size();
+        if (size == 0) {
+            return evaluateGame(game, ply);// Real end game status
+        }
+        ensureBuffers(ply, size);
+        final double[] probability = probabilities[ply];
+        final double[] lower = lowerBounds[ply];
+        final double[] upper = upperBounds[ply];
+        for (int i = 0; i < size; i++) {
+            probability[i] = chanceGenerator.probability(game, outcomes.get(i));
+            lower[i] = minScore;
+            upper[i] = maxScore;
+        }
+        if (!bounded) {
+            double expected = 0;
+            for (int i = 0; i < size; i++) {
+                expected += probability[i] * searchOutcome(game, generator, outcomes.get(i), depth, ply, Double.NEGATIVE_INFINITY,
+                        Double.POSITIVE_INFINITY);
+            }
+            return expected;
+        }
+        double lowerBound = minScore;
+        double upperBound = maxScore;
+        if (probing) {
+            for (int i = 0; i < size; i++) {
+                if (probability[i] <= 0) {
+                    continue;
+                }
+                final M outcome = outcomes.get(i);
+                timer.timeCheck();
+                final G movedGame = outcome.execute(game);
+                try {
+                    probe(movedGame, generator, depth, ply + 1, i, lower, upper, (alpha - (upperBound - probability[i] * upper[i])) / probability[i],
+                            (beta - (lowerBound - probability[i] * lower[i])) / probability[i]);
+                } finally {
+                    outcome.cancel(game);
+                }
+                lowerBound = expectedValue(probability, lower, size);
+                upperBound = expectedValue(probability, upper, size);
+                if (lowerBound >= beta || upperBound <= alpha) {
+                    chanceCutoffs++;
+                    return lowerBound >= beta ? lowerBound : upperBound;
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (probability[i] <= 0 || lower[i] == upper[i]) {
+                continue;
+            }
+            final double othersLower = lowerBound - probability[i] * lower[i];
+            final double othersUpper = upperBound - probability[i] * upper[i];
+            // the window of the outcome out of which the expected value is out of the window of the chance node
+            double childAlpha = Math.max(lower[i], (alpha - othersUpper) / probability[i]);
+            double childBeta = Math.min(upper[i], (beta - othersLower) / probability[i]);
+            if (childAlpha >= childBeta) {
+                // rounding errors: search the full range of the outcome
+                childAlpha = lower[i];
+                childBeta = upper[i];
+            }
+            final double value = searchOutcome(game, generator, outcomes.get(i), depth, ply, childAlpha, childBeta);
+            if (value <= childAlpha) {
+                upper[i] = Math.max(lower[i], value);
+            } else if (value >= childBeta) {
+                lower[i] = Math.min(upper[i], value);
+            } else {
+                lower[i] = value;
+                upper[i] = value;
+            }
+            lowerBound = othersLower + probability[i] * lower[i];
+            upperBound = othersUpper + probability[i] * upper[i];
+            if (lowerBound >= beta || upperBound <= alpha) {
+                if (i < size - 1) {
+                    chanceCutoffs++;
+                }
+                return lowerBound >= beta ? lowerBound : upperBound;
+            }
+        }
+        return expectedValue(probability, lower, size);
+    }
+
+    private double searchOutcome(G game, IMoveGenerator<M, G> generator, M outcome, int depth, int ply, double alpha, double beta)
+            throws TimeoutException {
+        timer.timeCheck();
+        final G movedGame = outcome.execute(game);
+        try {
+            // the random event is not a move of a player: same depth
+            return expectimax(movedGame, generator, depth, ply + 1, alpha, beta);
+        } finally {
+            outcome.cancel(game);
+        }
+    }
+
+    /*
+     * Search only the first move of the player playing after an outcome: its value is a lower bound of the outcome if the player maximizes,
+     * an upper bound if he minimizes. The window bounds are the values of the outcome that would prune the chance node.
+     */
+    private void probe(G game, IMoveGenerator<M, G> generator, int depth, int ply, int outcome, double[] lower, double[] upper, double alpha,
+            double beta) throws TimeoutException {
+        visitedNodes++;
+        if (chanceGenerator.isChanceNode(game)) {
+            return;// no cheap bound
+        }
+        final List<M> moves = generator.generateMoves(game);
+        if (moves.isEmpty()) {
+            final double value = evaluateGame(game, ply);// Real end game status
+            lower[outcome] = value;
+            upper[outcome] = value;
+            return;
+        }
+        final boolean maximizing = game.currentPlayer() == 0;
+        // the move that was the best at the same ply the last time: the closer to the best, the tighter the bound
+        final int probed = ply < bestMoves.length && bestMoves[ply] < moves.size() ? bestMoves[ply] : 0;
+        final M move = moves.get(probed);
+        timer.timeCheck();
+        final G movedGame = move.execute(game);
+        final double value;
+        try {
+            if (maximizing) {
+                value = expectimax(movedGame, generator, depth - 1, ply + 1, lower[outcome], Math.max(Math.nextUp(lower[outcome]), Math.min(upper[outcome], beta)));
+            } else {
+                value = expectimax(movedGame, generator, depth - 1, ply + 1, Math.min(Math.nextDown(upper[outcome]), Math.max(lower[outcome], alpha)), upper[outcome]);
+            }
+        } finally {
+            move.cancel(game);
+        }
+        if (maximizing) {
+            lower[outcome] = Math.max(lower[outcome], Math.min(upper[outcome], value));
+        } else {
+            upper[outcome] = Math.min(upper[outcome], Math.max(lower[outcome], value));
+        }
+    }
+
+    private static double expectedValue(double[] probability, double[] values, int size) {
+        double expected = 0;
+        for (int i = 0; i < size; i++) {
+            expected += probability[i] * values[i];
+        }
+        return expected;
+    }
+
+    private void ensureBuffers(int ply, int size) {
+        if (ply >= probabilities.length) {
+            probabilities = Arrays.copyOf(probabilities, ply * 2 + 1);
+            lowerBounds = Arrays.copyOf(lowerBounds, ply * 2 + 1);
+            upperBounds = Arrays.copyOf(upperBounds, ply * 2 + 1);
+        }
+        if (probabilities[ply] == null || probabilities[ply].length < size) {
+            probabilities[ply] = new double[size * 2];
+            lowerBounds[ply] = new double[size * 2];
+            upperBounds[ply] = new double[size * 2];
+        }
+    }
+
+    /*
+     * Value of the game for player 0, preferring the evaluations that do not allocate an array
+     */
+    private double evaluateGame(G game, int ply) {
+        if (game instanceof IZeroSumGame) {
+            return ((IZeroSumGame) game).evaluateScore(ply);
+        }
+        if (game instanceof IBufferedEvaluationGame) {
+            final IBufferedEvaluationGame bufferedGame = (IBufferedEvaluationGame) game;
+            if (evaluation.length != bufferedGame.players()) {
+                evaluation = new double[bufferedGame.players()];
+            }
+            bufferedGame.evaluateInto(evaluation, ply);
+            return evaluation[0] - evaluation[1];
+        }
+        final double[] scores = game.evaluate(ply);
+        return scores[0] - scores[1];
+    }
+}
@@ -7,9 +7,13 @@ import java.util.Comparator;
 import java.util.List;
 
 import competitive.programming.common.Constants;
+import competitive.programming.gametheory.IBufferedEvaluationGame;
 import competitive.programming.gametheory.IGame;
 import competitive.programming.gametheory.IMove;
 import competitive.programming.gametheory.IMoveGenerator;
+import competitive.programming.gametheory.IPrimitiveGame;
+import competitive.programming.gametheory.IPrimitiveMoveGenerator;
+import competitive.programming.gametheory.IncrementalEvaluation;
 import competitive.programming.timemanagement.TimeoutException;
 import competitive.programming.timemanagement.Timer;
 
@@ -26,6 +30,11 @@ import competitive.programming.timemanagement.Timer;
  * 
  * Hint: If you are in pure zero sum 2 player games you should have a
  *         look to Minimax implementation 
+ * Hint: If the converted scores are bounded and sum to a constant, enable the pruning
+ *         so that the branches that can not change the result are not explored
+ * Hint: In the allocation free mode, the search itself does not create any object per node:
+ *         have a look to it if the garbage collector pauses during the search, to the moves encoded as int (IPrimitiveGame)
+ *         and to the evaluation in a buffer (IBufferedEvaluationGame)
  * Hint: You might want to use MaxN tree
  *         only considering your current player and exploring the possible moves
  *         without taking into account the others
@@ -42,6 +51,7 @@ public class MaxNTree<M extends IMove<G>, G extends IGame> {
 		private final double[] evaluation;
 		private final M move;
 		private final G game;
+		private boolean speculative;
 
 		EvaluatedMove(double[] evaluation, M move, G game) {
 			this.evaluation = evaluation;
@@ -98,6 +108,24 @@ public class MaxNTree<M extends IMove<G>, G extends IGame> {
 
 	private EvaluatedMove best;
 
+	private boolean pruning;
+	private double minScore;
+	private double maxScore;
+	private double scoresSum;
+	private boolean speculativePruning;
+	// returned by a node pruned speculatively, its parent value may be wrong
+	private final EvaluatedMove speculativelyPruned = new EvaluatedMove(null, null, null);
+
+	private boolean allocationFree;
+	private boolean recordBestGame;
+	// scores of the best move found at each ply
+	private double[][] bestScores = new double[0][];
+	private Object[] bestGames = new Object[0];
+	private M bestRootMove;
+	private int[][] primitiveMoves = new int[0][];
+	private int bestRootCode;
+	private IncrementalEvaluation<G> incremental;
+
 	/**
 	 * Creates a new Max-N tree.
 	 * 
@@ -128,18 +156,243 @@ public class MaxNTree<M extends IMove<G>, G extends IGame> {
 	 */
 	public M best(G game, IMoveGenerator<M, G> generator, int depth) throws TimeoutException {
 		this.generator = generator;
-		best = bestInternal(depth, game);
+		if (allocationFree && !pruning) {
+			best = null;
+			bestRootMove = null;
+			if (bestScores.length < depth + 2) {
+				bestScores = new double[depth + 2][];
+				bestGames = new Object[depth + 2];
+			}
+			if (incremental != null) {
+				incremental.start(game);
+			}
+			bestBuffered(depth, 0, game);
+			return bestRootMove;
+		}
+		if (pruning) {
+			best = bestPruned(depth, game, -1, Double.NEGATIVE_INFINITY, -1, Double.NEGATIVE_INFINITY, false, speculativePruning);
+		} else {
+			best = bestInternal(depth, game);
+		}
 		return best.getMove();
 	}
 
+	/**
+	 * Same search as the allocation free mode, the moves being encoded as int: the moves buffers are preallocated for each depth too.
+	 * The pruning is not used, and bestGame is not available after this search.
+	 *
+	 * @param game
+	 *            The current state of the game
+	 * @param generator
+	 *            The move generator that will fill the buffers with the codes of the possible moves of
+	 *            the playing player at each turn
+	 * @param depth
+	 *            the fixed depth up to which the game tree will be expanded
+	 * @return the code of the best move you can play considering all players are selecting
+	 *         the best move for them, or IPrimitiveMoveGenerator.NO_MOVE if there is no move
+	 * @throws TimeoutException
+	 */
+	public <P extends IPrimitiveGame> int best(P game, IPrimitiveMoveGenerator<P> generator, int depth) throws TimeoutException {
+		best = null;
+		bestRootCode = IPrimitiveMoveGenerator.NO_MOVE;
+		if (bestScores.length < depth + 2) {
+			bestScores = new double[depth + 2][];
+			bestGames = new Object[depth + 2];
+		}
+		if (primitiveMoves.length < depth + 1 || primitiveMoves[0].length < generator.maxMoves()) {
+			primitiveMoves = new int[depth + 1][generator.maxMoves()];
+		}
+		bestPrimitive(depth, 0, game, generator);
+		return bestRootCode;
+	}
+
+	/**
+	 * Enable the allocation free mode: the scores are copied in buffers preallocated for each depth,
+	 * and the best move of each node is selected while its moves are explored, instead of sorting them at the end.
+	 * The search does not create any object per node. Note that your game and move generator may still do it,
+	 * the evaluation does not if the game implements IBufferedEvaluationGame.
+	 * The pruning search, if enabled, is not allocation free.
+	 *
+	 * @param allocationFree
+	 *            true to use the allocation free mode, false to use the default one
+	 * @param recordBestGame
+	 *            true to keep the game state reached by the best moves, so that bestGame can be called.
+	 *            It is only useful if the moves return a new game state instead of modifying it
+	 */
+	public void setAllocationFree(boolean allocationFree, boolean recordBestGame) {
+		this.allocationFree = allocationFree;
+		this.recordBestGame = recordBestGame;
+	}
+
+	/**
+	 * Evaluate the leaves incrementally in the allocation free mode: the moves implementing IIncrementalMove update the evaluation
+	 * instead of evaluating each leaf. The end of the game positions are still fully evaluated.
+	 *
+	 * @param enabled
+	 *            true to use the incremental evaluation, false to evaluate each leaf (default)
+	 * @param check
+	 *            true to compare each incremental evaluation with the full one and throw an IllegalStateException if they are different (debug)
+	 */
+	public void setIncrementalEvaluation(boolean enabled, boolean check) {
+		incremental = enabled ? new IncrementalEvaluation<G>(check) : null;
+	}
+
+	/**
+	 * Enable the pruning of the branches that can not change the result. The best move is the same than without pruning.
+	 * It requires that the scores converted for each player are bounded and always sum to the same value,
+	 * like shares of a total, or 1 for the winner and 0 for the others.
+	 * Immediate pruning: a player having a move giving him the maximum score does not explore its other moves.
+	 * Shallow pruning: a player stops exploring its moves when the score they leave to the previous player can not be better than what he already has.
+	 *
+	 * @param minScore
+	 *            the minimum converted score a player can have
+	 * @param maxScore
+	 *            the maximum converted score a player can have
+	 * @param scoresSum
+	 *            the sum of the converted scores of all the players, whatever the game state
+	 * @param speculativePruning
+	 *            also prune with the bound of the player two levels above (3 players or more).
+	 *            When a speculatively pruned branch might have changed the result, it is explored again.
+	 */
+	public void setPruning(double minScore, double maxScore, double scoresSum, boolean speculativePruning) {
+		this.pruning = true;
+		this.minScore = minScore;
+		this.maxScore = maxScore;
+		this.scoresSum = scoresSum;
+		this.speculativePruning = speculativePruning;
+	}
+
 	/**
 	 * @return the best game state corresponding to the best move returned by
 	 *         best method It is mandatory to run best method first!
 	 */
+	@SuppressWarnings("unchecked")
 	public G bestGame() {
+		if (best == null) {
+			if (!recordBestGame) {
+				throw new IllegalStateException("The best game is not recorded in the allocation free mode unless it is requested");
+			}
+			return (G) bestGames[0];
+		}
 		return best.game;
 	}
 
+	/*
+	 * Copies the scores of the best move in bestScores[ply], and its game state in bestGames[ply] if requested
+	 */
+	private void bestBuffered(int depth, int ply, G board) throws TimeoutException {
+		final List<M> generatedMoves = generator.generateMoves(board);
+		final int size = generatedMoves.size();
+		if (size == 0) {
+			// Final state?
+			copyEvaluation(board, depth, ply, board);
+			return;
+		}
+		final int player = board.currentPlayer();
+		boolean found = false;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < size; i++) {
+			final M move = generatedMoves.get(i);
+			timer.timeCheck();
+			if (incremental != null) {
+				incremental.execute(move, board);
+			}
+			board = move.execute(board);
+			try {
+				if (depth == 0 && incremental != null && incremental.isIncremental()) {
+					copyScores(incremental.evaluate(board, depth), ply + 1, board);
+				} else if (depth == 0) {
+					copyEvaluation(board, depth, ply + 1, board);
+				} else {
+					bestBuffered(depth - 1, ply + 1, board);
+				}
+			} finally {
+				board = move.cancel(board);
+				if (incremental != null) {
+					incremental.cancel();
+				}
+			}
+			final double[] scores = bestScores[ply + 1];
+			final double value = converter.convert(scores, player);
+			if (!found || value > bestValue) {
+				found = true;
+				bestValue = value;
+				copyScores(scores, ply, bestGames[ply + 1]);
+				if (ply == 0) {
+					bestRootMove = move;
+				}
+			}
+		}
+	}
+
+	/*
+	 * Same as bestBuffered, the moves being generated in primitiveMoves[ply]
+	 */
+	private <P extends IPrimitiveGame> void bestPrimitive(int depth, int ply, P board, IPrimitiveMoveGenerator<P> generator) throws TimeoutException {
+		final int[] moves = primitiveMoves[ply];
+		final int size = generator.generateMoves(board, moves);
+		if (size == 0) {
+			// Final state?
+			copyEvaluation(board, depth, ply, null);
+			return;
+		}
+		final int player = board.currentPlayer();
+		boolean found = false;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < size; i++) {
+			final int move = moves[i];
+			timer.timeCheck();
+			board.execute(move);
+			try {
+				if (depth == 0) {
+					copyEvaluation(board, depth, ply + 1, null);
+				} else {
+					bestPrimitive(depth - 1, ply + 1, board, generator);
+				}
+			} finally {
+				board.cancel(move);
+			}
+			final double[] scores = bestScores[ply + 1];
+			final double value = converter.convert(scores, player);
+			if (!found || value > bestValue) {
+				found = true;
+				bestValue = value;
+				copyScores(scores, ply, null);
+				if (ply == 0) {
+					bestRootCode = move;
+				}
+			}
+		}
+	}
+
+	/*
+	 * Same as copyScores with the evaluation of the board, evaluated directly in bestScores[ply] if the game implements IBufferedEvaluationGame
+	 */
+	private void copyEvaluation(IGame board, int depth, int ply, Object game) {
+		if (!(board instanceof IBufferedEvaluationGame)) {
+			copyScores(board.evaluate(depth), ply, game);
+			return;
+		}
+		final IBufferedEvaluationGame bufferedBoard = (IBufferedEvaluationGame) board;
+		if (bestScores[ply] == null || bestScores[ply].length != bufferedBoard.players()) {
+			bestScores[ply] = new double[bufferedBoard.players()];
+		}
+		bufferedBoard.evaluateInto(bestScores[ply], depth);
+		if (recordBestGame) {
+			bestGames[ply] = game;
+		}
+	}
+
+	private void copyScores(double[] scores, int ply, Object game) {
+		if (bestScores[ply] == null || bestScores[ply].length != scores.length) {
+			bestScores[ply] = new double[scores.length];
+		}
+		System.arraycopy(scores, 0, bestScores[ply], 0, scores.length);
+		if (recordBestGame) {
+			bestGames[ply] = game;
+		}
+	}
+
 	private EvaluatedMove bestInternal(int depth, G board) throws TimeoutException {
 		final List<M> generatedMoves = generator.generateMoves(board);
 		if (generatedMoves.size() > 0) {
@@ -154,6 +407,73 @@ public class MaxNTree<M extends IMove<G>, G extends IGame> {
 		return new EvaluatedMove(board.evaluate(depth), null, board);
 	}
 
+	/*
+	 * Same as bestInternal, keeping the first of the best moves, but returns null if the node can not be selected by its parent (shallow pruning),
+	 * or speculativelyPruned if it can not be selected by its parent unless its parent is not selected by its grand parent (speculative pruning).
+	 * A child that has been speculatively pruned makes its parent value speculative:
+	 * the parent is explored again without speculation on its children if it is selected.
+	 */
+	private EvaluatedMove bestPruned(int depth, G board, int parentPlayer, double parentBound, int grandParentPlayer, double grandParentBound,
+			boolean speculate, boolean speculateChildren) throws TimeoutException {
+		final List<M> generatedMoves = generator.generateMoves(board);
+		if (generatedMoves.isEmpty()) {
+			// Final state?
+			return new EvaluatedMove(board.evaluate(depth), null, board);
+		}
+		final int player = board.currentPlayer();
+		EvaluatedMove bestMove = null;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		boolean speculative = false;
+		for (final M move : generatedMoves) {
+			timer.timeCheck();
+			board = move.execute(board);
+			EvaluatedMove evaluatedMove;
+			try {
+				if (depth == 0) {
+					evaluatedMove = new EvaluatedMove(board.evaluate(depth), move, board);
+				} else {
+					EvaluatedMove bestSubTree = bestPruned(depth - 1, board, player, bestValue, parentPlayer, parentBound, speculateChildren,
+							speculativePruning);
+					if (bestSubTree != null && bestSubTree.speculative && converter.convert(bestSubTree.getEvaluation(), player) > bestValue) {
+						// selected: its exact value is needed
+						bestSubTree = bestPruned(depth - 1, board, player, bestValue, parentPlayer, parentBound, speculateChildren, false);
+					}
+					if (bestSubTree == speculativelyPruned) {
+						speculative = true;
+						evaluatedMove = null;
+					} else {
+						evaluatedMove = bestSubTree == null ? null : new EvaluatedMove(bestSubTree.getEvaluation(), move, bestSubTree.game);
+					}
+				}
+			} finally {
+				board = move.cancel(board);
+			}
+			if (evaluatedMove == null) {
+				continue;
+			}
+			final double value = converter.convert(evaluatedMove.getEvaluation(), player);
+			final int players = evaluatedMove.getEvaluation().length;
+			if (bestMove == null || value > bestValue) {
+				bestMove = evaluatedMove;
+				bestValue = value;
+			}
+			if (bestValue >= maxScore) {
+				break;// immediate pruning
+			}
+			if (parentPlayer >= 0 && parentPlayer != player && scoresSum - bestValue - (players - 2) * minScore <= parentBound) {
+				return null;// shallow pruning
+			}
+			if (speculate && grandParentPlayer >= 0 && grandParentPlayer != player && grandParentPlayer != parentPlayer && parentPlayer != player
+					&& scoresSum - bestValue - parentBound - (players - 3) * minScore <= grandParentBound) {
+				return speculativelyPruned;
+			}
+		}
+		if (bestMove != null) {
+			bestMove.speculative = speculative;
+		}
+		return bestMove;
+	}
+
 	private List<EvaluatedMove> evaluatesMoves(List<M> generatedMoves, G board, int depth) throws TimeoutException {
 		final List<EvaluatedMove> evaluatedMoves = new ArrayList<>();
 
@@ -0,0 +1,34 @@
+package competitive.programming.gametheory.mcts;
+
+import java.util.List;
+import java.util.Random;
+
+import competitive.programming.gametheory.IGame;
+import competitive.programming.gametheory.IMove;
+
+/**
+ * @author Manwe
+ *
+ *         Policy selecting the moves played during the simulation of the game (rollout) that follows each new node of the Monte Carlo tree.
+ *
+ *         Hint: a pure random policy is cheap and unbiased, but a policy preferring the obviously good moves (captures, winning moves...)
+ *         gives much more realistic simulations. Keep it fast anyway: it is called at each move of each simulation.
+ *
+ * @param <M>
+ *            The class that model a move in the game tree
+ * @param <G>
+ *            The class that model the Game state
+ */
+public interface IRolloutPolicy<M extends IMove<G>, G extends IGame> {
+
+    /**
+     * @param game
+     *            the current state of the simulated game
+     * @param moves
+     *            the moves generated for the current player, never empty
+     * @param random
+     *            the random generator of the search, so that a seeded search can be replayed
+     * @return the move to play in the simulation
+     */
+    M select(G game, List<M> moves, Random random);
+}
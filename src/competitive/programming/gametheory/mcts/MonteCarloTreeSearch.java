@@ -0,0 +1,426 @@
+package competitive.programming.gametheory.mcts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import competitive.programming.gametheory.IBufferedEvaluationGame;
+import competitive.programming.gametheory.IGame;
+import competitive.programming.gametheory.IMove;
+import competitive.programming.gametheory.IMoveGenerator;
+import competitive.programming.timemanagement.TimeoutException;
+import competitive.programming.timemanagement.Timer;
+
+/**
+ * @author Manwe
+ *
+ *         MonteCarloTreeSearch class allows to find the best move a player can do in games too wide or too noisy for the Minimax or the MaxNTree.
+ *         Each iteration goes down the tree selecting at each node the most promising move for the player to play (UCT formula),
+ *         adds a new node, simulates the end of the game from it with the rollout policy, and back propagates the evaluation of every player.
+ *         The search stops when the timer times out, and the most visited move of the root is returned.
+ *
+ *         It supports any number of players: each node keeps the sum of the evaluations of all the players,
+ *         and each player selects the moves maximizing its own evaluation.
+ *
+ *         The nodes are stored in preallocated primitive arrays indexed by int (the children of a node are contiguous),
+ *         so that the tree can hold millions of nodes without creating any object per node.
+ *         The tree can be kept from a turn to another: once the moves of all the players are played, the search goes on from the matching subtree.
+ *
+ *         Hint: the evaluations should be in [0,1] (for instance a winning probability) to use the default exploration constant.
+ *         Otherwise, scale the exploration constant to the range of your evaluations.
+ * @see <a href="https://en.wikipedia.org/wiki/Monte_Carlo_tree_search">Monte Carlo tree search</a>
+ *
+ * @param <M>
+ *            The class that model a move in the game tree
+ * @param <G>
+ *            The class that model the Game state
+ */
+public class MonteCarloTreeSearch<M extends IMove<G>, G extends IGame> {
+    private static final int ROOT = 0;
+    private static final int NOT_EXPANDED = -1;
+
+    /*
+     * The nodes of a tree, stored as one array per field
+     */
+    private static class Arena {
+        private final int[] parents;
+        private final int[] firstChildren;
+        private final int[] childrenCounts;
+        private final int[] playersToPlay;
+        private final int[] visits;
+        private final double[] rewards;
+        private final Object[] moves;
+        private int size;
+
+        Arena(int capacity, int players) {
+            parents = new int[capacity];
+            firstChildren = new int[capacity];
+            childrenCounts = new int[capacity];
+            playersToPlay = new int[capacity];
+            visits = new int[capacity];
+            rewards = new double[capacity * players];
+            moves = new Object[capacity];
+        }
+    }
+
+    private final Timer timer;
+    private final int players;
+    private final double[] evaluation;
+    private final int capacity;
+
+    private Arena tree;
+    // second arena receiving the kept subtree when the tree is reused
+    private Arena spare;
+
+    private final List<M> path = new ArrayList<>();
+    private IRolloutPolicy<M, G> rolloutPolicy = (game, generatedMoves, random) -> generatedMoves.get(random.nextInt(generatedMoves.size()));
+    private Random random = new Random();
+    private double exploration = Math.sqrt(2);
+    private int rolloutDepth = 50;
+
+    private long iterations;
+
+    /**
+     * MonteCarloTreeSearch constructor. All the memory of the tree is allocated here.
+     *
+     * @param timer
+     *            timer instance in order to stop the search when we are running out of time
+     * @param players
+     *            the number of players, which is the size of the arrays returned by the game evaluate method
+     * @param capacity
+     *            the maximum number of nodes of the tree. When it is full, the search goes on without adding new nodes
+     * @throws IllegalStateException
+     *             if the number of players or the capacity is not strictly positive
+     */
+    public MonteCarloTreeSearch(Timer timer, int players, int capacity) {
+        if (players <= 0 || capacity <= 0) {
+            throw new IllegalStateException("Monte Carlo tree search needs at least one player and one node");
+        }
+        this.timer = timer;
+        this.players = players;
+        this.capacity = capacity;
+        this.evaluation = new double[players];
+        tree = new Arena(capacity, players);
+    }
+
+    /**
+     * @param rolloutPolicy
+     *            the policy selecting the moves of the simulations. Default is a uniform random selection
+     */
+    public void setRolloutPolicy(IRolloutPolicy<M, G> rolloutPolicy) {
+        this.rolloutPolicy = rolloutPolicy;
+    }
+
+    /**
+     * @param random
+     *            the random generator given to the rollout policy. Use a seeded one to replay a search
+     */
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * @param exploration
+     *            the UCT exploration constant: the higher, the more the less visited moves are explored. Default is sqrt(2)
+     */
+    public void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    /**
+     * @param rolloutDepth
+     *            the maximum number of moves played by a simulation before evaluating the game. Default is 50
+     */
+    public void setRolloutDepth(int rolloutDepth) {
+        this.rolloutDepth = rolloutDepth;
+    }
+
+    /**
+     * Keep the tree from a search to another. After each search, call play with the moves of all the players until your next turn,
+     * so that the next search goes on from the subtree of the current game state.
+     * A second tree is allocated in order to copy the kept subtree: the rest of the tree is then released at once.
+     * Moving the root costs a copy of the kept subtree, and clearing the moves of the released tree: O(size of the tree), not O(1).
+     *
+     * @param treeReuse
+     *            true to keep the tree between the searches, false to start each search from scratch (default)
+     */
+    public void setTreeReuse(boolean treeReuse) {
+        if (treeReuse && spare == null) {
+            spare = new Arena(capacity, players);
+        } else if (!treeReuse) {
+            spare = null;
+        }
+        tree.size = 0;
+    }
+
+    /**
+     * Move the root of the tree to the child reached by a move, keeping the statistics of its subtree.
+     * If the move has not been explored, the next search starts from scratch. It does nothing if the tree reuse is disabled.
+     *
+     * @param move
+     *            the move played from the root, equal to one generated by the move generator for the root game state
+     */
+    public void play(M move) {
+        if (spare == null || tree.size == 0) {
+            return;
+        }
+        final int first = tree.firstChildren[ROOT];
+        for (int child = first; child < first + tree.childrenCounts[ROOT]; child++) {
+            if (move.equals(tree.moves[child])) {
+                copySubtree(child);
+                return;
+            }
+        }
+        tree.size = 0;
+    }
+
+    /*
+     * Copy the subtree in the spare arena, breadth first so that the children stay contiguous, then swap the arenas
+     */
+    private void copySubtree(int newRoot) {
+        final Arena from = tree;
+        final Arena to = spare;
+        to.size = 1;
+        copyNode(from, newRoot, to, ROOT, ROOT);
+        for (int node = 0; node < to.size; node++) {
+            final int count = to.childrenCounts[node];
+            if (count > 0) {
+                final int fromFirst = to.firstChildren[node];// the index in the old arena until now
+                final int toFirst = to.size;
+                to.size += count;
+                for (int i = 0; i < count; i++) {
+                    copyNode(from, fromFirst + i, to, toFirst + i, node);
+                }
+                to.firstChildren[node] = toFirst;
+            }
+        }
+        // let the moves of the released tree, and the game states they may hold, be garbage collected
+        Arrays.fill(from.moves, 0, from.size, null);
+        from.size = 0;
+        tree = to;
+        spare = from;
+    }
+
+    private void copyNode(Arena from, int fromNode, Arena to, int toNode, int toParent) {
+        to.parents[toNode] = toParent;
+        to.firstChildren[toNode] = from.firstChildren[fromNode];
+        to.childrenCounts[toNode] = from.childrenCounts[fromNode];
+        to.playersToPlay[toNode] = from.playersToPlay[fromNode];
+        to.visits[toNode] = from.visits[fromNode];
+        to.moves[toNode] = from.moves[fromNode];
+        System.arraycopy(from.rewards, fromNode * players, to.rewards, toNode * players, players);
+    }
+
+    /**
+     * Search the best move until the timer times out
+     *
+     * @param game
+     *            The current state of the game
+     * @param generator
+     *            The move generator that will generate all the possible move of the playing player at each turn
+     * @return the most visited move of the root, or null if there is no move
+     */
+    public M best(G game, IMoveGenerator<M, G> generator) {
+        return best(game, generator, Long.MAX_VALUE);
+    }
+
+    /**
+     * Search the best move until the timer times out or the number of iterations is reached
+     *
+     * @param game
+     *            The current state of the game
+     * @param generator
+     *            The move generator that will generate all the possible move of the playing player at each turn
+     * @param maxIterations
+     *            the maximum number of iterations
+     * @return the most visited move of the root, or null if there is no move
+     */
+    public M best(G game, IMoveGenerator<M, G> generator, long maxIterations) {
+        if (spare == null || tree.size == 0) {
+            tree.size = 0;
+            newNode(ROOT, null);
+        }
+        iterations = 0;
+        try {
+            while (iterations < maxIterations) {
+                timer.timeCheck();
+                iterate(game, generator);
+                iterations++;
+            }
+        } catch (final TimeoutException e) {
+            // The game state is restored at the end of each iteration
+        }
+        return mostVisitedMove();
+    }
+
+    /**
+     * @return the number of iterations done during the last search
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the number of nodes of the tree built during the last search
+     */
+    public int getNodes() {
+        return tree.size;
+    }
+
+    /**
+     * @return the number of iterations that went through the root, including the ones of the previous searches if the tree is reused
+     */
+    public int getRootVisits() {
+        return tree.size == 0 ? 0 : tree.visits[ROOT];
+    }
+
+    int rootChildren() {
+        return Math.max(tree.childrenCounts[ROOT], 0);
+    }
+
+    int rootChildVisits(int child) {
+        return tree.visits[tree.firstChildren[ROOT] + child];
+    }
+
+    int spareMoves() {
+        int moves = 0;
+        for (int node = 0; spare != null && node < spare.moves.length; node++) {
+            if (spare.moves[node] != null) {
+                moves++;
+            }
+        }
+        return moves;
+    }
+
+    @SuppressWarnings("unchecked")
+    M rootChildMove(int child) {
+        return (M) tree.moves[tree.firstChildren[ROOT] + child];
+    }
+
+    private void iterate(G game, IMoveGenerator<M, G> generator) {
+        path.clear();
+        int node = ROOT;
+        int depth = 0;
+        while (true) {
+            if (tree.childrenCounts[node] == NOT_EXPANDED && !expand(node, game, generator)) {
+                break;// the tree is full
+            }
+            if (tree.childrenCounts[node] == 0) {
+                break;// end of the game
+            }
+            final int child = select(node);
+            game = execute(game, child);
+            depth++;
+            node = child;
+            if (tree.visits[child] == 0) {
+                break;
+            }
+        }
+        final int treeMoves = path.size();
+        for (int i = 0; i < rolloutDepth; i++) {
+            final List<M> generatedMoves = generator.generateMoves(game);
+            if (generatedMoves.isEmpty()) {
+                break;
+            }
+            final M move = rolloutPolicy.select(game, generatedMoves, random);
+            path.add(move);
+            game = move.execute(game);
+        }
+        final int evaluationDepth = depth + path.size() - treeMoves;
+        final double[] scores;
+        if (game instanceof IBufferedEvaluationGame) {
+            ((IBufferedEvaluationGame) game).evaluateInto(evaluation, evaluationDepth);
+            scores = evaluation;
+        } else {
+            scores = game.evaluate(evaluationDepth);
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            game = path.get(i).cancel(game);
+        }
+        backPropagate(node, scores);
+    }
+
+    private boolean expand(int node, G game, IMoveGenerator<M, G> generator) {
+        final List<M> generatedMoves = generator.generateMoves(game);
+        if (tree.size + generatedMoves.size() > capacity) {
+            return false;
+        }
+        tree.firstChildren[node] = tree.size;
+        tree.childrenCounts[node] = generatedMoves.size();
+        tree.playersToPlay[node] = game.currentPlayer();
+        for (int i = 0; i < generatedMoves.size(); i++) {
+            newNode(node, generatedMoves.get(i));
+        }
+        return true;
+    }
+
+    private void newNode(int parent, M move) {
+        final int node = tree.size++;
+        tree.parents[node] = parent;
+        tree.childrenCounts[node] = NOT_EXPANDED;
+        tree.visits[node] = 0;
+        tree.moves[node] = move;
+        for (int player = 0; player < players; player++) {
+            tree.rewards[node * players + player] = 0;
+        }
+    }
+
+    /*
+     * The first unvisited child in the generated order, otherwise the child maximizing the UCT value of the player to play
+     */
+    private int select(int node) {
+        final int first = tree.firstChildren[node];
+        final int last = first + tree.childrenCounts[node];
+        final int player = tree.playersToPlay[node];
+        final double logVisits = Math.log(tree.visits[node]);
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < last; child++) {
+            if (tree.visits[child] == 0) {
+                return child;
+            }
+            final double value = tree.rewards[child * players + player] / tree.visits[child] + exploration * Math.sqrt(logVisits / tree.visits[child]);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    @SuppressWarnings("unchecked")
+    private G execute(G game, int node) {
+        final M move = (M) tree.moves[node];
+        path.add(move);
+        return move.execute(game);
+    }
+
+    private void backPropagate(int node, double[] scores) {
+        while (true) {
+            tree.visits[node]++;
+            for (int player = 0; player < players; player++) {
+                tree.rewards[node * players + player] += scores[player];
+            }
+            if (node == ROOT) {
+                return;
+            }
+            node = tree.parents[node];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private M mostVisitedMove() {
+        if (tree.childrenCounts[ROOT] <= 0) {
+            return null;
+        }
+        final int first = tree.firstChildren[ROOT];
+        int best = first;
+        for (int child = first + 1; child < first + tree.childrenCounts[ROOT]; child++) {
+            if (tree.visits[child] > tree.visits[best]) {
+                best = child;
+            }
+        }
+        return (M) tree.moves[best];
+    }
+}
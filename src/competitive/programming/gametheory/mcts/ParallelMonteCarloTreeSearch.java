@@ -0,0 +1,446 @@
+package competitive.programming.gametheory.mcts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import competitive.programming.gametheory.ICloneableGame;
+import competitive.programming.gametheory.IMove;
+import competitive.programming.gametheory.IMoveGenerator;
+import competitive.programming.timemanagement.TimeoutException;
+import competitive.programming.timemanagement.Timer;
+
+/**
+ * @author Manwe
+ *
+ *         Multi threaded version of MonteCarloTreeSearch. Each thread of the pool runs the iterations on its own copy of the game.
+ *
+ *         In TREE mode (default), all the threads descend the same tree. A thread selecting a node immediately counts a visit
+ *         and a virtual loss for the player selecting it, so that the other threads are spread over other moves until the result is back propagated.
+ *         Visits and rewards are updated with atomic operations, and a node is expanded by the first thread reaching it:
+ *         nothing locks the tree.
+ *
+ *         In ROOT mode, each thread builds its own independent tree with a part of the capacity,
+ *         and the visits of the root moves are summed at the end. There is no synchronization at all during the search,
+ *         but the threads may analyse the same positions.
+ *
+ *         Hint: the move generator and the rollout policy must be thread safe,
+ *         and the moves must not keep a reference to the game they have been generated for: they are executed on the copies of the other threads.
+ *
+ * @param <M>
+ *            The class that model a move in the game tree
+ * @param <G>
+ *            The class that model the Game state
+ */
+public class ParallelMonteCarloTreeSearch<M extends IMove<G>, G extends ICloneableGame<G>> {
+
+    /**
+     * The way the threads share the work
+     */
+    public enum ParallelMode {
+        /**
+         * All the threads search the same tree
+         */
+        TREE,
+        /**
+         * Each thread searches its own tree, the root statistics are merged at the end
+         */
+        ROOT
+    }
+
+    private static final int ROOT = 0;
+    private static final int NOT_EXPANDED = -1;
+    private static final int EXPANDING = -2;
+    private static final int FULL = -3;
+
+    private final Timer timer;
+    private final int players;
+    private final int capacity;
+    private final ForkJoinPool pool;
+
+    private ParallelMode parallelMode = ParallelMode.TREE;
+    private IRolloutPolicy<M, G> rolloutPolicy = (game, generatedMoves, random) -> generatedMoves.get(random.nextInt(generatedMoves.size()));
+    private long seed = System.nanoTime();
+    private double exploration = Math.sqrt(2);
+    private double virtualLoss = 1;
+    private int rolloutDepth = 50;
+
+    // shared tree, allocated at the first search in TREE mode
+    private int[] parents;
+    private int[] firstChildren;
+    private AtomicIntegerArray childrenCounts;
+    private int[] playersToPlay;
+    private AtomicIntegerArray visits;
+    private AtomicLongArray rewards;
+    private Object[] moves;
+    private final AtomicInteger size = new AtomicInteger();
+
+    // independent trees, allocated at the first search in ROOT mode
+    private List<MonteCarloTreeSearch<M, G>> trees;
+
+    private final AtomicLong iterations = new AtomicLong();
+
+    /**
+     * ParallelMonteCarloTreeSearch constructor
+     *
+     * @param timer
+     *            timer instance in order to stop the search when we are running out of time
+     * @param players
+     *            the number of players, which is the size of the arrays returned by the game evaluate method
+     * @param capacity
+     *            the maximum number of nodes of the tree, or of all the trees in ROOT mode
+     * @param pool
+     *            the pool running the search. All its threads are used
+     * @throws IllegalStateException
+     *             if the number of players or the capacity is not strictly positive
+     */
+    public ParallelMonteCarloTreeSearch(Timer timer, int players, int capacity, ForkJoinPool pool) {
+        if (players <= 0 || capacity <= 0) {
+            throw new IllegalStateException("Monte Carlo tree search needs at least one player and one node");
+        }
+        this.timer = timer;
+        this.players = players;
+        this.capacity = capacity;
+        this.pool = pool;
+    }
+
+    /**
+     * @param parallelMode
+     *            the way the threads share the work. Default is TREE
+     */
+    public void setParallelMode(ParallelMode parallelMode) {
+        this.parallelMode = parallelMode;
+    }
+
+    /**
+     * @param rolloutPolicy
+     *            the policy selecting the moves of the simulations, shared by all the threads. Default is a uniform random selection
+     */
+    public void setRolloutPolicy(IRolloutPolicy<M, G> rolloutPolicy) {
+        this.rolloutPolicy = rolloutPolicy;
+    }
+
+    /**
+     * @param seed
+     *            the seed of the random generators of the threads. Even with a fixed seed, the result depends on the threads timing
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param exploration
+     *            the UCT exploration constant: the higher, the more the less visited moves are explored. Default is sqrt(2)
+     */
+    public void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    /**
+     * @param virtualLoss
+     *            the reward removed from a node for the player selecting it until the result of the iteration is back propagated.
+     *            Like the exploration constant, it must be scaled to the evaluations. Default is 1
+     */
+    public void setVirtualLoss(double virtualLoss) {
+        this.virtualLoss = virtualLoss;
+    }
+
+    /**
+     * @param rolloutDepth
+     *            the maximum number of moves played by a simulation before evaluating the game. Default is 50
+     */
+    public void setRolloutDepth(int rolloutDepth) {
+        this.rolloutDepth = rolloutDepth;
+    }
+
+    /**
+     * Search the best move with all the threads of the pool until the timer times out
+     *
+     * @param game
+     *            The current state of the game. It is copied for each thread, and never modified
+     * @param generator
+     *            The move generator that will generate all the possible move of the playing player at each turn
+     * @return the most visited move of the root, or null if there is no move
+     */
+    public M best(G game, IMoveGenerator<M, G> generator) {
+        return best(game, generator, Long.MAX_VALUE);
+    }
+
+    /**
+     * Search the best move with all the threads of the pool until the timer times out or the number of iterations is reached
+     *
+     * @param game
+     *            The current state of the game. It is copied for each thread, and never modified
+     * @param generator
+     *            The move generator that will generate all the possible move of the playing player at each turn
+     * @param maxIterations
+     *            the maximum number of iterations of all the threads
+     * @return the most visited move of the root, or null if there is no move
+     */
+    public M best(G game, IMoveGenerator<M, G> generator, long maxIterations) {
+        iterations.set(0);
+        if (parallelMode == ParallelMode.ROOT) {
+            return rootParallelBest(game, generator, maxIterations);
+        }
+        return treeParallelBest(game, generator, maxIterations);
+    }
+
+    /**
+     * @return the number of iterations done by all the threads during the last search
+     */
+    public long getIterations() {
+        return iterations.get();
+    }
+
+    /**
+     * @return the number of nodes built during the last search
+     */
+    public int getNodes() {
+        if (parallelMode == ParallelMode.ROOT) {
+            int nodes = 0;
+            for (final MonteCarloTreeSearch<M, G> tree : trees) {
+                nodes += tree.getNodes();
+            }
+            return nodes;
+        }
+        return Math.min(size.get(), capacity);
+    }
+
+    private M rootParallelBest(G game, IMoveGenerator<M, G> generator, long maxIterations) {
+        final int threads = pool.getParallelism();
+        if (trees == null || trees.size() != threads) {
+            trees = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                trees.add(new MonteCarloTreeSearch<M, G>(timer, players, Math.max(capacity / threads, 1)));
+            }
+        }
+        final List<Callable<Long>> tasks = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final MonteCarloTreeSearch<M, G> tree = trees.get(i);
+            tree.setRolloutPolicy(rolloutPolicy);
+            tree.setRandom(new Random(seed + i));
+            tree.setExploration(exploration);
+            tree.setRolloutDepth(rolloutDepth);
+            final G copy = game.copy();
+            final long treeIterations = maxIterations / threads + (i < maxIterations % threads ? 1 : 0);
+            tasks.add(() -> {
+                tree.best(copy, generator, treeIterations);
+                return tree.getIterations();
+            });
+        }
+        for (final Future<Long> future : pool.invokeAll(tasks)) {
+            iterations.addAndGet(join(future));
+        }
+
+        final MonteCarloTreeSearch<M, G> first = trees.get(0);
+        int best = -1;
+        long bestVisits = -1;
+        for (int child = 0; child < first.rootChildren(); child++) {
+            long childVisits = 0;
+            for (final MonteCarloTreeSearch<M, G> tree : trees) {
+                childVisits += tree.rootChildVisits(child);
+            }
+            if (childVisits > bestVisits) {
+                bestVisits = childVisits;
+                best = child;
+            }
+        }
+        return best < 0 ? null : first.rootChildMove(best);
+    }
+
+    private M treeParallelBest(G game, IMoveGenerator<M, G> generator, long maxIterations) {
+        if (parents == null) {
+            parents = new int[capacity];
+            firstChildren = new int[capacity];
+            childrenCounts = new AtomicIntegerArray(capacity);
+            playersToPlay = new int[capacity];
+            visits = new AtomicIntegerArray(capacity);
+            rewards = new AtomicLongArray(capacity * players);
+            moves = new Object[capacity];
+        }
+        size.set(1);
+        initNode(ROOT, ROOT, null);
+
+        final List<Callable<Long>> tasks = new ArrayList<>();
+        for (int i = 0; i < pool.getParallelism(); i++) {
+            final G copy = game.copy();
+            final Random random = new Random(seed + i);
+            tasks.add(() -> {
+                final List<M> path = new ArrayList<>();
+                long done = 0;
+                try {
+                    while (iterations.getAndIncrement() < maxIterations) {
+                        timer.timeCheck();
+                        iterate(copy, generator, path, random);
+                        done++;
+                    }
+                } catch (final TimeoutException e) {
+                    // The game copy is restored at the end of each iteration
+                }
+                return done;
+            });
+        }
+        long done = 0;
+        for (final Future<Long> future : pool.invokeAll(tasks)) {
+            done += join(future);
+        }
+        iterations.set(done);
+        return mostVisitedMove();
+    }
+
+    private long join(Future<Long> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (final ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void iterate(G game, IMoveGenerator<M, G> generator, List<M> path, Random random) {
+        path.clear();
+        int node = ROOT;
+        int depth = 0;
+        while (true) {
+            int count = childrenCounts.get(node);
+            if (count == NOT_EXPANDED && childrenCounts.compareAndSet(node, NOT_EXPANDED, EXPANDING)) {
+                count = expand(node, game, generator);
+            }
+            if (count <= 0) {
+                break;// end of the game, expanded by another thread, or tree full
+            }
+            final int child = select(node, count);
+            // virtual loss: spread the other threads until the result of this iteration is known
+            visits.incrementAndGet(child);
+            addReward(child * players + playersToPlay[node], -virtualLoss);
+            @SuppressWarnings("unchecked")
+            final M move = (M) moves[child];
+            path.add(move);
+            game = move.execute(game);
+            depth++;
+            node = child;
+            if (visits.get(child) == 1) {
+                break;
+            }
+        }
+        final int treeMoves = path.size();
+        for (int i = 0; i < rolloutDepth; i++) {
+            final List<M> generatedMoves = generator.generateMoves(game);
+            if (generatedMoves.isEmpty()) {
+                break;
+            }
+            final M move = rolloutPolicy.select(game, generatedMoves, random);
+            path.add(move);
+            game = move.execute(game);
+        }
+        final double[] scores = game.evaluate(depth + path.size() - treeMoves);
+        for (int i = path.size() - 1; i >= 0; i--) {
+            game = path.get(i).cancel(game);
+        }
+        backPropagate(node, scores);
+    }
+
+    private int expand(int node, G game, IMoveGenerator<M, G> generator) {
+        final List<M> generatedMoves = generator.generateMoves(game);
+        final int count = generatedMoves.size();
+        final int first = size.getAndAdd(count);
+        if (first + count > capacity) {
+            childrenCounts.set(node, FULL);
+            return FULL;
+        }
+        for (int i = 0; i < count; i++) {
+            initNode(first + i, node, generatedMoves.get(i));
+        }
+        firstChildren[node] = first;
+        playersToPlay[node] = game.currentPlayer();
+        // publish the children to the other threads
+        childrenCounts.set(node, count);
+        return count;
+    }
+
+    private void initNode(int node, int parent, M move) {
+        parents[node] = parent;
+        moves[node] = move;
+        visits.set(node, 0);
+        for (int player = 0; player < players; player++) {
+            rewards.set(node * players + player, 0);
+        }
+        childrenCounts.set(node, NOT_EXPANDED);
+    }
+
+    /*
+     * The first unvisited child in the generated order, otherwise the child maximizing the UCT value of the player to play
+     */
+    private int select(int node, int count) {
+        final int first = firstChildren[node];
+        final int player = playersToPlay[node];
+        final double logVisits = Math.log(Math.max(visits.get(node), 1));
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < first + count; child++) {
+            final int childVisits = visits.get(child);
+            if (childVisits == 0) {
+                return child;
+            }
+            final double value = reward(child * players + player) / childVisits + exploration * Math.sqrt(logVisits / childVisits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    private void backPropagate(int node, double[] scores) {
+        while (node != ROOT) {
+            // the visit has already been counted when the node has been selected
+            for (int player = 0; player < players; player++) {
+                addReward(node * players + player, scores[player]);
+            }
+            final int parent = parents[node];
+            addReward(node * players + playersToPlay[parent], virtualLoss);
+            node = parent;
+        }
+        visits.incrementAndGet(ROOT);
+    }
+
+    private double reward(int index) {
+        return Double.longBitsToDouble(rewards.get(index));
+    }
+
+    private void addReward(int index, double value) {
+        while (true) {
+            final long current = rewards.get(index);
+            final long updated = Double.doubleToRawLongBits(Double.longBitsToDouble(current) + value);
+            if (rewards.compareAndSet(index, current, updated)) {
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private M mostVisitedMove() {
+        final int count = childrenCounts.get(ROOT);
+        if (count <= 0) {
+            return null;
+        }
+        final int first = firstChildren[ROOT];
+        int best = first;
+        for (int child = first + 1; child < first + count; child++) {
+            if (visits.get(child) > visits.get(best)) {
+                best = child;
+            }
+        }
+        return (M) moves[best];
+    }
+}
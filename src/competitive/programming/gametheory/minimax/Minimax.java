@@ -1,14 +1,35 @@
 package competitive.programming.gametheory.minimax;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import competitive.programming.common.Constants;
+import competitive.programming.gametheory.IBufferedEvaluationGame;
+import competitive.programming.gametheory.ICloneableGame;
 import competitive.programming.gametheory.IGame;
+import competitive.programming.gametheory.IHashableGame;
 import competitive.programming.gametheory.IMove;
 import competitive.programming.gametheory.IMoveGenerator;
+import competitive.programming.gametheory.IOrderableMove;
+import competitive.programming.gametheory.IPassableGame;
+import competitive.programming.gametheory.IPrimitiveGame;
+import competitive.programming.gametheory.IPrimitiveMoveGenerator;
+import competitive.programming.gametheory.IQuiescenceMoveGenerator;
+import competitive.programming.gametheory.ITerminalGame;
+import competitive.programming.gametheory.IZeroSumGame;
+import competitive.programming.gametheory.IncrementalEvaluation;
+import competitive.programming.gametheory.proofnumber.ProvenPositions;
 import competitive.programming.timemanagement.TimeoutException;
 import competitive.programming.timemanagement.Timer;
 
@@ -19,7 +40,17 @@ import competitive.programming.timemanagement.Timer;
  *         in a zero sum game considering the other player will be playing his best move at
  *         each iteration.
  *         It includes the alpha beta prunning optimisation in order to explore less branches.
- *         It also stores the current best "killer" move in order to explore the best branches first and enhance the pruning rate
+ *         It also stores the current best "killer" move in order to explore the best branches first and enhance the pruning rate.
+ *         If the moves implement IOrderableMove, killer moves per depth and the history heuristic can improve further the moves ordering.
+ *         The search can be bounded by a fixed depth, or by the timer using iterative deepening.
+ *         The leaves can be extended by a quiescence search if the move generator implements IQuiescenceMoveGenerator.
+ *         Selective search options (null move pruning, late move reductions) allow to search deeper at the risk of missing some moves.
+ *         The root moves can be searched in parallel if the game implements ICloneableGame,
+ *         or several threads can search the whole tree and share their analysis through a lock free transposition table (Lazy SMP).
+ *         If the game implements IHashableGame, a transposition table can be used to reuse the analysis of positions reached several times
+ *         The moves can also be encoded as int (IPrimitiveGame and IPrimitiveMoveGenerator) so that the search does not allocate anything per node.
+ *         The leaves are evaluated without allocating an array if the game implements IZeroSumGame or IBufferedEvaluationGame,
+ *         or incrementally if the moves implement IIncrementalMove and the incremental evaluation is enabled.
  * @see <a href="https://en.wikipedia.org/wiki/Minimax">Minimax</a> and <a href="https://en.wikipedia.org/wiki/Alpha%E2%80%93beta_pruning">Alpha-beta pruning</a>
  * 
  * @param <M>
@@ -29,10 +60,29 @@ import competitive.programming.timemanagement.Timer;
  */
 public class Minimax<M extends IMove<G>, G extends IGame> {
 
-    private static class AlphaBetaPrunningException extends Exception {
-        private static final long serialVersionUID = 4338636523317720681L;
+    /**
+     * The algorithm used to explore the game tree
+     */
+    public enum SearchMode {
+        /**
+         * Every move is searched with the alpha beta window
+         */
+        ALPHA_BETA,
+        /**
+         * Principal Variation Search, also known as NegaScout: only the first move is searched with the alpha beta window,
+         * the others are searched with a null window and searched again only if they are better.
+         * It is efficient when the moves are well ordered: with killer moves and history, the test trees visit about 13% less nodes at depth 7.
+         * Otherwise the researches can cost more than the null windows save: at depth 6 of the same trees, with a transposition table,
+         * it visits about 2% more nodes than ALPHA_BETA.
+         */
+        PRINCIPAL_VARIATION
     }
 
+    private static final long HASH_MOVE_SCORE = Long.MAX_VALUE;
+    private static final long PREVIOUS_BEST_SCORE = Long.MAX_VALUE - 1;
+    private static final long FIRST_KILLER_SCORE = Long.MAX_VALUE - 2;
+    private static final long SECOND_KILLER_SCORE = Long.MAX_VALUE - 3;
+
     private class MinMaxEvaluatedMove implements Comparable<MinMaxEvaluatedMove> {
         private final M move;
         private final double value;
@@ -84,9 +134,69 @@ public class Minimax<M extends IMove<G>, G extends IGame> {
     }
 
     private int depthmax;
+    private int reachedDepth;
     private MinMaxEvaluatedMove killer;
 
     private final Timer timer;
+    // set when the timer times out or the search is stopped: the search unwinds returning null up to the root
+    private boolean timeout;
+    // returned instead of a value when a stored bound proves the node is irrelevant to its parent
+    private final MinMaxEvaluatedMove pruned = new MinMaxEvaluatedMove(null, Double.NaN, null);
+
+    private TranspositionTable transpositionTable;
+    private SharedTranspositionTable sharedTable;
+    private final long[] sharedEntry = new long[SharedTranspositionTable.ENTRY_SIZE];
+    private int probedDepth;
+    private int probedBound;
+    private double probedValue;
+    private int probedMove;
+    private SearchMode searchMode = SearchMode.ALPHA_BETA;
+
+    private long[] history;
+    private int[][] killers = new int[0][];
+    private int[][] orders = new int[0][];
+    private long[][] orderScores = new long[0][];
+
+    private int quiescenceDepth;
+    private int nullMoveReduction;
+    private boolean afterNullMove;
+    private int lateMoveFullDepthMoves;
+    private int lateMoveReduction;
+
+    private ForkJoinPool pool;
+    // one worker per thread of the pool, reused by all the root moves it searches
+    private final ThreadLocal<Minimax<M, G>> rootWorkers = new ThreadLocal<>();
+    private AtomicLong sharedRootBound;
+    private boolean rootPlayer;
+    private int lazySmpThreads;
+    private ExecutorService helpersExecutor;
+    private AtomicBoolean stopSignal;
+    private int rootRotation;
+
+    // primitive moves search: moves buffers and triangular principal variation table, per ply
+    private int[][] primitiveMoves = new int[0][];
+    private int[][] primitiveVariations = new int[0][];
+    private int[] primitiveVariationLengths = new int[0];
+    private int[] previousVariation = new int[0];
+    private int previousVariationLength;
+    private boolean followVariation;
+
+    private double[] evaluation = new double[2];
+    private IncrementalEvaluation<G> incremental;
+    private ProvenPositions provenPositions;
+    private double provenWinValue;
+
+    private long visitedNodes;
+    private long quiescenceNodes;
+    private long nullMoveSearches;
+    private long nullMoveCutoffs;
+    private long lateMoveReductions;
+    private long lateMoveResearches;
+    private long principalVariationResearches;
+    private long provenPositionHits;
+    private double aspirationWindow;
+    private long aspirationFailLows;
+    private long aspirationFailHighs;
 
     /**
      * Minimax constructor
@@ -99,48 +209,335 @@ public class Minimax<M extends IMove<G>, G extends IGame> {
         this.timer = timer;
     }
 
-    private List<MinMaxEvaluatedMove> evaluateSubPossibilities(G game, IMoveGenerator<M, G> generator, int depth, double alpha, double beta, boolean player,
-            boolean alphaBetaAtThisLevel, MinMaxEvaluatedMove previousAnalysisBest) throws AlphaBetaPrunningException, TimeoutException {
-        final List<MinMaxEvaluatedMove> moves = new LinkedList<MinMaxEvaluatedMove>();
+    /**
+     * Use a transposition table during the next searches. The table is kept between the searches.
+     * It is only used if the game implements IHashableGame
+     *
+     * @param transpositionTable
+     *            the table to be used, or null to disable it
+     */
+    public void setTranspositionTable(TranspositionTable transpositionTable) {
+        this.transpositionTable = transpositionTable;
+    }
 
-        List<M> orderedMoves;
-        final List<M> generatedMoves = generator.generateMoves(game);
+    /**
+     * Select the algorithm used to explore the game tree. Default is ALPHA_BETA
+     *
+     * @param searchMode
+     *            the algorithm to use during the next searches
+     */
+    public void setSearchMode(SearchMode searchMode) {
+        this.searchMode = searchMode;
+    }
 
-        // killer first
-        if (previousAnalysisBest != null && generatedMoves.contains(previousAnalysisBest.getMove())) {
-            orderedMoves = new ArrayList<>();
-            final M killerMove = generatedMoves.remove(generatedMoves.indexOf(previousAnalysisBest.getMove()));
-            orderedMoves.add(killerMove);
-            orderedMoves.addAll(generatedMoves);
-        } else {
-            orderedMoves = generatedMoves;
+    /**
+     * @return the number of game tree nodes visited during the last search
+     */
+    public long getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * @return the number of moves that had to be searched again with the full window during the last principal variation search
+     */
+    public long getPrincipalVariationResearches() {
+        return principalVariationResearches;
+    }
+
+    /**
+     * Search the root with a narrow window centered on the value found by the previous search (previous turn or previous iteration).
+     * A narrow window prunes a lot more branches. If the value is out of the window, the window is doubled on that side and the root is searched again;
+     * if it fails again on the same side, that side is opened to infinity, so that a stale center costs at most two more searches.
+     *
+     * Hint: the window should be around the evaluation change you expect from one search to the next one.
+     * Look at the fail low and fail high counters to tune it: too many means it is too narrow.
+     *
+     * @param aspirationWindow
+     *            half of the initial width of the window, or 0 to always search with an infinite window (default)
+     */
+    public void setAspirationWindow(double aspirationWindow) {
+        this.aspirationWindow = aspirationWindow;
+    }
+
+    /**
+     * @return the number of times the root had to be searched again during the last search because its value was below the aspiration window
+     */
+    public long getAspirationFailLows() {
+        return aspirationFailLows;
+    }
+
+    /**
+     * @return the number of times the root had to be searched again during the last search because its value was above the aspiration window
+     */
+    public long getAspirationFailHighs() {
+        return aspirationFailHighs;
+    }
+
+    /**
+     * Enable killer moves and the history heuristic for the moves implementing IOrderableMove.
+     * The two last moves that produced a cutoff at the same depth (killer moves), then the moves that produced the most cutoffs in the whole tree (history),
+     * are explored first, after the transposition table and previous analysis best moves.
+     *
+     * @param moveKeys
+     *            the number of different keys your moves can return, or 0 to disable killer moves and history heuristic (default)
+     */
+    public void setMoveOrdering(int moveKeys) {
+        history = moveKeys > 0 ? new long[moveKeys] : null;
+    }
+
+    /**
+     * When the fixed depth is reached, keep on searching the noisy moves if the move generator implements IQuiescenceMoveGenerator.
+     * It avoids evaluating a position in the middle of an exchange (horizon effect) without searching deeper everywhere.
+     *
+     * @param quiescenceDepth
+     *            the maximum number of noisy moves searched after the fixed depth, or 0 to disable the quiescence search (default)
+     */
+    public void setQuiescenceDepth(int quiescenceDepth) {
+        this.quiescenceDepth = quiescenceDepth;
+    }
+
+    /**
+     * @return the number of positions visited by the quiescence search during the last search
+     */
+    public long getQuiescenceNodes() {
+        return quiescenceNodes;
+    }
+
+    /**
+     * Enable the null move pruning if the game implements IPassableGame: before searching the moves of a player, let him pass and search at a reduced depth.
+     * If it is still too good for the opponent, the position is pruned.
+     * It is not used at the root, nor twice in a row.
+     *
+     * Hint: if the evaluation swings between the odd and the even depths, use an odd reduction so that the null move search plays as many moves
+     * as the normal one (the pass is not a move): on the test trees, a reduction of 3 visits 26% less nodes, a reduction of 2 only 2% less.
+     *
+     * @param nullMoveReduction
+     *            the depth reduction of the search after the pass (2 or 3 is usual), or 0 to disable the null move pruning (default)
+     */
+    public void setNullMovePruning(int nullMoveReduction) {
+        this.nullMoveReduction = nullMoveReduction;
+    }
+
+    /**
+     * Enable the late move reductions: the moves that are late in the moves order are first searched at a reduced depth,
+     * and searched again at full depth only if they are better than the best move found so far.
+     *
+     * Hint: the reductions are only worth with a good moves ordering (transposition table, killer moves, history).
+     * If the evaluation swings between the odd and the even depths, use an even reduction: on the test trees, a reduction of 2 visits 48% less nodes
+     * and keeps the best move in 18 positions out of 20, a reduction of 1 visits 41% less nodes and keeps it in 14 positions only.
+     *
+     * @param fullDepthMoves
+     *            the number of moves searched at full depth before reducing the depth of the others
+     * @param reduction
+     *            the depth reduction of the late moves, or 0 to disable the late move reductions (default)
+     */
+    public void setLateMoveReductions(int fullDepthMoves, int reduction) {
+        this.lateMoveFullDepthMoves = fullDepthMoves;
+        this.lateMoveReduction = reduction;
+    }
+
+    /**
+     * @return the number of null move searches during the last search
+     */
+    public long getNullMoveSearches() {
+        return nullMoveSearches;
+    }
+
+    /**
+     * @return the number of positions pruned by a null move search during the last search
+     */
+    public long getNullMoveCutoffs() {
+        return nullMoveCutoffs;
+    }
+
+    /**
+     * @return the number of moves searched at a reduced depth during the last search
+     */
+    public long getLateMoveReductions() {
+        return lateMoveReductions;
+    }
+
+    /**
+     * @return the number of reduced moves that had to be searched again at full depth during the last search
+     */
+    public long getLateMoveResearches() {
+        return lateMoveResearches;
+    }
+
+    /**
+     * Split the search of the root moves between the threads of a pool if the game implements ICloneableGame.
+     * The first move is searched alone to get a bound, then the others are searched in parallel, each thread on its own copy of the game.
+     * The best value found by a thread is shared with the others so that they prune more.
+     * The threads do not use any transposition table, not even the one shared by Lazy SMP: the root bound narrows their windows, so that their values
+     * would be unsound entries for the other searches. The current thread uses it for the first move, the timer is checked by all of them.
+     * Each thread of the pool keeps its own search state from a root move to the next one.
+     *
+     * Hint: the move generator must be thread safe, and must generate the moves in the same order for copies of the same game state.
+     * The split costs a copy of the game per root move and a hand over to the pool: on a single core, a depth 6 search of the test trees
+     * takes about 1.7 times longer than the sequential search, for the same number of nodes. Only use it with several cores.
+     *
+     * @param pool
+     *            the pool running the search of the root moves, or null to search in the current thread only (default). It is not shut down by the Minimax
+     */
+    public void setParallelism(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Search with several threads using Lazy SMP if the game implements ICloneableGame and IHashableGame.
+     * The current thread searches as usual, while helper threads run their own iterative deepening on copies of the game,
+     * starting at different depths and exploring the root moves in different orders.
+     * The threads only communicate through the shared transposition table: the helpers fill it with analysis the current thread reuses.
+     * The helpers are stopped as soon as the current thread has found its move.
+     * The shared table replaces the transposition table given to setTranspositionTable.
+     *
+     * Hint: the move generator must be thread safe, and must generate the moves in the same order for copies of the same game state.
+     * The move found depends on the threads timing, it may change from a run to another.
+     *
+     * @param threads
+     *            the total number of threads searching, including the current one. 1 disables the helper threads (default)
+     * @param table
+     *            the table shared by all the threads, or null to disable Lazy SMP and stop the helper threads
+     */
+    public void setLazySmp(int threads, SharedTranspositionTable table) {
+        if (threads < 1) {
+            throw new IllegalStateException("Lazy SMP needs at least one thread");
         }
+        sharedTable = table;
+        final int helpedThreads = table == null ? 1 : threads;
+        if (helpersExecutor != null && lazySmpThreads != helpedThreads) {
+            helpersExecutor.shutdown();
+            helpersExecutor = null;
+        }
+        lazySmpThreads = helpedThreads;
+        if (helpersExecutor == null && lazySmpThreads > 1) {
+            helpersExecutor = Executors.newFixedThreadPool(lazySmpThreads - 1, runnable -> {
+                final Thread thread = new Thread(runnable, "Minimax helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
 
-        for (final M move : orderedMoves) {
-            timer.timeCheck();
+    /**
+     * Stop the helper threads of Lazy SMP and disable it, until setLazySmp is called again. Call it once the Minimax is not used anymore.
+     */
+    public void shutdownLazySmp() {
+        setLazySmp(1, null);
+    }
+
+    boolean hasLazySmpHelpers() {
+        return helpersExecutor != null;
+    }
+
+    /**
+     * Evaluate the leaves incrementally: the moves implementing IIncrementalMove update the evaluation instead of evaluating each leaf.
+     * The end of the game positions are still fully evaluated. The parallel and primitive searches use the full evaluation.
+     *
+     * @param enabled
+     *            true to use the incremental evaluation, false to evaluate each leaf (default)
+     * @param check
+     *            true to compare each incremental evaluation with the full one and throw an IllegalStateException if they are different (debug)
+     */
+    public void setIncrementalEvaluation(boolean enabled, boolean check) {
+        incremental = enabled ? new IncrementalEvaluation<G>(check) : null;
+    }
+
+    /**
+     * Stop the search at the positions proven by a ProofNumberSearch: their value is the value of a win, of a loss or 0 for a draw.
+     * It is only used if the game implements IHashableGame, by the search with move objects.
+     *
+     * @param provenPositions
+     *            the table filled by the solver, or null to disable it (default)
+     * @param winValue
+     *            the value of a position won by player 0, greater than any evaluation. A position won by player 1 is worth -winValue
+     */
+    public void setProvenPositions(ProvenPositions provenPositions, double winValue) {
+        this.provenPositions = provenPositions;
+        this.provenWinValue = winValue;
+    }
+
+    /**
+     * @return the number of positions whose value came from the proven positions during the last search
+     */
+    public long getProvenPositionHits() {
+        return provenPositionHits;
+    }
+
+    /*
+     * Convention: as all the search methods, returns null if the node is irrelevant to its parent (alpha beta pruning), or if the search is timed out
+     */
+    private List<MinMaxEvaluatedMove> evaluateSubPossibilities(G game, IMoveGenerator<M, G> generator, List<M> generatedMoves, int depth, double alpha,
+            double beta, boolean player, boolean alphaBetaAtThisLevel, MinMaxEvaluatedMove previousAnalysisBest, int hashMove, long hash) {
+        final List<MinMaxEvaluatedMove> moves = new LinkedList<MinMaxEvaluatedMove>();
+
+        final int ply = depthmax - depth;
+        final int[] order = orderMoves(generatedMoves, ply, hashMove, previousAnalysisBest);
+
+        int searched = 0;
+        for (int i = 0; i < generatedMoves.size(); i++) {
+            final int index = order[i];
+            if (sharedRootBound != null) {
+                // another thread may have improved the root bound
+                final double rootBound = Double.longBitsToDouble(sharedRootBound.get());
+                if (rootPlayer) {
+                    alpha = Math.max(alpha, rootBound);
+                } else {
+                    beta = Math.min(beta, rootBound);
+                }
+                if (beta <= alpha) {
+                    return null;
+                }
+            }
+            final M move = generatedMoves.get(index);
+            if (timedOut()) {
+                return null;
+            }
+            if (incremental != null) {
+                incremental.execute(move, game);
+            }
             final G movedGame = move.execute(game);
-            MinMaxEvaluatedMove child = null;
-            try {
-                final MinMaxEvaluatedMove bestSubChild = minimax(movedGame, generator, depth - 1, alpha, beta, !player, previousAnalysisBest == null ? null
-                        : previousAnalysisBest.getBestSubMove());
-                child = new MinMaxEvaluatedMove(move, bestSubChild.getValue(), bestSubChild);
-            } catch (final AlphaBetaPrunningException e) {
+            final MinMaxEvaluatedMove previousAnalysisSubBest = previousAnalysisBest == null ? null : previousAnalysisBest.getBestSubMove();
+            final boolean bounded = player ? alpha > Double.NEGATIVE_INFINITY : beta < Double.POSITIVE_INFINITY;
+            final boolean scout = searchMode == SearchMode.PRINCIPAL_VARIATION && searched > 0 && depth > 1 && bounded;
+            final boolean reduce = lateMoveReduction > 0 && searched >= lateMoveFullDepthMoves && depth - 1 - lateMoveReduction > 0 && bounded;
+            searched++;
+            MinMaxEvaluatedMove bestSubChild = null;
+            if (!reduce || lateMoveReductionSearch(movedGame, generator, depth, alpha, beta, player, previousAnalysisSubBest)) {
+                if (scout) {
+                    bestSubChild = principalVariationSearch(movedGame, generator, depth, alpha, beta, player, previousAnalysisSubBest);
+                } else {
+                    bestSubChild = minimax(movedGame, generator, depth - 1, alpha, beta, !player, previousAnalysisSubBest);
+                }
+            }
+            if (incremental != null) {
+                incremental.cancel();
+            }
+            if (timeout) {
                 move.cancel(game);
+                return null;
             }
-            if (child != null) {
+            if (bestSubChild == null) {
+                move.cancel(game);
+            } else {
+                final MinMaxEvaluatedMove child = new MinMaxEvaluatedMove(move, bestSubChild.getValue(), bestSubChild);
                 // Alpha beta prunning
                 if (alphaBetaAtThisLevel) {
                     if (player) {
                         alpha = Math.max(alpha, child.getValue());
                         if (beta <= alpha) {
                             move.cancel(game);
-                            throw new AlphaBetaPrunningException();
+                            storeInTranspositionTable(game, hash, depth, TranspositionTable.LOWER_BOUND, child.getValue(), index);
+                            updateMoveOrdering(move, ply, depth);
+                            return null;
                         }
                     } else {
                         beta = Math.min(beta, child.getValue());
                         if (beta <= alpha) {
                             move.cancel(game);
-                            throw new AlphaBetaPrunningException();
+                            storeInTranspositionTable(game, hash, depth, TranspositionTable.UPPER_BOUND, child.getValue(), index);
+                            updateMoveOrdering(move, ply, depth);
+                            return null;
                         }
                     }
                 }
@@ -151,20 +548,685 @@ public class Minimax<M extends IMove<G>, G extends IGame> {
         return moves;
     }
 
+    /*
+     * Sort the indexes of the generated moves, the most promising first:
+     * the best move stored in the transposition table, the best move of the previous analysis at this ply,
+     * the two killer moves of this ply, then the other moves by decreasing history score.
+     * The buffers are kept from a search to another so that ordering the moves does not allocate anything.
+     */
+    private int[] orderMoves(List<M> generatedMoves, int ply, int hashMove, MinMaxEvaluatedMove previousAnalysisBest) {
+        final int size = generatedMoves.size();
+        ensureOrderBuffers(ply, size);
+        final int[] order = orders[ply];
+        final long[] scores = orderScores[ply];
+        final M previousBest = previousAnalysisBest == null ? null : previousAnalysisBest.getMove();
+        final int previousBestKey = previousBest instanceof IOrderableMove ? ((IOrderableMove<?>) previousBest).key() : -1;
+        final int[] plyKillers = killers[ply];
+
+        for (int i = 0; i < size; i++) {
+            final M move = generatedMoves.get(i);
+            long score = 0;
+            if (history != null && move instanceof IOrderableMove) {
+                final int key = ((IOrderableMove<?>) move).key();
+                if (i == hashMove) {
+                    score = HASH_MOVE_SCORE;
+                } else if (key == previousBestKey) {
+                    score = PREVIOUS_BEST_SCORE;
+                } else if (key == plyKillers[0]) {
+                    score = FIRST_KILLER_SCORE;
+                } else if (key == plyKillers[1]) {
+                    score = SECOND_KILLER_SCORE;
+                } else {
+                    score = history[key];
+                }
+            } else if (i == hashMove) {
+                score = HASH_MOVE_SCORE;
+            } else if (previousBest != null && move.equals(previousBest)) {
+                score = PREVIOUS_BEST_SCORE;
+            }
+            // insertion sort: there are few moves, and the moves of same score stay in the generated order
+            int j = i;
+            while (j > 0 && scores[j - 1] < score) {
+                scores[j] = scores[j - 1];
+                order[j] = order[j - 1];
+                j--;
+            }
+            scores[j] = score;
+            order[j] = i;
+        }
+        if (ply == 0 && rootRotation > 0) {
+            // Lazy SMP helpers explore the root moves in different orders
+            final int shift = rootRotation % size;
+            for (int i = 0; i < size; i++) {
+                scores[i] = order[i];
+            }
+            for (int i = 0; i < size; i++) {
+                order[i] = (int) scores[(i + shift) % size];
+            }
+        }
+        return order;
+    }
+
+    private void ensureOrderBuffers(int ply, int size) {
+        if (ply >= orders.length) {
+            orders = Arrays.copyOf(orders, ply * 2 + 1);
+            orderScores = Arrays.copyOf(orderScores, ply * 2 + 1);
+            killers = Arrays.copyOf(killers, ply * 2 + 1);
+        }
+        if (orders[ply] == null || orders[ply].length < size) {
+            orders[ply] = new int[size * 2];
+            orderScores[ply] = new long[size * 2];
+        }
+        if (killers[ply] == null) {
+            killers[ply] = new int[] { -1, -1 };
+        }
+    }
+
+    private void updateMoveOrdering(M move, int ply, int depth) {
+        if (history != null && move instanceof IOrderableMove) {
+            updateHistory(((IOrderableMove<?>) move).key(), ply, depth);
+        }
+    }
+
+    private void updateHistory(int key, int ply, int depth) {
+        final int[] plyKillers = killers[ply];
+        if (plyKillers[0] != key) {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = key;
+        }
+        history[key] += depth * depth;
+    }
+
+    /*
+     * Search a move that is late in the moves order at a reduced depth with a null window.
+     * Returns true if the move is better and must be searched at full depth, false if it is pruned.
+     */
+    private boolean lateMoveReductionSearch(G movedGame, IMoveGenerator<M, G> generator, int depth, double alpha, double beta, boolean player,
+            MinMaxEvaluatedMove previousAnalysisSubBest) {
+        lateMoveReductions++;
+        final double scoutAlpha = player ? alpha : Math.nextDown(beta);
+        final double scoutBeta = player ? Math.nextUp(alpha) : beta;
+        final MinMaxEvaluatedMove reduced = minimax(movedGame, generator, depth - 1 - lateMoveReduction, scoutAlpha, scoutBeta, !player,
+                previousAnalysisSubBest);
+        if (reduced == null || (player ? reduced.getValue() <= alpha : reduced.getValue() >= beta)) {
+            return false;
+        }
+        lateMoveResearches++;
+        return true;
+    }
+
+    /*
+     * Let the player pass and search the position at a reduced depth with a null window.
+     * If the player is still better than the bound it received, its moves would be even better: the position is pruned.
+     * Returns true if the position is pruned.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean nullMoveSearch(G game, IMoveGenerator<M, G> generator, int depth, double alpha, double beta, boolean player) {
+        final IPassableGame<G> passableGame = (IPassableGame<G>) game;
+        if (!passableGame.canPass()) {
+            return false;
+        }
+        nullMoveSearches++;
+        if (incremental != null) {
+            incremental.pass();
+        }
+        final G passedGame = passableGame.pass();
+        afterNullMove = true;
+        final MinMaxEvaluatedMove nullMove = minimax(passedGame, generator, depth - 1 - nullMoveReduction, player ? Math.nextDown(beta) : alpha,
+                player ? beta : Math.nextUp(alpha), !player, null);
+        passableGame.cancelPass();
+        if (incremental != null) {
+            incremental.cancel();
+        }
+        if (nullMove != null && (player ? nullMove.getValue() >= beta : nullMove.getValue() <= alpha)) {
+            nullMoveCutoffs++;
+            return true;
+        }
+        return false;
+    }
+
+    /*
+     * Search a move that is expected to be worse than the best one with a null window: we only want to know if it is better or not.
+     * If it is, we search it again with the full window to know its exact value.
+     */
+    private MinMaxEvaluatedMove principalVariationSearch(G movedGame, IMoveGenerator<M, G> generator, int depth, double alpha, double beta,
+            boolean player, MinMaxEvaluatedMove previousAnalysisSubBest) {
+        final double scoutAlpha = player ? alpha : Math.nextDown(beta);
+        final double scoutBeta = player ? Math.nextUp(alpha) : beta;
+        final MinMaxEvaluatedMove scout = minimax(movedGame, generator, depth - 1, scoutAlpha, scoutBeta, !player, previousAnalysisSubBest);
+        if (scout == null) {
+            return null;
+        }
+        final boolean better = player ? scout.getValue() > alpha && scoutBeta < beta : scout.getValue() < beta && scoutAlpha > alpha;
+        if (better) {
+            principalVariationResearches++;
+            return minimax(movedGame, generator, depth - 1, alpha, beta, !player, previousAnalysisSubBest);
+        }
+        return scout;
+    }
+
+    /*
+     * Search only the noisy moves until the position is quiet.
+     * The player to play can always keep the static evaluation instead of playing a noisy move (stand pat).
+     * Returns NaN if the position is irrelevant to its parent, or if the search is timed out.
+     */
+    private double quiescence(G game, IQuiescenceMoveGenerator<M, G> generator, int quiescenceDepth, double alpha, double beta, boolean player) {
+        quiescenceNodes++;
+        final double standPat = evaluateLeaf(game, 0);
+        if (quiescenceDepth == 0) {
+            return standPat;
+        }
+        if (player ? standPat >= beta : standPat <= alpha) {
+            return Double.NaN;
+        }
+        double best = standPat;
+        if (player) {
+            alpha = Math.max(alpha, standPat);
+        } else {
+            beta = Math.min(beta, standPat);
+        }
+        final List<M> noisyMoves = generator.generateNoisyMoves(game);
+        for (int i = 0; i < noisyMoves.size(); i++) {
+            final M move = noisyMoves.get(i);
+            if (timedOut()) {
+                return Double.NaN;
+            }
+            if (incremental != null) {
+                incremental.execute(move, game);
+            }
+            final G movedGame = move.execute(game);
+            final double value = quiescence(movedGame, generator, quiescenceDepth - 1, alpha, beta, !player);
+            move.cancel(game);
+            if (incremental != null) {
+                incremental.cancel();
+            }
+            if (Double.isNaN(value)) {
+                if (timeout) {
+                    return Double.NaN;
+                }
+                continue;
+            }
+            if (player && value > best) {
+                best = value;
+                alpha = Math.max(alpha, value);
+            } else if (!player && value < best) {
+                best = value;
+                beta = Math.min(beta, value);
+            }
+            if (beta <= alpha) {
+                return Double.NaN;
+            }
+        }
+        return best;
+    }
+
+    /*
+     * Search the first root move in the current thread in order to get a bound, then split the other root moves between the threads of the pool.
+     * Each thread works on its own copy of the game, with its own search state, and shares with the others the best value found at the root.
+     */
+    @SuppressWarnings("unchecked")
+    private MinMaxEvaluatedMove parallelRoot(G game, IMoveGenerator<M, G> generator, int depth, double alpha, double beta, boolean player,
+            MinMaxEvaluatedMove previousAnalysisBest) {
+        visitedNodes++;
+        final List<M> generatedMoves = generator.generateMoves(game);
+        if (generatedMoves.isEmpty()) {
+            return new MinMaxEvaluatedMove(null, evaluateGame(game, depth), null);// Real end game status
+        }
+        final int[] order = Arrays.copyOf(orderMoves(generatedMoves, 0, -1, previousAnalysisBest), generatedMoves.size());
+        final MinMaxEvaluatedMove previousAnalysisSubBest = previousAnalysisBest == null ? null : previousAnalysisBest.getBestSubMove();
+        final List<MinMaxEvaluatedMove> moves = new ArrayList<MinMaxEvaluatedMove>();
+
+        final M firstMove = generatedMoves.get(order[0]);
+        if (timedOut()) {
+            return null;
+        }
+        if (incremental != null) {
+            incremental.execute(firstMove, game);
+        }
+        final G movedGame = firstMove.execute(game);
+        final MinMaxEvaluatedMove firstSubChild = minimax(movedGame, generator, depth - 1, alpha, beta, !player, previousAnalysisSubBest);
+        firstMove.cancel(game);
+        if (incremental != null) {
+            incremental.cancel();
+        }
+        if (timeout) {
+            return null;
+        }
+        // if null, the first move is not better than the bound we received
+        if (firstSubChild != null) {
+            moves.add(new MinMaxEvaluatedMove(firstMove, firstSubChild.getValue(), firstSubChild));
+            if (player) {
+                alpha = Math.max(alpha, firstSubChild.getValue());
+            } else {
+                beta = Math.min(beta, firstSubChild.getValue());
+            }
+        }
+        if (beta <= alpha) {
+            return null;
+        }
+
+        final AtomicLong rootBound = new AtomicLong(Double.doubleToLongBits(player ? alpha : beta));
+        final List<Callable<MinMaxEvaluatedMove>> tasks = new ArrayList<>();
+        for (int i = 1; i < order.length; i++) {
+            final int index = order[i];
+            final double taskBeta = beta;
+            final double taskAlpha = alpha;
+            tasks.add(() -> {
+                final Minimax<M, G> worker = rootWorker(depth, rootBound, player);
+                try {
+                    final G copy = ((ICloneableGame<G>) game).copy();
+                    // moves are generated again in case they keep a reference to the game they have been executed on
+                    final M move = generator.generateMoves(copy).get(index);
+                    final G movedCopy = move.execute(copy);
+                    final MinMaxEvaluatedMove bestSubChild = worker.minimax(movedCopy, generator, depth - 1, taskAlpha, taskBeta, !player,
+                            previousAnalysisSubBest);
+                    if (worker.timeout) {
+                        throw new TimeoutException();
+                    }
+                    if (bestSubChild == null) {
+                        return null;
+                    }
+                    worker.improveRootBound(bestSubChild.getValue());
+                    return new MinMaxEvaluatedMove(generatedMoves.get(index), bestSubChild.getValue(), bestSubChild);
+                } finally {
+                    synchronized (this) {
+                        visitedNodes += worker.visitedNodes;
+                        quiescenceNodes += worker.quiescenceNodes;
+                    }
+                }
+            });
+        }
+        for (final Future<MinMaxEvaluatedMove> future : pool.invokeAll(tasks)) {
+            try {
+                final MinMaxEvaluatedMove child = joinTask(future);
+                if (child != null) {
+                    moves.add(child);
+                }
+            } catch (final TimeoutException e) {
+                timeout = true;
+            }
+        }
+        if (timeout) {
+            return null;
+        }
+
+        if (moves.isEmpty()) {
+            // All the moves have been pruned: none of them is better than the bound we received
+            return new MinMaxEvaluatedMove(null, player ? alpha : beta, null);
+        }
+        Collections.sort(moves);
+        if (Constants.TRACES) {
+            System.err.println("Moves:" + moves);
+        }
+        final MinMaxEvaluatedMove best = moves.get(player ? (moves.size() - 1) : 0);
+        if (player ? best.getValue() >= beta : best.getValue() <= alpha) {
+            return null;
+        }
+        return best;
+    }
+
+    private <T> T joinTask(Future<T> future) throws TimeoutException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException();
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw (TimeoutException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private Minimax<M, G> worker(int depthmax, AtomicLong rootBound, boolean rootPlayer) {
+        return configureWorker(new Minimax<M, G>(timer), depthmax, rootBound, rootPlayer);
+    }
+
+    /*
+     * The worker of the current thread of the pool, keeping its move ordering buffers from a root move to the next one
+     */
+    private Minimax<M, G> rootWorker(int depthmax, AtomicLong rootBound, boolean rootPlayer) {
+        Minimax<M, G> worker = rootWorkers.get();
+        if (worker == null) {
+            worker = new Minimax<M, G>(timer);
+            rootWorkers.set(worker);
+        }
+        worker.timeout = false;
+        worker.afterNullMove = false;
+        worker.visitedNodes = 0;
+        worker.quiescenceNodes = 0;
+        return configureWorker(worker, depthmax, rootBound, rootPlayer);
+    }
+
+    private Minimax<M, G> configureWorker(Minimax<M, G> worker, int depthmax, AtomicLong rootBound, boolean rootPlayer) {
+        worker.depthmax = depthmax;
+        worker.sharedRootBound = rootBound;
+        worker.rootPlayer = rootPlayer;
+        worker.searchMode = searchMode;
+        // The root split workers narrow their windows with the shared root bound, their values would be unsound entries for the other searches
+        worker.sharedTable = rootBound == null ? sharedTable : null;
+        worker.quiescenceDepth = quiescenceDepth;
+        worker.nullMoveReduction = nullMoveReduction;
+        worker.lateMoveFullDepthMoves = lateMoveFullDepthMoves;
+        worker.lateMoveReduction = lateMoveReduction;
+        if (history == null) {
+            worker.history = null;
+        } else if (worker.history == null || worker.history.length != history.length) {
+            worker.history = Arrays.copyOf(history, history.length);
+        } else {
+            System.arraycopy(history, 0, worker.history, 0, history.length);
+        }
+        return worker;
+    }
+
+    private void improveRootBound(double value) {
+        while (true) {
+            final long current = sharedRootBound.get();
+            final double bound = Double.longBitsToDouble(current);
+            if ((rootPlayer ? value <= bound : value >= bound) || sharedRootBound.compareAndSet(current, Double.doubleToLongBits(value))) {
+                return;
+            }
+        }
+    }
+
     private MinMaxEvaluatedMove minimax(G game, IMoveGenerator<M, G> generator, int depth, double alpha, double beta, boolean player,
-            MinMaxEvaluatedMove previousAnalysisBest) throws AlphaBetaPrunningException, TimeoutException {
+            MinMaxEvaluatedMove previousAnalysisBest) {
+        visitedNodes++;
+        if (stopSignal != null && stopSignal.get()) {
+            timeout = true;
+            return null;
+        }
+        if (provenPositions != null && depth < depthmax && game instanceof IHashableGame) {
+            final int winner = provenPositions.probe(((IHashableGame) game).hash());
+            if (winner != ITerminalGame.NOT_OVER) {
+                provenPositionHits++;
+                return new MinMaxEvaluatedMove(null, winner == ITerminalGame.DRAW ? 0 : winner == 0 ? provenWinValue : -provenWinValue, null);
+            }
+        }
+        final boolean nullMoveAllowed = !afterNullMove;
+        afterNullMove = false;
         if (depth == 0) {
-            return new MinMaxEvaluatedMove(null, scoreFromEvaluatedGame(game.evaluate(depth), game), null);// Evaluated game status
+            if (quiescenceDepth > 0 && generator instanceof IQuiescenceMoveGenerator) {
+                final double value = quiescence(game, (IQuiescenceMoveGenerator<M, G>) generator, quiescenceDepth, alpha, beta, player);
+                return Double.isNaN(value) ? null : new MinMaxEvaluatedMove(null, value, null);
+            }
+            return new MinMaxEvaluatedMove(null, evaluateLeaf(game, depth), null);// Evaluated game status
+        }
+        long hash = 0;
+        int hashMove = -1;
+        final boolean hashed = (transpositionTable != null || sharedTable != null) && game instanceof IHashableGame;
+        if (hashed) {
+            hash = ((IHashableGame) game).hash();
+            if (probeTranspositionTable(hash)) {
+                hashMove = probedMove;
+                // At the root we need the move itself, not only its value
+                if (depth < depthmax && probedDepth >= depth) {
+                    final MinMaxEvaluatedMove stored = transpositionTableCutoff(alpha, beta, player);
+                    if (stored == pruned) {
+                        return null;
+                    }
+                    if (stored != null) {
+                        return stored;
+                    }
+                }
+            }
+        }
+        if (nullMoveReduction > 0 && nullMoveAllowed && depth < depthmax && depth > nullMoveReduction && game instanceof IPassableGame
+                && (player ? beta < Double.POSITIVE_INFINITY : alpha > Double.NEGATIVE_INFINITY)) {
+            if (nullMoveSearch(game, generator, depth, alpha, beta, player) || timeout) {
+                return null;
+            }
+        }
+        final List<M> generatedMoves = generator.generateMoves(game);
+        if (generatedMoves.isEmpty()) {
+            return new MinMaxEvaluatedMove(null, evaluateGame(game, depth), null);// Real end game status
+        }
+        final List<MinMaxEvaluatedMove> moves = evaluateSubPossibilities(game, generator, generatedMoves, depth, alpha, beta, player, true,
+                previousAnalysisBest, hashMove, hash);
+        if (moves == null) {
+            return null;
         }
-        final List<MinMaxEvaluatedMove> moves = evaluateSubPossibilities(game, generator, depth, alpha, beta, player, true, previousAnalysisBest);
         if (moves.size() > 0) {
             Collections.sort(moves);
             if (depth == depthmax && Constants.TRACES) {
                 System.err.println("Moves:" + moves);
             }
-            return moves.get(player ? (moves.size() - 1) : 0);
-        } else {
-            return new MinMaxEvaluatedMove(null, scoreFromEvaluatedGame(game.evaluate(depth), game), null);// Real end game status
+            final MinMaxEvaluatedMove best = moves.get(player ? (moves.size() - 1) : 0);
+            if (hashed) {
+                final int bestIndex = generatedMoves.indexOf(best.getMove());
+                // Pruned moves are only known to be worse than the bound we received
+                if (player && best.getValue() <= alpha) {
+                    storeInTranspositionTable(game, hash, depth, TranspositionTable.UPPER_BOUND, alpha, bestIndex);
+                } else if (!player && best.getValue() >= beta) {
+                    storeInTranspositionTable(game, hash, depth, TranspositionTable.LOWER_BOUND, beta, bestIndex);
+                } else {
+                    storeInTranspositionTable(game, hash, depth, TranspositionTable.EXACT, best.getValue(), bestIndex);
+                }
+            }
+            return best;
+        }
+        // All the moves have been pruned: none of them is better than the bound we received
+        final double bound = player ? alpha : beta;
+        storeInTranspositionTable(game, hash, depth, player ? TranspositionTable.UPPER_BOUND : TranspositionTable.LOWER_BOUND, bound, -1);
+        return new MinMaxEvaluatedMove(null, bound, null);
+    }
+
+    /*
+     * Same search as minimax for the moves encoded as int, without any allocation. It returns the value of the position (fail soft):
+     * when a cutoff occurs the value is only a bound, but it is irrelevant to the parent anyway. Returns NaN if the search is timed out.
+     * The principal variation is copied in primitiveVariations[ply], from index ply.
+     */
+    private <P extends IPrimitiveGame> double primitiveMinimax(P game, IPrimitiveMoveGenerator<P> generator, int depth, double alpha, double beta,
+            boolean player) {
+        visitedNodes++;
+        final int ply = depthmax - depth;
+        primitiveVariationLengths[ply] = ply;
+        if (depth == 0) {
+            return evaluateGame(game, depth);// Evaluated game status
+        }
+        long hash = 0;
+        int hashMove = -1;
+        final boolean hashed = (transpositionTable != null || sharedTable != null) && game instanceof IHashableGame;
+        if (hashed) {
+            hash = ((IHashableGame) game).hash();
+            if (probeTranspositionTable(hash)) {
+                hashMove = probedMove;
+                // At the root we need the move itself, not only its value
+                if (depth < depthmax && probedDepth >= depth) {
+                    if (probedBound == TranspositionTable.EXACT || (probedBound == TranspositionTable.LOWER_BOUND && probedValue >= beta)
+                            || (probedBound == TranspositionTable.UPPER_BOUND && probedValue <= alpha)) {
+                        countTranspositionTableCutoff();
+                        return probedValue;
+                    }
+                }
+            }
+        }
+        final int[] moves = primitiveMoves[ply];
+        final int size = generator.generateMoves(game, moves);
+        if (size == 0) {
+            return evaluateGame(game, depth);// Real end game status
+        }
+        final boolean onVariation = followVariation && ply < previousVariationLength;
+        final int[] order = orderPrimitiveMoves(moves, size, ply, hashMove, onVariation ? previousVariation[ply] : IPrimitiveMoveGenerator.NO_MOVE);
+        final double originalAlpha = alpha;
+        final double originalBeta = beta;
+        double best = player ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        int bestIndex = -1;
+        for (int i = 0; i < size; i++) {
+            final int index = order[i];
+            final int move = moves[index];
+            if (timedOut()) {
+                return Double.NaN;
+            }
+            followVariation = onVariation && move == previousVariation[ply];
+            game.execute(move);
+            final boolean bounded = player ? alpha > Double.NEGATIVE_INFINITY : beta < Double.POSITIVE_INFINITY;
+            double value;
+            if (searchMode == SearchMode.PRINCIPAL_VARIATION && i > 0 && depth > 1 && bounded) {
+                final double scoutAlpha = player ? alpha : Math.nextDown(beta);
+                final double scoutBeta = player ? Math.nextUp(alpha) : beta;
+                value = primitiveMinimax(game, generator, depth - 1, scoutAlpha, scoutBeta, !player);
+                if (player ? value > alpha && scoutBeta < beta : value < beta && scoutAlpha > alpha) {
+                    principalVariationResearches++;
+                    value = primitiveMinimax(game, generator, depth - 1, alpha, beta, !player);
+                }
+            } else {
+                value = primitiveMinimax(game, generator, depth - 1, alpha, beta, !player);
+            }
+            game.cancel(move);
+            if (Double.isNaN(value)) {
+                return Double.NaN;
+            }
+            if (bestIndex < 0 || (player ? value > best : value < best)) {
+                best = value;
+                bestIndex = index;
+                final int[] variation = primitiveVariations[ply];
+                variation[ply] = move;
+                final int length = primitiveVariationLengths[ply + 1];
+                System.arraycopy(primitiveVariations[ply + 1], ply + 1, variation, ply + 1, length - ply - 1);
+                primitiveVariationLengths[ply] = Math.max(length, ply + 1);
+            }
+            if (player) {
+                alpha = Math.max(alpha, value);
+            } else {
+                beta = Math.min(beta, value);
+            }
+            if (beta <= alpha) {
+                if (hashed) {
+                    storeInTranspositionTable(null, hash, depth, player ? TranspositionTable.LOWER_BOUND : TranspositionTable.UPPER_BOUND, value, index);
+                }
+                if (history != null && move >= 0 && move < history.length) {
+                    updateHistory(move, ply, depth);
+                }
+                return best;
+            }
+        }
+        if (hashed) {
+            final int bound;
+            if (player && best <= originalAlpha) {
+                bound = TranspositionTable.UPPER_BOUND;
+            } else if (!player && best >= originalBeta) {
+                bound = TranspositionTable.LOWER_BOUND;
+            } else {
+                bound = TranspositionTable.EXACT;
+            }
+            storeInTranspositionTable(null, hash, depth, bound, best, bestIndex);
+        }
+        return best;
+    }
+
+    /*
+     * Same order as orderMoves, the move codes being the keys of the killer moves and history heuristic
+     */
+    private int[] orderPrimitiveMoves(int[] moves, int size, int ply, int hashMove, int previousBest) {
+        ensureOrderBuffers(ply, size);
+        final int[] order = orders[ply];
+        final long[] scores = orderScores[ply];
+        final int[] plyKillers = killers[ply];
+        for (int i = 0; i < size; i++) {
+            final int move = moves[i];
+            long score = 0;
+            if (i == hashMove) {
+                score = HASH_MOVE_SCORE;
+            } else if (move == previousBest) {
+                score = PREVIOUS_BEST_SCORE;
+            } else if (history != null && move >= 0 && move < history.length) {
+                if (move == plyKillers[0]) {
+                    score = FIRST_KILLER_SCORE;
+                } else if (move == plyKillers[1]) {
+                    score = SECOND_KILLER_SCORE;
+                } else {
+                    score = history[move];
+                }
+            }
+            // insertion sort: there are few moves, and the moves of same score stay in the generated order
+            int j = i;
+            while (j > 0 && scores[j - 1] < score) {
+                scores[j] = scores[j - 1];
+                order[j] = order[j - 1];
+                j--;
+            }
+            scores[j] = score;
+            order[j] = i;
+        }
+        return order;
+    }
+
+    /*
+     * Copy the entry of the position in the probed fields, from the shared table if there is one
+     */
+    private boolean probeTranspositionTable(long hash) {
+        if (sharedTable != null) {
+            if (!sharedTable.probe(hash, sharedEntry)) {
+                return false;
+            }
+            probedDepth = SharedTranspositionTable.depth(sharedEntry);
+            probedBound = SharedTranspositionTable.bound(sharedEntry);
+            probedValue = SharedTranspositionTable.value(sharedEntry);
+            probedMove = SharedTranspositionTable.move(sharedEntry);
+            return true;
+        }
+        final int entry = transpositionTable.probe(hash);
+        if (entry < 0) {
+            return false;
+        }
+        probedDepth = transpositionTable.depth(entry);
+        probedBound = transpositionTable.bound(entry);
+        probedValue = transpositionTable.value(entry);
+        probedMove = transpositionTable.move(entry);
+        return true;
+    }
+
+    /*
+     * The primitive search gives a null game: it only stores the positions it has hashed
+     */
+    private void storeInTranspositionTable(G game, long hash, int depth, int bound, double value, int move) {
+        final boolean hashable = game == null || game instanceof IHashableGame;
+        if (sharedTable != null && hashable) {
+            sharedTable.store(hash, depth, bound, value, move);
+        } else if (transpositionTable != null && hashable) {
+            transpositionTable.store(hash, depth, bound, value, move);
+        }
+    }
+
+    /*
+     * Returns the stored value if it can be used, pruned if it proves the node is irrelevant to its parent, otherwise null
+     */
+    private MinMaxEvaluatedMove transpositionTableCutoff(double alpha, double beta, boolean player) {
+        final double value = probedValue;
+        final int bound = probedBound;
+        if (bound == TranspositionTable.EXACT) {
+            countTranspositionTableCutoff();
+            return new MinMaxEvaluatedMove(null, value, null);
+        }
+        if (bound == TranspositionTable.LOWER_BOUND && value >= beta) {
+            countTranspositionTableCutoff();
+            if (player) {
+                return pruned;
+            }
+            return new MinMaxEvaluatedMove(null, value, null);
+        }
+        if (bound == TranspositionTable.UPPER_BOUND && value <= alpha) {
+            countTranspositionTableCutoff();
+            if (!player) {
+                return pruned;
+            }
+            return new MinMaxEvaluatedMove(null, value, null);
+        }
+        return null;
+    }
+
+    private boolean timedOut() {
+        if (!timeout && timer.isTimedOut()) {
+            timeout = true;
+        }
+        return timeout;
+    }
+
+    private void countTranspositionTableCutoff() {
+        if (sharedTable == null) {
+            transpositionTable.countCutoff();
         }
     }
 
@@ -183,19 +1245,316 @@ public class Minimax<M extends IMove<G>, G extends IGame> {
 	 * @throws TimeoutException
      */
     public M best(final G game, final IMoveGenerator<M, G> generator, int depthmax) throws TimeoutException {
+        newSearch();
+        final List<Future<Long>> helpers = startHelpers(game, generator, depthmax);
         try {
-            this.depthmax = depthmax;
-            final MinMaxEvaluatedMove best = minimax(game, generator, depthmax, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
-                    game.currentPlayer() == 0, killer);
-            killer = best;
-            return best.getMove();
-        } catch (final AlphaBetaPrunningException e) {
-            // Should never happen
-            throw new RuntimeException("evaluated move found with value not between + infinity and - infinity...");
+            return search(game, generator, depthmax);
+        } finally {
+            stopHelpers(helpers);
+        }
+    }
+
+    /**
+     * Search in the game tree the best move using minimax with alpha beta pruning, increasing the depth one by one until the timer times out.
+     * Each iteration explores first the best moves found by the previous one, so that the deeper iterations prune more branches.
+     * The game state is restored when the timeout is reached.
+     *
+     * @param game
+     *            The current state of the game
+     * @param generator
+     *            The move generator that will generate all the possible move of
+     *            the playing player at each turn
+     * @param depthmax
+     *            the depth at which the search stops even if there is some time left
+     * @return the best move found by the deepest iteration that has been completed before the timeout
+     * @throws TimeoutException
+     *             if the timeout is reached before the end of the first iteration
+     */
+    public M bestIterativeDeepening(final G game, final IMoveGenerator<M, G> generator, int depthmax) throws TimeoutException {
+        newSearch();
+        reachedDepth = 0;
+        M best = null;
+        final List<Future<Long>> helpers = startHelpers(game, generator, depthmax);
+        try {
+            for (int depth = 1; depth <= depthmax; depth++) {
+                try {
+                    best = search(game, generator, depth);
+                    reachedDepth = depth;
+                } catch (final TimeoutException e) {
+                    if (reachedDepth == 0) {
+                        throw e;
+                    }
+                    break;
+                }
+            }
+        } finally {
+            stopHelpers(helpers);
+        }
+        return best;
+    }
+
+    /**
+     * Search in the game tree the best move using minimax with alpha beta pruning, the moves being encoded as int.
+     * The search mode, transposition table and move ordering (the move codes being the keys) are used,
+     * the other options (aspiration window, quiescence, selective and parallel search) only apply to the IMove search.
+     *
+     * @param game
+     *            The current state of the game
+     * @param generator
+     *            The move generator that will fill the buffers with the codes of the possible moves of
+     *            the playing player at each turn
+     * @param depthmax
+     *            the fixed depth up to which the game tree will be expanded
+     * @return the code of the best move you can play considering the other player is selecting
+     *         the best move for him at each turn, or IPrimitiveMoveGenerator.NO_MOVE if there is no move
+     * @throws TimeoutException
+     */
+    public <P extends IPrimitiveGame> int best(final P game, final IPrimitiveMoveGenerator<P> generator, int depthmax) throws TimeoutException {
+        newSearch();
+        previousVariationLength = 0;
+        return primitiveSearch(game, generator, depthmax);
+    }
+
+    /**
+     * Same as bestIterativeDeepening, the moves being encoded as int.
+     * Each iteration explores first the principal variation found by the previous one.
+     *
+     * @param game
+     *            The current state of the game
+     * @param generator
+     *            The move generator that will fill the buffers with the codes of the possible moves of
+     *            the playing player at each turn
+     * @param depthmax
+     *            the depth at which the search stops even if there is some time left
+     * @return the code of the best move found by the deepest iteration that has been completed before the timeout,
+     *         or IPrimitiveMoveGenerator.NO_MOVE if there is no move
+     * @throws TimeoutException
+     *             if the timeout is reached before the end of the first iteration
+     */
+    public <P extends IPrimitiveGame> int bestIterativeDeepening(final P game, final IPrimitiveMoveGenerator<P> generator, int depthmax)
+            throws TimeoutException {
+        newSearch();
+        previousVariationLength = 0;
+        reachedDepth = 0;
+        int best = IPrimitiveMoveGenerator.NO_MOVE;
+        for (int depth = 1; depth <= depthmax; depth++) {
+            try {
+                best = primitiveSearch(game, generator, depth);
+                reachedDepth = depth;
+            } catch (final TimeoutException e) {
+                if (reachedDepth == 0) {
+                    throw e;
+                }
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the depth of the deepest iteration completed during the last call to bestIterativeDeepening
+     */
+    public int getReachedDepth() {
+        return reachedDepth;
+    }
+
+    double getBestValue() {
+        return killer == null ? Double.NaN : killer.getValue();
+    }
+
+    /**
+     * Keep the analysis of the last search for the next turn: move the principal variation to the position reached by a move.
+     * Call it with the moves of all the players played until your next turn, so that the next search explores the expected line first
+     * and centers its aspiration window on its value. The transposition table, if any, is kept anyway.
+     * If the move is not the one of the principal variation, the next search starts without previous analysis.
+     *
+     * @param move
+     *            the move played, equal to the one generated by the move generator
+     */
+    public void play(M move) {
+        if (killer != null && move.equals(killer.getMove())) {
+            killer = killer.getBestSubMove();
+        } else {
+            killer = null;
+        }
+    }
+
+    private void newSearch() {
+        visitedNodes = 0;
+        provenPositionHits = 0;
+        quiescenceNodes = 0;
+        nullMoveSearches = 0;
+        nullMoveCutoffs = 0;
+        lateMoveReductions = 0;
+        lateMoveResearches = 0;
+        principalVariationResearches = 0;
+        aspirationFailLows = 0;
+        aspirationFailHighs = 0;
+        if (transpositionTable != null) {
+            transpositionTable.newSearch();
+        }
+        if (sharedTable != null) {
+            sharedTable.newSearch();
+        }
+        if (history != null) {
+            // older searches are less relevant
+            for (int i = 0; i < history.length; i++) {
+                history[i] /= 2;
+            }
+        }
+    }
+
+    /*
+     * Start the Lazy SMP helper threads. Each helper runs its own iterative deepening on a copy of the game,
+     * half of them one depth ahead, with its own root moves order.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Future<Long>> startHelpers(final G game, final IMoveGenerator<M, G> generator, int depthmax) {
+        final List<Future<Long>> helpers = new ArrayList<>();
+        if (lazySmpThreads <= 1 || !(game instanceof ICloneableGame) || !(game instanceof IHashableGame)) {
+            return helpers;
+        }
+        stopSignal = new AtomicBoolean();
+        for (int i = 1; i < lazySmpThreads; i++) {
+            final Minimax<M, G> helper = worker(depthmax, null, false);
+            helper.stopSignal = stopSignal;
+            helper.rootRotation = i;
+            helper.aspirationWindow = aspirationWindow;
+            final G copy = ((ICloneableGame<G>) game).copy();
+            final int firstDepth = 1 + i % 2;
+            helpers.add(helpersExecutor.submit(() -> {
+                try {
+                    for (int depth = firstDepth; depth <= depthmax; depth++) {
+                        helper.search(copy, generator, depth);
+                    }
+                } catch (final TimeoutException e) {
+                    // stopped by the timer or by the current thread
+                }
+                return helper.visitedNodes;
+            }));
+        }
+        return helpers;
+    }
+
+    private void stopHelpers(List<Future<Long>> helpers) throws TimeoutException {
+        if (helpers.isEmpty()) {
+            return;
+        }
+        stopSignal.set(true);
+        for (final Future<Long> helper : helpers) {
+            visitedNodes += joinTask(helper);
+        }
+        stopSignal = null;
+    }
+
+    private M search(final G game, final IMoveGenerator<M, G> generator, int depthmax) throws TimeoutException {
+        this.depthmax = depthmax;
+        timeout = false;
+        if (incremental != null) {
+            incremental.start(game);
+        }
+        final boolean player = game.currentPlayer() == 0;
+        double alpha = Double.NEGATIVE_INFINITY;
+        double beta = Double.POSITIVE_INFINITY;
+        double window = aspirationWindow;
+        final double center = killer == null ? Double.NaN : killer.getValue();
+        if (window > 0 && !Double.isNaN(center) && !Double.isInfinite(center)) {
+            alpha = center - window;
+            beta = center + window;
+        }
+        int failLows = 0;
+        int failHighs = 0;
+        while (true) {
+            final boolean failLow;
+            double value = Double.NaN;
+            final MinMaxEvaluatedMove best;
+            if (pool != null && game instanceof ICloneableGame) {
+                best = parallelRoot(game, generator, depthmax, alpha, beta, player, killer);
+            } else {
+                best = minimax(game, generator, depthmax, alpha, beta, player, killer);
+            }
+            if (timeout) {
+                // the only exception of the search, thrown once the stack has been unwound
+                throw new TimeoutException();
+            }
+            if (best != null) {
+                value = best.getValue();
+                if ((value > alpha && value < beta) || (alpha == Double.NEGATIVE_INFINITY && beta == Double.POSITIVE_INFINITY)) {
+                    killer = best;
+                    return best.getMove();
+                }
+                failLow = value <= alpha;
+            } else {
+                if (alpha == Double.NEGATIVE_INFINITY && beta == Double.POSITIVE_INFINITY) {
+                    // Should never happen
+                    throw new RuntimeException("evaluated move found with value not between + infinity and - infinity...");
+                }
+                // The root prunes its moves when its value is out of the window on the side of its player
+                failLow = !player;
+            }
+            // Widen the window on the side the value has been found and search again.
+            // A second failure on the same side means the center is stale: that side is opened
+            window *= 2;
+            if (failLow) {
+                aspirationFailLows++;
+                alpha = Double.isInfinite(value) || ++failLows > 1 ? Double.NEGATIVE_INFINITY : center - window;
+            } else {
+                aspirationFailHighs++;
+                beta = Double.isInfinite(value) || ++failHighs > 1 ? Double.POSITIVE_INFINITY : center + window;
+            }
+        }
+    }
+
+    private <P extends IPrimitiveGame> int primitiveSearch(final P game, final IPrimitiveMoveGenerator<P> generator, int depthmax)
+            throws TimeoutException {
+        this.depthmax = depthmax;
+        timeout = false;
+        if (primitiveMoves.length <= depthmax || (depthmax > 0 && primitiveMoves[0].length < generator.maxMoves())) {
+            // allocated once for the deepest search, reused by the next ones
+            primitiveMoves = new int[depthmax + 1][generator.maxMoves()];
+            primitiveVariations = new int[depthmax + 2][depthmax + 1];
+            primitiveVariationLengths = new int[depthmax + 2];
+            previousVariation = Arrays.copyOf(previousVariation, depthmax + 1);
+        }
+        followVariation = previousVariationLength > 0;
+        primitiveMinimax(game, generator, depthmax, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, game.currentPlayer() == 0);
+        if (timeout) {
+            throw new TimeoutException();
+        }
+        previousVariationLength = primitiveVariationLengths[0];
+        System.arraycopy(primitiveVariations[0], 0, previousVariation, 0, previousVariationLength);
+        return previousVariationLength == 0 ? IPrimitiveMoveGenerator.NO_MOVE : previousVariation[0];
+    }
+
+    /*
+     * Value of a leaf for player 0, from the incremental evaluation if it is known
+     */
+    private double evaluateLeaf(G game, int depth) {
+        if (incremental != null && incremental.isIncremental()) {
+            return scoreFromEvaluatedGame(incremental.evaluate(game, depth));
+        }
+        return evaluateGame(game, depth);
+    }
+
+    /*
+     * Value of the game for player 0, preferring the evaluations that do not allocate an array
+     */
+    private double evaluateGame(IGame game, int depth) {
+        if (game instanceof IZeroSumGame) {
+            return ((IZeroSumGame) game).evaluateScore(depth);
+        }
+        if (game instanceof IBufferedEvaluationGame) {
+            final IBufferedEvaluationGame bufferedGame = (IBufferedEvaluationGame) game;
+            if (evaluation.length != bufferedGame.players()) {
+                evaluation = new double[bufferedGame.players()];
+            }
+            bufferedGame.evaluateInto(evaluation, depth);
+            return scoreFromEvaluatedGame(evaluation);
         }
+        return scoreFromEvaluatedGame(game.evaluate(depth));
     }
 
-    private double scoreFromEvaluatedGame(double[] scores, G game) {
+    private double scoreFromEvaluatedGame(double[] scores) {
         return scores[0] - scores[1];
     }
 }
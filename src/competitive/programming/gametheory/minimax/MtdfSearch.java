@@ -0,0 +1,313 @@
+package competitive.programming.gametheory.minimax;
+
+import java.util.List;
+
+import competitive.programming.gametheory.IBufferedEvaluationGame;
+import competitive.programming.gametheory.IHashableGame;
+import competitive.programming.gametheory.IMove;
+import competitive.programming.gametheory.IMoveGenerator;
+import competitive.programming.gametheory.IZeroSumGame;
+import competitive.programming.timemanagement.TimeoutException;
+import competitive.programming.timemanagement.Timer;
+
+/**
+ * @author Manwe
+ *
+ *         MtdfSearch class finds the minimax value and the best move of a two players zero sum game with a series of zero window searches (MTD(f)).
+ *         Each pass only tells whether the value is lower or greater than a guess, which prunes much more than a full window alpha beta:
+ *         the value is bounded from below and from above until both bounds meet.
+ *         The passes search the same positions again and again, so that they need a transposition table: it is built in, and kept between the searches.
+ *
+ *         The first guess is the value found two depths earlier by the iterative deepening (the evaluations of the odd and of the even depths often differ),
+ *         or by the previous search (the previous turn) for the first depths.
+ *         The closer the guess, the fewer the passes.
+ *
+ *         Convention: as in the Minimax, the value of a game state is the evaluation of player 0 minus the evaluation of player 1.
+ * @see <a href="https://en.wikipedia.org/wiki/MTD(f)">MTD(f)</a>
+ *
+ * Hint: the number of passes grows with the number of different values the evaluation can take.
+ *         Evaluations rounded to a small number of values (integers on a small range) suit MTD(f) best.
+ *
+ * @param <M>
+ *            The class that model a move in the game tree
+ * @param <G>
+ *            The class that model the Game state
+ */
+public class MtdfSearch<M extends IMove<G>, G extends IHashableGame> {
+
+    private final Timer timer;
+    private final TranspositionTable transpositionTable;
+
+    private boolean timeout;
+    private int rootDepth;
+    private int rootBest;
+    private double guess = Double.NaN;
+    private double value;
+    private double[] values = new double[0];
+    private int[] passes = new int[0];
+    private int reachedDepth;
+    private long visitedNodes;
+    private double[] evaluation = new double[2];
+
+    /**
+     * MtdfSearch constructor. The memory of the transposition table is allocated here.
+     *
+     * @param timer
+     *            timer instance in order to cancel the search of the best move
+     *            if we are running out of time
+     * @param entries
+     *            the minimum number of positions the transposition table can hold
+     * @throws IllegalStateException
+     *             if the number of entries is not strictly positive
+     */
+    public MtdfSearch(Timer timer, int entries) {
+        this.timer = timer;
+        this.transpositionTable = new TranspositionTable(entries);
+    }
+
+    /**
+     * Set the first guess of the next search. By default, it is the value found by the previous search, or the evaluation of the game for the first one.
+     *
+     * @param guess
+     *            the expected value of the next search, or NaN to use the evaluation of the game
+     */
+    public void setFirstGuess(double guess) {
+        this.guess = guess;
+    }
+
+    /**
+     * @param game
+     *            The current state of the game
+     * @param generator
+     *            The move generator that will generate all the possible move of
+     *            the playing player at each turn
+     * @param depth
+     *            the fixed depth up to which the game tree will be expanded
+     * @return the best move you can play considering the other player is selecting
+     *         the best move for him at each turn, or null if there is no move
+     * @throws TimeoutException
+     */
+    public M best(G game, IMoveGenerator<M, G> generator, int depth) throws TimeoutException {
+        newSearch(depth);
+        return search(game, generator, depth);
+    }
+
+    /**
+     * Search the best move increasing the depth one by one until the timer times out.
+     * The first guess of each depth is the value found two depths earlier.
+     * The game state is restored when the timeout is reached.
+     *
+     * @param game
+     *            The current state of the game
+     * @param generator
+     *            The move generator that will generate all the possible move of
+     *            the playing player at each turn
+     * @param depthmax
+     *            the depth at which the search stops even if there is some time left
+     * @return the best move found by the deepest iteration that has been completed before the timeout
+     * @throws TimeoutException
+     *             if the timeout is reached before the end of the first iteration
+     */
+    public M bestIterativeDeepening(G game, IMoveGenerator<M, G> generator, int depthmax) throws TimeoutException {
+        newSearch(depthmax);
+        reachedDepth = 0;
+        M best = null;
+        for (int depth = 1; depth <= depthmax; depth++) {
+            try {
+                best = search(game, generator, depth);
+                reachedDepth = depth;
+            } catch (final TimeoutException e) {
+                if (reachedDepth == 0) {
+                    throw e;
+                }
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the minimax value found by the last completed search
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * @return the depth of the deepest iteration completed during the last call to bestIterativeDeepening
+     */
+    public int getReachedDepth() {
+        return reachedDepth;
+    }
+
+    /**
+     * @param depth
+     *            a depth searched during the last search
+     * @return the number of zero window searches done at this depth, 0 if it has not been searched
+     */
+    public int getPasses(int depth) {
+        return depth < passes.length ? passes[depth] : 0;
+    }
+
+    /**
+     * @return the number of game tree nodes visited during the last search, by all the passes
+     */
+    public long getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * @return the built in transposition table, for its statistics
+     */
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    private void newSearch(int depthmax) {
+        visitedNodes = 0;
+        passes = new int[depthmax + 1];
+        values = new double[depthmax + 1];
+        transpositionTable.newSearch();
+    }
+
+    private M search(G game, IMoveGenerator<M, G> generator, int depth) throws TimeoutException {
+        timeout = false;
+        rootDepth = depth;
+        final boolean player = game.currentPlayer() == 0;
+        final List<M> moves = generator.generateMoves(game);
+        if (Double.isNaN(guess)) {
+            guess = evaluateGame(game, 0);
+        }
+        double lowerBound = Double.NEGATIVE_INFINITY;
+        double upperBound = Double.POSITIVE_INFINITY;
+        double bound = depth > 2 && passes[depth - 2] > 0 ? values[depth - 2] : guess;
+        int best = -1;
+        while (lowerBound < upperBound) {
+            final double beta = bound == lowerBound ? Math.nextUp(bound) : bound;
+            rootBest = -1;
+            bound = alphaBeta(game, generator, depth, Math.nextDown(beta), beta, player);
+            if (timeout) {
+                throw new TimeoutException();
+            }
+            passes[depth]++;
+            if (bound < beta) {
+                upperBound = bound;
+                if (!player) {
+                    // the move proving the player can get this value
+                    best = rootBest;
+                }
+            } else {
+                lowerBound = bound;
+                if (player) {
+                    best = rootBest;
+                }
+            }
+        }
+        value = bound;
+        values[depth] = bound;
+        guess = bound;
+        if (moves.isEmpty()) {
+            return null;
+        }
+        return moves.get(best < 0 ? 0 : best);
+    }
+
+    /*
+     * Alpha beta with memory, fail soft: the value is a bound of the real one when it is out of the window. Returns NaN if the search is timed out.
+     */
+    private double alphaBeta(G game, IMoveGenerator<M, G> generator, int depth, double alpha, double beta, boolean player) {
+        visitedNodes++;
+        if (timer.isTimedOut()) {
+            timeout = true;
+            return Double.NaN;
+        }
+        final long hash = game.hash();
+        int hashMove = -1;
+        final int entry = transpositionTable.probe(hash);
+        if (entry >= 0) {
+            hashMove = transpositionTable.move(entry);
+            // At the root we need the move itself, not only its value
+            if (depth < rootDepth && transpositionTable.depth(entry) >= depth) {
+                final double stored = transpositionTable.value(entry);
+                final int bound = transpositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER_BOUND && stored >= beta)
+                        || (bound == TranspositionTable.UPPER_BOUND && stored <= alpha)) {
+                    transpositionTable.countCutoff();
+                    return stored;
+                }
+            }
+        }
+        if (depth == 0) {
+            final double value = evaluateGame(game, depth);
+            transpositionTable.store(hash, depth, TranspositionTable.EXACT, value, -1);
+            return value;
+        }
+        final List<M> moves = generator.generateMoves(game);
+        if (moves.isEmpty()) {
+            final double value = evaluateGame(game, depth);// Real end game status
+            transpositionTable.store(hash, depth, TranspositionTable.EXACT, value, -1);
+            return value;
+        }
+        double best = player ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        int bestIndex = -1;
+        double a = alpha;
+        double b = beta;
+        final boolean hashMoveFirst = hashMove >= 0 && hashMove < moves.size();
+        for (int i = hashMoveFirst ? -1 : 0; i < moves.size(); i++) {
+            // the best move of the previous pass first
+            if (i == hashMove) {
+                continue;
+            }
+            final int index = i < 0 ? hashMove : i;
+            final M move = moves.get(index);
+            final G movedGame = move.execute(game);
+            final double childValue = alphaBeta(movedGame, generator, depth - 1, a, b, !player);
+            move.cancel(game);
+            if (timeout) {
+                return Double.NaN;
+            }
+            if (player ? childValue > best : childValue < best) {
+                best = childValue;
+                bestIndex = index;
+            }
+            if (player) {
+                a = Math.max(a, childValue);
+            } else {
+                b = Math.min(b, childValue);
+            }
+            if (player ? best >= beta : best <= alpha) {
+                break;
+            }
+        }
+        if (best <= alpha) {
+            transpositionTable.store(hash, depth, TranspositionTable.UPPER_BOUND, best, bestIndex);
+        } else if (best >= beta) {
+            transpositionTable.store(hash, depth, TranspositionTable.LOWER_BOUND, best, bestIndex);
+        } else {
+            transpositionTable.store(hash, depth, TranspositionTable.EXACT, best, bestIndex);
+        }
+        if (depth == rootDepth) {
+            rootBest = bestIndex;
+        }
+        return best;
+    }
+
+    /*
+     * Value of the game for player 0, preferring the evaluations that do not allocate an array
+     */
+    private double evaluateGame(G game, int depth) {
+        if (game instanceof IZeroSumGame) {
+            return ((IZeroSumGame) game).evaluateScore(depth);
+        }
+        if (game instanceof IBufferedEvaluationGame) {
+            final IBufferedEvaluationGame bufferedGame = (IBufferedEvaluationGame) game;
+            if (evaluation.length != bufferedGame.players()) {
+                evaluation = new double[bufferedGame.players()];
+            }
+            bufferedGame.evaluateInto(evaluation, depth);
+            return evaluation[0] - evaluation[1];
+        }
+        final double[] scores = game.evaluate(depth);
+        return scores[0] - scores[1];
+    }
+}
@@ -0,0 +1,184 @@
+package competitive.programming.gametheory.minimax;
+
+/**
+ * @author Manwe
+ *
+ *         Fixed size transposition table that can be probed and filled by several search threads at the same time without any lock.
+ *         It has the same buckets of two entries and the same replacement policy than TranspositionTable.
+ *
+ *         Each entry is made of three longs: the packed data (bound, depth, generation and best move), the bits of the value,
+ *         and a check word which is the xor of the hash with the two others.
+ *         Threads may write the same entry at the same time and mix the words of two analysis:
+ *         such an entry does not pass the xor validation and is simply seen as a miss.
+ *
+ *         Convention: a probe copies the entry in a buffer owned by the calling thread, the data is then read from the buffer
+ *         with the static accessors, so that another thread can not change it while it is used.
+ * @see <a href="https://www.cis.uab.edu/hyatt/hashing.html">Lockless transposition tables</a>
+ */
+public class SharedTranspositionTable {
+    /**
+     * Size of the buffer to give to probe
+     */
+    public static final int ENTRY_SIZE = 2;
+
+    private static final int EMPTY = 0;
+    private static final int WORDS = 3;
+
+    private final long[] words;
+    private final int bucketMask;
+
+    private volatile int generation;
+
+    /**
+     * Shared transposition table constructor. All the memory is allocated here.
+     *
+     * @param entries
+     *            the minimum number of positions the table can hold. It is rounded up to the next power of two.
+     * @throws IllegalStateException
+     *             if the number of entries is not strictly positive
+     */
+    public SharedTranspositionTable(int entries) {
+        if (entries <= 0) {
+            throw new IllegalStateException("A transposition table must have at least one entry");
+        }
+        int buckets = 1;
+        while (buckets * 2 < entries) {
+            buckets <<= 1;
+        }
+        words = new long[buckets * 2 * WORDS];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * Empty the table. Must not be called during a search.
+     */
+    public void clear() {
+        for (int i = 0; i < words.length; i++) {
+            words[i] = 0;
+        }
+    }
+
+    /**
+     * Must be called at the beginning of each new search so that entries of the previous searches are replaced first.
+     * Must not be called by the helper threads.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Look for a position in the table
+     *
+     * @param hash
+     *            the hash of the position
+     * @param entry
+     *            buffer of ENTRY_SIZE longs, owned by the calling thread, that receives the entry if the position is found
+     * @return true if the position has been found with a valid entry
+     */
+    public boolean probe(long hash, long[] entry) {
+        final int first = firstWord(hash);
+        for (int word = first; word < first + 2 * WORDS; word += WORDS) {
+            final long data = words[word + 1];
+            final long value = words[word + 2];
+            if ((words[word] ^ data ^ value) == hash && bound(data) != EMPTY) {
+                entry[0] = data;
+                entry[1] = value;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Store the analysis of a position
+     *
+     * @param hash
+     *            the hash of the position
+     * @param depth
+     *            the remaining depth that has been explored under the position, up to 65535
+     * @param bound
+     *            one of TranspositionTable.EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param value
+     *            the value found
+     * @param move
+     *            the index of the best move in the generated moves list, or -1 if unknown
+     */
+    public void store(long hash, int depth, int bound, double value, int move) {
+        final int first = firstWord(hash);
+        final long firstData = words[first + 1];
+        final int currentGeneration = generation;
+        final boolean sameFirst = (words[first] ^ firstData ^ words[first + 2]) == hash;
+        final int word;
+        if (bound(firstData) == EMPTY || sameFirst || generation(firstData) != currentGeneration || depth(firstData) <= depth) {
+            word = first;
+        } else {
+            word = first + WORDS;
+        }
+        final long previousData = words[word + 1];
+        if (move < 0 && bound(previousData) != EMPTY && (words[word] ^ previousData ^ words[word + 2]) == hash) {
+            // keep the best move we already knew for this position
+            move = move(previousData);
+        }
+        final long data = ((long) move << 32) | ((long) currentGeneration << 24) | ((long) (depth & 0xFFFF) << 8) | bound;
+        final long valueBits = Double.doubleToRawLongBits(value);
+        words[word] = hash ^ data ^ valueBits;
+        words[word + 1] = data;
+        words[word + 2] = valueBits;
+    }
+
+    /**
+     * @param entry
+     *            a buffer filled by probe
+     * @return the remaining depth that was explored when the entry was stored
+     */
+    public static int depth(long[] entry) {
+        return depth(entry[0]);
+    }
+
+    /**
+     * @param entry
+     *            a buffer filled by probe
+     * @return one of TranspositionTable.EXACT, LOWER_BOUND or UPPER_BOUND
+     */
+    public static int bound(long[] entry) {
+        return bound(entry[0]);
+    }
+
+    /**
+     * @param entry
+     *            a buffer filled by probe
+     * @return the stored value
+     */
+    public static double value(long[] entry) {
+        return Double.longBitsToDouble(entry[1]);
+    }
+
+    /**
+     * @param entry
+     *            a buffer filled by probe
+     * @return the index of the best move in the generated moves list, or -1 if unknown
+     */
+    public static int move(long[] entry) {
+        return move(entry[0]);
+    }
+
+    private static int bound(long data) {
+        return (int) (data & 0x3);
+    }
+
+    private static int depth(long data) {
+        return (int) ((data >>> 8) & 0xFFFF);
+    }
+
+    private static int generation(long data) {
+        return (int) ((data >>> 24) & 0xFF);
+    }
+
+    private static int move(long data) {
+        return (int) (data >> 32);
+    }
+
+    private int firstWord(long hash) {
+        return ((int) ((hash ^ (hash >>> 32)) & bucketMask) << 1) * WORDS;
+    }
+}
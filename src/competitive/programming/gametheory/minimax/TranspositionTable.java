@@ -0,0 +1,242 @@
+package competitive.programming.gametheory.minimax;
+
+/**
+ * @author Manwe
+ *
+ *         Fixed size transposition table used by the Minimax in order to reuse the analysis of a position reached
+ *         through another move order, or analysed during a previous search.
+ *         Entries are stored in preallocated primitive arrays, so that probing and storing never allocates.
+ *
+ *         The table is made of buckets of two entries:
+ *         the first one keeps the deepest analysis (unless it comes from a previous search),
+ *         the second one is always replaced.
+ *
+ *         Convention: an entry is identified by an int index that is only valid until the next store.
+ * @see <a href="https://en.wikipedia.org/wiki/Transposition_table">Transposition table</a>
+ */
+public class TranspositionTable {
+    /**
+     * The stored value is the exact value of the position
+     */
+    public static final int EXACT = 1;
+    /**
+     * The value of the position is greater or equal than the stored value
+     */
+    public static final int LOWER_BOUND = 2;
+    /**
+     * The value of the position is lower or equal than the stored value
+     */
+    public static final int UPPER_BOUND = 3;
+
+    private static final int EMPTY = 0;
+
+    private final long[] hashes;
+    private final double[] values;
+    private final int[] depths;
+    private final int[] moves;
+    private final byte[] bounds;
+    private final int[] generations;
+    private final int bucketMask;
+
+    private int generation;
+
+    private long probes;
+    private long hits;
+    private long collisions;
+    private long cutoffs;
+    private long stores;
+
+    /**
+     * Transposition table constructor. All the memory is allocated here.
+     *
+     * @param entries
+     *            the minimum number of positions the table can hold. It is rounded up to the next power of two.
+     * @throws IllegalStateException
+     *             if the number of entries is not strictly positive
+     */
+    public TranspositionTable(int entries) {
+        if (entries <= 0) {
+            throw new IllegalStateException("A transposition table must have at least one entry");
+        }
+        int buckets = 1;
+        while (buckets * 2 < entries) {
+            buckets <<= 1;
+        }
+        final int size = buckets * 2;
+        hashes = new long[size];
+        values = new double[size];
+        depths = new int[size];
+        moves = new int[size];
+        bounds = new byte[size];
+        generations = new int[size];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * Empty the table
+     */
+    public void clear() {
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = EMPTY;
+        }
+    }
+
+    /**
+     * Must be called at the beginning of each new search so that entries of the previous searches are replaced first
+     */
+    public void newSearch() {
+        generation++;
+    }
+
+    /**
+     * Look for a position in the table
+     *
+     * @param hash
+     *            the hash of the position
+     * @return the index of the entry, or -1 if the position is not in the table
+     */
+    public int probe(long hash) {
+        probes++;
+        final int first = firstEntry(hash);
+        for (int entry = first; entry < first + 2; entry++) {
+            if (bounds[entry] != EMPTY && hashes[entry] == hash) {
+                hits++;
+                return entry;
+            }
+        }
+        if (bounds[first] != EMPTY || bounds[first + 1] != EMPTY) {
+            collisions++;
+        }
+        return -1;
+    }
+
+    /**
+     * Store the analysis of a position
+     *
+     * @param hash
+     *            the hash of the position
+     * @param depth
+     *            the remaining depth that has been explored under the position
+     * @param bound
+     *            one of EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param value
+     *            the value found
+     * @param move
+     *            the index of the best move in the generated moves list, or -1 if unknown
+     */
+    public void store(long hash, int depth, int bound, double value, int move) {
+        stores++;
+        final int first = firstEntry(hash);
+        final int entry;
+        if (bounds[first] == EMPTY || hashes[first] == hash || generations[first] != generation || depths[first] <= depth) {
+            entry = first;
+        } else {
+            entry = first + 1;
+        }
+        if (move < 0 && bounds[entry] != EMPTY && hashes[entry] == hash) {
+            // keep the best move we already knew for this position
+            move = moves[entry];
+        }
+        hashes[entry] = hash;
+        depths[entry] = depth;
+        bounds[entry] = (byte) bound;
+        values[entry] = value;
+        moves[entry] = move;
+        generations[entry] = generation;
+    }
+
+    /**
+     * @param entry
+     *            an entry index returned by probe
+     * @return the remaining depth that was explored when the entry was stored
+     */
+    public int depth(int entry) {
+        return depths[entry];
+    }
+
+    /**
+     * @param entry
+     *            an entry index returned by probe
+     * @return one of EXACT, LOWER_BOUND or UPPER_BOUND
+     */
+    public int bound(int entry) {
+        return bounds[entry];
+    }
+
+    /**
+     * @param entry
+     *            an entry index returned by probe
+     * @return the stored value
+     */
+    public double value(int entry) {
+        return values[entry];
+    }
+
+    /**
+     * @param entry
+     *            an entry index returned by probe
+     * @return the index of the best move in the generated moves list, or -1 if unknown
+     */
+    public int move(int entry) {
+        return moves[entry];
+    }
+
+    void countCutoff() {
+        cutoffs++;
+    }
+
+    /**
+     * @return the number of probes since the last statistics reset
+     */
+    public long getProbes() {
+        return probes;
+    }
+
+    /**
+     * @return the number of probes that found their position
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of probes that did not find their position while its bucket was holding other positions
+     */
+    public long getCollisions() {
+        return collisions;
+    }
+
+    /**
+     * @return the number of times a stored bound allowed the search to skip a position
+     */
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * @return the number of stored analysis
+     */
+    public long getStores() {
+        return stores;
+    }
+
+    /**
+     * Reset all the counters to 0
+     */
+    public void resetStatistics() {
+        probes = 0;
+        hits = 0;
+        collisions = 0;
+        cutoffs = 0;
+        stores = 0;
+    }
+
+    private int firstEntry(long hash) {
+        return (int) ((hash ^ (hash >>> 32)) & bucketMask) << 1;
+    }
+
+    @Override
+    public String toString() {
+        return "TranspositionTable [probes=" + probes + ", hits=" + hits + ", collisions=" + collisions + ", cutoffs=" + cutoffs + ", stores=" + stores + "]";
+    }
+}
@@ -0,0 +1,200 @@
+package competitive.programming.gametheory.paranoid;
+
+import java.util.List;
+
+import competitive.programming.gametheory.IBufferedEvaluationGame;
+import competitive.programming.gametheory.IGame;
+import competitive.programming.gametheory.IMove;
+import competitive.programming.gametheory.IMoveGenerator;
+import competitive.programming.gametheory.maxntree.IScoreConverter;
+import competitive.programming.timemanagement.TimeoutException;
+import competitive.programming.timemanagement.Timer;
+
+/**
+ * @author Manwe
+ *
+ *         Paranoid class allows to find the best move a player can do in a N players game
+ *         considering all the other players are allied against him: they all play the moves minimizing his score.
+ *         The game becomes a two players zero sum game, so that alpha beta pruning can be used,
+ *         and the search goes much deeper than the MaxNTree in the same time.
+ *         The search can be bounded by a fixed depth, or by the timer using iterative deepening.
+ *
+ * Hint: the paranoid assumption is pessimistic, it might lead to a too defensive play when the opponents are not really allied.
+ *         Have a look to BestReplySearch for a less pessimistic alternative.
+ *
+ * @param <M>
+ *            The class that model a move in the game tree
+ * @param <G>
+ *            The class that model the Game state
+ */
+public class Paranoid<M extends IMove<G>, G extends IGame> {
+
+    private final Timer timer;
+    private final IScoreConverter converter;
+
+    private int rootPlayer;
+    private double[] evaluation = new double[0];
+    private M previousBest;
+    private int reachedDepth;
+    private long visitedNodes;
+
+    /**
+     * Paranoid constructor
+     *
+     * @param timer
+     *            timer instance in order to cancel the search of the best move
+     *            if we are running out of time
+     * @param converter
+     *            converts the scores of the players into the score of the player at the root,
+     *            which he maximizes and all the others minimize
+     */
+    public Paranoid(Timer timer, IScoreConverter converter) {
+        this.timer = timer;
+        this.converter = converter;
+    }
+
+    /**
+     * @param game
+     *            The current state of the game
+     * @param generator
+     *            The move generator that will generate all the possible move of
+     *            the playing player at each turn
+     * @param depth
+     *            the fixed depth up to which the game tree will be expanded
+     * @return the best move you can play considering all the other players are playing against you, or null if there is no move
+     * @throws TimeoutException
+     */
+    public M best(G game, IMoveGenerator<M, G> generator, int depth) throws TimeoutException {
+        visitedNodes = 0;
+        previousBest = null;
+        return search(game, generator, depth);
+    }
+
+    /**
+     * Search the best move increasing the depth one by one until the timer times out.
+     * Each iteration explores first the best move found by the previous one.
+     * The game state is restored when the timeout is reached.
+     *
+     * @param game
+     *            The current state of the game
+     * @param generator
+     *            The move generator that will generate all the possible move of
+     *            the playing player at each turn
+     * @param depthmax
+     *            the depth at which the search stops even if there is some time left
+     * @return the best move found by the deepest iteration that has been completed before the timeout
+     * @throws TimeoutException
+     *             if the timeout is reached before the end of the first iteration
+     */
+    public M bestIterativeDeepening(G game, IMoveGenerator<M, G> generator, int depthmax) throws TimeoutException {
+        visitedNodes = 0;
+        previousBest = null;
+        reachedDepth = 0;
+        M best = null;
+        for (int depth = 1; depth <= depthmax; depth++) {
+            try {
+                best = search(game, generator, depth);
+                reachedDepth = depth;
+            } catch (final TimeoutException e) {
+                if (reachedDepth == 0) {
+                    throw e;
+                }
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the depth of the deepest iteration completed during the last call to bestIterativeDeepening
+     */
+    public int getReachedDepth() {
+        return reachedDepth;
+    }
+
+    /**
+     * @return the number of game tree nodes visited during the last search
+     */
+    public long getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    private M search(G game, IMoveGenerator<M, G> generator, int depth) throws TimeoutException {
+        rootPlayer = game.currentPlayer();
+        visitedNodes++;
+        final List<M> moves = generator.generateMoves(game);
+        M best = null;
+        double alpha = Double.NEGATIVE_INFINITY;
+        final int first = previousBest == null ? -1 : moves.indexOf(previousBest);
+        for (int i = -1; i < moves.size(); i++) {
+            // the best move of the previous iteration first
+            if (i == first) {
+                continue;
+            }
+            final M move = moves.get(i < 0 ? first : i);
+            timer.timeCheck();
+            final double value;
+            final G movedGame = move.execute(game);
+            try {
+                value = alphaBeta(movedGame, generator, depth - 1, 1, alpha, Double.POSITIVE_INFINITY);
+            } finally {
+                move.cancel(game);
+            }
+            if (best == null || value > alpha) {
+                best = move;
+                alpha = value;
+            }
+        }
+        previousBest = best;
+        return best;
+    }
+
+    private double alphaBeta(G game, IMoveGenerator<M, G> generator, int depth, int ply, double alpha, double beta) throws TimeoutException {
+        visitedNodes++;
+        if (depth == 0) {
+            return evaluate(game, ply);
+        }
+        final List<M> moves = generator.generateMoves(game);
+        if (moves.isEmpty()) {
+            return evaluate(game, ply);// Real end game status
+        }
+        final boolean maximizing = game.currentPlayer() == rootPlayer;
+        double best = maximizing ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        for (final M move : moves) {
+            timer.timeCheck();
+            final double value;
+            final G movedGame = move.execute(game);
+            try {
+                value = alphaBeta(movedGame, generator, depth - 1, ply + 1, alpha, beta);
+            } finally {
+                move.cancel(game);
+            }
+            if (maximizing) {
+                best = Math.max(best, value);
+                alpha = Math.max(alpha, value);
+            } else {
+                best = Math.min(best, value);
+                beta = Math.min(beta, value);
+            }
+            if (beta <= alpha) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /*
+     * Score of the root player, evaluated without allocating an array if the game implements IBufferedEvaluationGame
+     */
+    private double evaluate(G game, int ply) {
+        if (game instanceof IBufferedEvaluationGame) {
+            final IBufferedEvaluationGame bufferedGame = (IBufferedEvaluationGame) game;
+            if (evaluation.length != bufferedGame.players()) {
+                evaluation = new double[bufferedGame.players()];
+            }
+            bufferedGame.evaluateInto(evaluation, ply);
+            return converter.convert(evaluation, rootPlayer);
+        }
+        return converter.convert(game.evaluate(ply), rootPlayer);
+    }
+}
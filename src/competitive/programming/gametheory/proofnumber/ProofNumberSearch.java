@@ -0,0 +1,382 @@
+package competitive.programming.gametheory.proofnumber;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import competitive.programming.gametheory.IHashableGame;
+import competitive.programming.gametheory.IGame;
+import competitive.programming.gametheory.IMove;
+import competitive.programming.gametheory.IMoveGenerator;
+import competitive.programming.gametheory.ITerminalGame;
+import competitive.programming.timemanagement.Timer;
+
+/**
+ * @author Manwe
+ *
+ *         ProofNumberSearch class solves a position of a two players game: it proves that the player to play wins, loses or draws,
+ *         whatever the moves of its opponent. It is meant for the end games, where the Minimax keeps searching positions that are already decided.
+ *
+ *         Each node of the tree holds its proof number (the number of leaves to prove to prove the node is won)
+ *         and its disproof number (the number of leaves to prove to prove it is not won). The search always expands the most proving node:
+ *         the one reached choosing the child with the smallest proof number where the winner plays, and with the smallest disproof number where its opponent plays.
+ *         The tree grows in the directions where the proof (or the disproof) is the cheapest, which is very efficient in the positions
+ *         where the number of moves is unbalanced (forced moves, threats...).
+ *
+ *         The win of the player to play is searched first. If it is disproved, the win of the opponent is searched: if it is disproved too, the game is a draw.
+ *         The result is unknown if the timer times out or if the tree is full before the proof.
+ *
+ *         The nodes are stored in preallocated primitive arrays indexed by int, the capacity bounds the memory used.
+ *         If the game implements IHashableGame, the proven positions can be stored in a ProvenPositions table:
+ *         the next searches start from them, and the Minimax can use them.
+ * @see <a href="https://en.wikipedia.org/wiki/Proof-number_search">Proof-number search</a>
+ *
+ * Hint: implement ITerminalGame if your game can be decided before the players run out of moves.
+ *
+ * @param <M>
+ *            The class that model a move in the game tree
+ * @param <G>
+ *            The class that model the Game state
+ */
+public class ProofNumberSearch<M extends IMove<G>, G extends IGame> {
+
+    /**
+     * The result of a position for the player to play
+     */
+    public enum Result {
+        /**
+         * The player to play wins whatever its opponent plays
+         */
+        WIN,
+        /**
+         * The opponent of the player to play wins whatever the player plays
+         */
+        LOSS,
+        /**
+         * None of the players can win if the other plays well
+         */
+        DRAW,
+        /**
+         * The search has been stopped before the proof
+         */
+        UNKNOWN
+    }
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+    private static final int ROOT = 0;
+    private static final int NOT_EXPANDED = -1;
+
+    private final Timer timer;
+    private final int capacity;
+
+    private final int[] parents;
+    private final int[] firstChildren;
+    private final int[] childrenCounts;
+    private final int[] proofs;
+    private final int[] disproofs;
+    private final boolean[] attackerToPlay;
+    private final long[] hashes;
+    private final Object[] moves;
+    private int size;
+
+    private ProvenPositions provenPositions;
+    private int attacker;
+    private boolean hashed;
+    private final List<M> path = new ArrayList<>();
+    private final List<M> winningLine = new ArrayList<>();
+    private long expandedNodes;
+
+    /**
+     * ProofNumberSearch constructor. All the memory of the tree is allocated here.
+     *
+     * @param timer
+     *            timer instance in order to stop the search when we are running out of time
+     * @param capacity
+     *            the maximum number of nodes of the tree. When it is full, the result is unknown
+     * @throws IllegalStateException
+     *             if the capacity is not strictly positive
+     */
+    public ProofNumberSearch(Timer timer, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalStateException("Proof number search needs at least one node");
+        }
+        this.timer = timer;
+        this.capacity = capacity;
+        parents = new int[capacity];
+        firstChildren = new int[capacity];
+        childrenCounts = new int[capacity];
+        proofs = new int[capacity];
+        disproofs = new int[capacity];
+        attackerToPlay = new boolean[capacity];
+        hashes = new long[capacity];
+        moves = new Object[capacity];
+    }
+
+    /**
+     * Store the proven positions in a table, and use the ones it already holds. The game must implement IHashableGame.
+     *
+     * @param provenPositions
+     *            the table of the proven positions, or null to disable it (default)
+     */
+    public void setProvenPositions(ProvenPositions provenPositions) {
+        this.provenPositions = provenPositions;
+    }
+
+    /**
+     * Solve the position until the timer times out
+     *
+     * @param game
+     *            The current state of the game. It is restored at the end of the search
+     * @param generator
+     *            The move generator that will generate all the possible move of the playing player at each turn
+     * @return the result of the position for the player to play, UNKNOWN if the timer timed out or if the tree is full before the proof
+     */
+    public Result solve(G game, IMoveGenerator<M, G> generator) {
+        winningLine.clear();
+        expandedNodes = 0;
+        hashed = provenPositions != null && game instanceof IHashableGame;
+        final int player = game.currentPlayer();
+        int over = game instanceof ITerminalGame ? ((ITerminalGame) game).winner() : ITerminalGame.NOT_OVER;
+        if (over == ITerminalGame.NOT_OVER && generator.generateMoves(game).isEmpty()) {
+            over = winner(game);
+        }
+        if (over != ITerminalGame.NOT_OVER) {
+            return over == player ? Result.WIN : over == ITerminalGame.DRAW ? Result.DRAW : Result.LOSS;
+        }
+        final int won = prove(game, generator, player);
+        if (won == 0) {
+            return Result.WIN;
+        }
+        if (won < 0) {
+            return Result.UNKNOWN;
+        }
+        if (hashed && provenPositions.probe(((IHashableGame) game).hash()) == ITerminalGame.DRAW) {
+            return Result.DRAW;
+        }
+        final int lost = prove(game, generator, opponent(game, generator));
+        if (lost == 0) {
+            return Result.LOSS;
+        }
+        if (lost < 0) {
+            return Result.UNKNOWN;
+        }
+        if (hashed) {
+            provenPositions.store(((IHashableGame) game).hash(), ITerminalGame.DRAW);
+        }
+        return Result.DRAW;
+    }
+
+    /**
+     * @return the moves of both players from the solved position until the end of the game, following the moves proving the last WIN or LOSS.
+     *         The losing player may have other moves delaying the end of the game.
+     *         Empty if the last result is not a WIN or a LOSS, or if the result comes from the proven positions table
+     */
+    public List<M> getWinningLine() {
+        return winningLine;
+    }
+
+    /**
+     * @return the number of nodes of the tree built by the last proof
+     */
+    public int getNodes() {
+        return size;
+    }
+
+    /**
+     * @return the number of nodes expanded during the last search
+     */
+    public long getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /*
+     * The player playing after the player to play
+     */
+    private int opponent(G game, IMoveGenerator<M, G> generator) {
+        final M move = generator.generateMoves(game).get(0);
+        final int opponent = move.execute(game).currentPlayer();
+        move.cancel(game);
+        return opponent;
+    }
+
+    /*
+     * Returns 0 if the attacker wins, 1 if it does not, -1 if unknown
+     */
+    private int prove(G game, IMoveGenerator<M, G> generator, int attacker) {
+        this.attacker = attacker;
+        size = 0;
+        newNode(ROOT, null, game);
+        while (proofs[ROOT] != 0 && disproofs[ROOT] != 0) {
+            if (timer.isTimedOut()) {
+                return -1;
+            }
+            path.clear();
+            G current = game;
+            int node = ROOT;
+            while (childrenCounts[node] != NOT_EXPANDED) {
+                node = mostProvingChild(node);
+                @SuppressWarnings("unchecked")
+                final M move = (M) moves[node];
+                path.add(move);
+                current = move.execute(current);
+            }
+            final boolean expanded = expand(node, current, generator);
+            for (int i = path.size() - 1; i >= 0; i--) {
+                current = path.get(i).cancel(current);
+            }
+            if (!expanded) {
+                return -1;// the tree is full
+            }
+            update(node);
+        }
+        if (hashed) {
+            storeProvenPositions();
+        }
+        if (proofs[ROOT] == 0) {
+            buildWinningLine();
+            return 0;
+        }
+        return 1;
+    }
+
+    private void newNode(int parent, M move, G game) {
+        final int node = size++;
+        parents[node] = parent;
+        childrenCounts[node] = NOT_EXPANDED;
+        moves[node] = move;
+        attackerToPlay[node] = game.currentPlayer() == attacker;
+        proofs[node] = 1;
+        disproofs[node] = 1;
+        int winner = game instanceof ITerminalGame ? ((ITerminalGame) game).winner() : ITerminalGame.NOT_OVER;
+        if (hashed) {
+            hashes[node] = ((IHashableGame) game).hash();
+            if (winner == ITerminalGame.NOT_OVER) {
+                winner = provenPositions.probe(hashes[node]);
+            }
+        }
+        if (winner != ITerminalGame.NOT_OVER) {
+            childrenCounts[node] = 0;
+            setResult(node, winner);
+        }
+    }
+
+    private void setResult(int node, int winner) {
+        proofs[node] = winner == attacker ? 0 : INFINITY;
+        disproofs[node] = winner == attacker ? INFINITY : 0;
+    }
+
+    /*
+     * Create the children of the node. Returns false if the tree is full
+     */
+    private boolean expand(int node, G game, IMoveGenerator<M, G> generator) {
+        expandedNodes++;
+        final List<M> generatedMoves = generator.generateMoves(game);
+        if (generatedMoves.isEmpty()) {
+            childrenCounts[node] = 0;
+            setResult(node, winner(game));
+            return true;
+        }
+        if (size + generatedMoves.size() > capacity) {
+            return false;
+        }
+        firstChildren[node] = size;
+        childrenCounts[node] = generatedMoves.size();
+        for (final M move : generatedMoves) {
+            final G movedGame = move.execute(game);
+            newNode(node, move, movedGame);
+            move.cancel(movedGame);
+        }
+        return true;
+    }
+
+    /*
+     * Winner of a position where the player to play has no move: the player with the best evaluation
+     */
+    private int winner(G game) {
+        final double[] scores = game.evaluate(0);
+        int winner = 0;
+        for (int player = 1; player < scores.length; player++) {
+            if (scores[player] > scores[winner]) {
+                winner = player;
+            }
+        }
+        for (int player = 0; player < scores.length; player++) {
+            if (player != winner && scores[player] == scores[winner]) {
+                return ITerminalGame.DRAW;
+            }
+        }
+        return winner;
+    }
+
+    /*
+     * Recompute the proof and disproof numbers from the node up to the root
+     */
+    private void update(int node) {
+        while (true) {
+            final int count = childrenCounts[node];
+            if (count > 0) {
+                final int first = firstChildren[node];
+                int min;
+                long sum = 0;
+                if (attackerToPlay[node]) {
+                    min = INFINITY;
+                    for (int child = first; child < first + count; child++) {
+                        min = Math.min(min, proofs[child]);
+                        sum += disproofs[child];
+                    }
+                    proofs[node] = min;
+                    disproofs[node] = (int) Math.min(sum, INFINITY);
+                } else {
+                    min = INFINITY;
+                    for (int child = first; child < first + count; child++) {
+                        min = Math.min(min, disproofs[child]);
+                        sum += proofs[child];
+                    }
+                    proofs[node] = (int) Math.min(sum, INFINITY);
+                    disproofs[node] = min;
+                }
+            }
+            if (node == ROOT) {
+                return;
+            }
+            node = parents[node];
+        }
+    }
+
+    private int mostProvingChild(int node) {
+        final int first = firstChildren[node];
+        final int[] numbers = attackerToPlay[node] ? proofs : disproofs;
+        int best = first;
+        for (int child = first + 1; child < first + childrenCounts[node]; child++) {
+            if (numbers[child] < numbers[best]) {
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /*
+     * The positions won by the attacker are stored, the other ones may be lost or drawn
+     */
+    private void storeProvenPositions() {
+        for (int node = 0; node < size; node++) {
+            if (proofs[node] == 0) {
+                provenPositions.store(hashes[node], attacker);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void buildWinningLine() {
+        winningLine.clear();
+        int node = ROOT;
+        while (childrenCounts[node] > 0) {
+            final int first = firstChildren[node];
+            int next = first;
+            while (proofs[next] != 0) {
+                next++;
+            }
+            node = next;
+            winningLine.add((M) moves[node]);
+        }
+    }
+}
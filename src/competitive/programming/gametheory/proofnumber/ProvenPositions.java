@@ -0,0 +1,93 @@
+package competitive.programming.gametheory.proofnumber;
+
+import competitive.programming.gametheory.ITerminalGame;
+
+/**
+ * @author Manwe
+ *
+ *         Fixed size table of the positions whose result has been proven by the ProofNumberSearch, identified by their hash (IHashableGame).
+ *         It is kept between the searches: the solver starts from the positions it already proved, and the Minimax can use it
+ *         to stop searching the positions that are already decided.
+ *         Entries are stored in preallocated primitive arrays, so that probing and storing never allocates.
+ *
+ *         Convention: the result of a position is the winner as returned by ITerminalGame.winner: the index of the winner, or DRAW.
+ *         When the table is full, the new positions replace the ones having the same index.
+ */
+public class ProvenPositions {
+    private static final byte EMPTY = 0;
+
+    private final long[] hashes;
+    private final byte[] results;// winner + 2, EMPTY if there is no position
+    private final int mask;
+    private int size;
+
+    /**
+     * ProvenPositions constructor. All the memory is allocated here.
+     *
+     * @param entries
+     *            the minimum number of positions the table can hold. It is rounded up to the next power of two.
+     * @throws IllegalStateException
+     *             if the number of entries is not strictly positive
+     */
+    public ProvenPositions(int entries) {
+        if (entries <= 0) {
+            throw new IllegalStateException("A proven positions table must have at least one entry");
+        }
+        int capacity = 1;
+        while (capacity < entries) {
+            capacity <<= 1;
+        }
+        hashes = new long[capacity];
+        results = new byte[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Empty the table
+     */
+    public void clear() {
+        for (int i = 0; i < results.length; i++) {
+            results[i] = EMPTY;
+        }
+        size = 0;
+    }
+
+    /**
+     * @param hash
+     *            the hash of the position
+     * @return the winner of the position, DRAW, or ITerminalGame.NOT_OVER if the position has not been proven
+     */
+    public int probe(long hash) {
+        final int index = index(hash);
+        if (results[index] == EMPTY || hashes[index] != hash) {
+            return ITerminalGame.NOT_OVER;
+        }
+        return results[index] - 2;
+    }
+
+    /**
+     * @param hash
+     *            the hash of the position
+     * @param winner
+     *            the index of the winner, or ITerminalGame.DRAW
+     */
+    public void store(long hash, int winner) {
+        final int index = index(hash);
+        if (results[index] == EMPTY) {
+            size++;
+        }
+        hashes[index] = hash;
+        results[index] = (byte) (winner + 2);
+    }
+
+    /**
+     * @return the number of positions in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    private int index(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,365 @@
+package competitive.programming.gametheory.rollinghorizon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import competitive.programming.gametheory.IBufferedEvaluationGame;
+import competitive.programming.gametheory.ICloneableGame;
+import competitive.programming.gametheory.IMove;
+import competitive.programming.gametheory.IMoveGenerator;
+import competitive.programming.gametheory.mcts.IRolloutPolicy;
+import competitive.programming.timemanagement.Timer;
+
+/**
+ * @author Manwe
+ *
+ *         RollingHorizonEvolution class plans the next moves of a player with a genetic algorithm instead of a game tree search.
+ *         Each candidate is a fixed length sequence of moves of the player (the horizon), encoded as an int array:
+ *         the gene i selects the move played at the i-th turn of the player among the moves generated at that time.
+ *         The fitness of a candidate is the evaluation of the player after playing its sequence on a copy of the game,
+ *         the other players playing the moves of the opponent policy.
+ *         Each generation keeps the best candidates (elitism) and completes the population with the children of tournament selected parents
+ *         (uniform crossover, then mutation of some genes). The generations go on until the timer times out.
+ *
+ *         From a turn to another, the population is shifted by one move instead of being generated again:
+ *         the plans found during the previous turns are still good starting points.
+ *
+ *         The genes are stored in preallocated int arrays, so that a generation does not create any candidate object.
+ *         Compared to GeneticAlgorithm, there is no genotype class, fitness function or merger to write: the game and its moves are enough.
+ * @see <a href="https://en.wikipedia.org/wiki/Genetic_algorithm">Genetic algorithm</a>
+ *
+ * Hint: the opponent policy should be deterministic (default is the first generated move), otherwise the fitness of a candidate is noisy.
+ *
+ * @param <M>
+ *            The class that model a move in the game tree
+ * @param <G>
+ *            The class that model the Game state
+ */
+public class RollingHorizonEvolution<M extends IMove<G>, G extends ICloneableGame<G>> {
+
+    private final Timer timer;
+    private final int horizon;
+    private final int populationSize;
+
+    private int[][] population;
+    private int[][] offspring;
+    private double[] fitness;
+    private double[] offspringFitness;
+    private final int[] bestGenes;
+    private boolean initialized;
+
+    private IRolloutPolicy<M, G> opponentPolicy = (game, moves, random) -> moves.get(0);
+    private Random random = new Random();
+    private double mutationRate;
+    private int elites = 1;
+    private int tournamentSize = 2;
+
+    private G copy;
+    private int player;
+    private final List<M> path = new ArrayList<>();
+    private double[] evaluation = new double[0];
+    private double bestFitness;
+    private long generations;
+    private long evaluations;
+    private long elapsed;
+
+    /**
+     * RollingHorizonEvolution constructor. All the memory of the population is allocated here.
+     *
+     * @param timer
+     *            timer instance in order to stop the evolution when we are running out of time
+     * @param horizon
+     *            the number of moves of the player in each candidate sequence
+     * @param populationSize
+     *            the number of candidates of each generation
+     * @throws IllegalStateException
+     *             if the horizon is not strictly positive, or if the population has less than 2 candidates
+     */
+    public RollingHorizonEvolution(Timer timer, int horizon, int populationSize) {
+        if (horizon <= 0 || populationSize < 2) {
+            throw new IllegalStateException("Rolling horizon evolution needs at least one move per candidate and two candidates");
+        }
+        this.timer = timer;
+        this.horizon = horizon;
+        this.populationSize = populationSize;
+        this.mutationRate = 1.0 / horizon;
+        population = new int[populationSize][horizon];
+        offspring = new int[populationSize][horizon];
+        fitness = new double[populationSize];
+        offspringFitness = new double[populationSize];
+        bestGenes = new int[horizon];
+    }
+
+    /**
+     * @param opponentPolicy
+     *            the policy selecting the moves of the other players. Default is the first generated move
+     */
+    public void setOpponentPolicy(IRolloutPolicy<M, G> opponentPolicy) {
+        this.opponentPolicy = opponentPolicy;
+    }
+
+    /**
+     * @param random
+     *            the random generator of the evolution, also given to the opponent policy. Use a seeded one to replay a search
+     */
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * @param mutationRate
+     *            the probability of each gene of a child to be replaced by a random one. Default is 1/horizon
+     */
+    public void setMutationRate(double mutationRate) {
+        this.mutationRate = mutationRate;
+    }
+
+    /**
+     * @param elites
+     *            the number of best candidates copied unchanged to the next generation. Default is 1
+     * @throws IllegalStateException
+     *             if there is not room for at least one child
+     */
+    public void setElites(int elites) {
+        if (elites < 0 || elites >= populationSize) {
+            throw new IllegalStateException("The elites must leave room for at least one child");
+        }
+        this.elites = elites;
+    }
+
+    /**
+     * @param tournamentSize
+     *            the number of candidates drawn to select each parent, the fittest being selected. Default is 2
+     */
+    public void setTournamentSize(int tournamentSize) {
+        this.tournamentSize = tournamentSize;
+    }
+
+    /**
+     * Evolve the population until the timer times out
+     *
+     * @param game
+     *            The current state of the game, where the player plans its moves. It is copied once, and never modified
+     * @param generator
+     *            The move generator that will generate all the possible move of the playing player at each turn
+     * @return the first move of the best sequence found, or null if there is no move
+     */
+    public M best(G game, IMoveGenerator<M, G> generator) {
+        return best(game, generator, Long.MAX_VALUE);
+    }
+
+    /**
+     * Evolve the population until the timer times out or the number of generations is reached
+     *
+     * @param game
+     *            The current state of the game, where the player plans its moves. It is copied once, and never modified
+     * @param generator
+     *            The move generator that will generate all the possible move of the playing player at each turn
+     * @param maxGenerations
+     *            the maximum number of generations after the evaluation of the initial population
+     * @return the first move of the best sequence found, or null if there is no move
+     */
+    public M best(G game, IMoveGenerator<M, G> generator, long maxGenerations) {
+        final long start = System.nanoTime();
+        copy = game.copy();
+        player = game.currentPlayer();
+        generations = 0;
+        evaluations = 0;
+        bestFitness = Double.NEGATIVE_INFINITY;
+        if (!initialized) {
+            for (final int[] genes : population) {
+                randomize(genes, 0);
+            }
+            initialized = true;
+        }
+        if (evaluatePopulation(generator)) {
+            while (generations < maxGenerations && nextGeneration(generator)) {
+                generations++;
+            }
+        }
+        elapsed = System.nanoTime() - start;
+        final List<M> moves = generator.generateMoves(game);
+        return moves.isEmpty() ? null : moves.get(bestGenes[0] % moves.size());
+    }
+
+    /**
+     * Shift all the candidates by one move, so that the next search goes on from the plans of this one.
+     * Call it once per turn, after the player played the first move of the best sequence.
+     * The best sequence found replaces the first candidate, and a random move is added at the end of each candidate.
+     */
+    public void shift() {
+        if (!initialized) {
+            return;
+        }
+        System.arraycopy(bestGenes, 0, population[0], 0, horizon);
+        for (final int[] genes : population) {
+            System.arraycopy(genes, 1, genes, 0, horizon - 1);
+            randomize(genes, horizon - 1);
+        }
+    }
+
+    /**
+     * @return the fitness of the best sequence found during the last search
+     */
+    public double getBestFitness() {
+        return bestFitness;
+    }
+
+    /**
+     * @return the number of generations completed during the last search
+     */
+    public long getGenerations() {
+        return generations;
+    }
+
+    /**
+     * @return the number of sequences played during the last search
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return the number of generations per second of the last search
+     */
+    public double getGenerationsPerSecond() {
+        return elapsed == 0 ? 0 : generations * 1e9 / elapsed;
+    }
+
+    int[] genes(int candidate) {
+        return population[candidate];
+    }
+
+    int[] bestGenes() {
+        return bestGenes;
+    }
+
+    private void randomize(int[] genes, int from) {
+        for (int i = from; i < horizon; i++) {
+            genes[i] = random.nextInt() & Integer.MAX_VALUE;
+        }
+    }
+
+    /*
+     * Returns false if the timer timed out before all the candidates are evaluated
+     */
+    private boolean evaluatePopulation(IMoveGenerator<M, G> generator) {
+        for (int i = 0; i < populationSize; i++) {
+            if (timer.isTimedOut() && bestFitness > Double.NEGATIVE_INFINITY) {
+                return false;
+            }
+            fitness[i] = evaluate(population[i], generator);
+        }
+        return true;
+    }
+
+    /*
+     * Returns false if the timer timed out before the end of the generation: the population is then left unchanged
+     */
+    private boolean nextGeneration(IMoveGenerator<M, G> generator) {
+        for (int i = 0; i < elites; i++) {
+            final int elite = elite(i);
+            System.arraycopy(population[elite], 0, offspring[i], 0, horizon);
+            offspringFitness[i] = fitness[elite];
+        }
+        for (int i = elites; i < populationSize; i++) {
+            if (timer.isTimedOut()) {
+                return false;
+            }
+            final int[] first = population[tournament()];
+            final int[] second = population[tournament()];
+            final int[] child = offspring[i];
+            for (int gene = 0; gene < horizon; gene++) {
+                if (random.nextDouble() < mutationRate) {
+                    child[gene] = random.nextInt() & Integer.MAX_VALUE;
+                } else {
+                    child[gene] = random.nextBoolean() ? first[gene] : second[gene];
+                }
+            }
+            offspringFitness[i] = evaluate(child, generator);
+        }
+        final int[][] genes = population;
+        population = offspring;
+        offspring = genes;
+        final double[] scores = fitness;
+        fitness = offspringFitness;
+        offspringFitness = scores;
+        return true;
+    }
+
+    /*
+     * The i-th best candidate, for a few elites: the best ones are moved at the beginning of the population
+     */
+    private int elite(int rank) {
+        int best = rank;
+        for (int i = rank + 1; i < populationSize; i++) {
+            if (fitness[i] > fitness[best]) {
+                best = i;
+            }
+        }
+        if (best != rank) {
+            final int[] genes = population[rank];
+            population[rank] = population[best];
+            population[best] = genes;
+            final double score = fitness[rank];
+            fitness[rank] = fitness[best];
+            fitness[best] = score;
+        }
+        return rank;
+    }
+
+    private int tournament() {
+        int selected = random.nextInt(populationSize);
+        for (int i = 1; i < tournamentSize; i++) {
+            final int candidate = random.nextInt(populationSize);
+            if (fitness[candidate] > fitness[selected]) {
+                selected = candidate;
+            }
+        }
+        return selected;
+    }
+
+    /*
+     * Play the sequence on the copy of the game, evaluate it and restore the copy
+     */
+    private double evaluate(int[] genes, IMoveGenerator<M, G> generator) {
+        evaluations++;
+        path.clear();
+        G game = copy;
+        int gene = 0;
+        while (gene < horizon) {
+            final List<M> moves = generator.generateMoves(game);
+            if (moves.isEmpty()) {
+                break;// end of the game
+            }
+            final M move;
+            if (game.currentPlayer() == player) {
+                move = moves.get(genes[gene++] % moves.size());
+            } else {
+                move = opponentPolicy.select(game, moves, random);
+            }
+            path.add(move);
+            game = move.execute(game);
+        }
+        final double score;
+        if (game instanceof IBufferedEvaluationGame) {
+            final IBufferedEvaluationGame bufferedGame = (IBufferedEvaluationGame) game;
+            if (evaluation.length != bufferedGame.players()) {
+                evaluation = new double[bufferedGame.players()];
+            }
+            bufferedGame.evaluateInto(evaluation, path.size());
+            score = evaluation[player];
+        } else {
+            score = game.evaluate(path.size())[player];
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            game = path.get(i).cancel(game);
+        }
+        if (score > bestFitness) {
+            bestFitness = score;
+            System.arraycopy(genes, 0, bestGenes, 0, horizon);
+        }
+        return score;
+    }
+}
@@ -0,0 +1,498 @@
+package competitive.programming.gametheory.simultaneous;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import competitive.programming.gametheory.IBufferedEvaluationGame;
+import competitive.programming.gametheory.IMove;
+import competitive.programming.gametheory.IMoveGenerator;
+import competitive.programming.gametheory.ISimultaneousGame;
+import competitive.programming.gametheory.mcts.IRolloutPolicy;
+import competitive.programming.timemanagement.TimeoutException;
+import competitive.programming.timemanagement.Timer;
+
+/**
+ * @author Manwe
+ *
+ *         SimultaneousMonteCarloTreeSearch class allows to find the best move a player can do in a game where all the players move at the same time.
+ *         Serializing the players in a MonteCarloTreeSearch doubles the depth of the tree, and lets the players knowing the moves of the previous ones:
+ *         here each node holds the moves of every player, each player selects its move on its own (decoupled selection),
+ *         and the child of the node is the one reached by the joint action.
+ *
+ *         Two selections are available:
+ *         - the decoupled UCT (default): each player selects the move maximizing its own UCT value, ignoring the moves of the others.
+ *         - the regret matching: each player samples its move with a probability proportional to the regret of not having always played it.
+ *         The average strategy of the regret matching converges to a Nash equilibrium, which matters when the best play is a mixed one
+ *         (rock paper scissors like situations), where the decoupled UCT can be exploited.
+ *
+ *         The nodes and the moves are stored in preallocated primitive arrays indexed by int, so that no object is created per node.
+ *         The children of a node are only created for the joint actions that are explored.
+ *
+ *         Hint: the evaluations should be in [0,1] (for instance a winning probability) to use the default exploration constant.
+ *         Otherwise, scale the exploration constant to the range of your evaluations.
+ * @see <a href="https://en.wikipedia.org/wiki/Monte_Carlo_tree_search">Monte Carlo tree search</a>
+ *
+ * @param <M>
+ *            The class that model the move of a player
+ * @param <G>
+ *            The class that model the Game state
+ */
+public class SimultaneousMonteCarloTreeSearch<M extends IMove<G>, G extends ISimultaneousGame<M>> {
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+    private static final int NOT_EXPANDED = -1;
+    private static final int END_OF_GAME = -2;
+
+    private final Timer timer;
+    private final int players;
+    private final int capacity;
+    private final double[] evaluation;
+
+    // nodes
+    private final int[] visits;
+    private final int[] firstChildren;
+    private final int[] nextSiblings;
+    private final long[] jointActions;// key of the joint action leading to the node from its parent
+    private final int[] firstActions;// the moves of the player 0, followed by the moves of the other players
+    private final int[] actionsCounts;// indexed by node * players + player
+    private int nodes;
+
+    // moves of the players in the nodes
+    private final int[] actionVisits;
+    private final double[] actionRewards;
+    private final double[] regrets;
+    private final double[] strategySums;
+    private final Object[] actionMoves;
+    private int actions;
+
+    // the path of the current iteration
+    private int[] pathNodes = new int[16];
+    private int[] pathChoices;
+    private double[] pathProbabilities;
+    private final List<List<M>> jointMoves = new ArrayList<>();
+    private final List<List<M>> generatedMoves = new ArrayList<>();
+    private double[] strategy = new double[16];
+
+    private IRolloutPolicy<M, G> rolloutPolicy = (game, moves, random) -> moves.get(random.nextInt(moves.size()));
+    private Random random = new Random();
+    private double exploration = Math.sqrt(2);
+    private boolean regretMatching;
+    private double mixing = 0.1;
+    private int rolloutDepth = 50;
+
+    private long iterations;
+
+    /**
+     * SimultaneousMonteCarloTreeSearch constructor. All the memory of the tree is allocated here.
+     *
+     * @param timer
+     *            timer instance in order to stop the search when we are running out of time
+     * @param players
+     *            the number of players, which is the size of the arrays returned by the game evaluate method
+     * @param capacity
+     *            the maximum number of nodes of the tree, and of moves stored in its nodes. When it is full, the search goes on without adding new nodes
+     * @throws IllegalStateException
+     *             if the number of players or the capacity is not strictly positive
+     */
+    public SimultaneousMonteCarloTreeSearch(Timer timer, int players, int capacity) {
+        if (players <= 0 || capacity <= 0) {
+            throw new IllegalStateException("Monte Carlo tree search needs at least one player and one node");
+        }
+        this.timer = timer;
+        this.players = players;
+        this.capacity = capacity;
+        this.evaluation = new double[players];
+        visits = new int[capacity];
+        firstChildren = new int[capacity];
+        nextSiblings = new int[capacity];
+        jointActions = new long[capacity];
+        firstActions = new int[capacity];
+        actionsCounts = new int[capacity * players];
+        actionVisits = new int[capacity];
+        actionRewards = new double[capacity];
+        regrets = new double[capacity];
+        strategySums = new double[capacity];
+        actionMoves = new Object[capacity];
+        pathChoices = new int[pathNodes.length * players];
+        pathProbabilities = new double[pathNodes.length * players];
+        for (int player = 0; player < players; player++) {
+            generatedMoves.add(null);
+        }
+    }
+
+    /**
+     * @param rolloutPolicy
+     *            the policy selecting the move of each player during the simulations. Default is a uniform random selection
+     */
+    public void setRolloutPolicy(IRolloutPolicy<M, G> rolloutPolicy) {
+        this.rolloutPolicy = rolloutPolicy;
+    }
+
+    /**
+     * @param random
+     *            the random generator of the rollouts and of the regret matching. Use a seeded one to replay a search
+     */
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * @param exploration
+     *            the decoupled UCT exploration constant: the higher, the more the less visited moves are explored. Default is sqrt(2)
+     */
+    public void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    /**
+     * @param regretMatching
+     *            true to select the moves with the regret matching, false to use the decoupled UCT (default)
+     * @param mixing
+     *            the probability to select a move uniformly instead of following the regrets, so that every move keeps being explored. Usually 0.1
+     * @throws IllegalStateException
+     *             if the mixing is not in ]0,1]
+     */
+    public void setRegretMatching(boolean regretMatching, double mixing) {
+        if (mixing <= 0 || mixing > 1) {
+            throw new IllegalStateException("The mixing must be in ]0,1]");
+        }
+        this.regretMatching = regretMatching;
+        this.mixing = mixing;
+    }
+
+    /**
+     * @param rolloutDepth
+     *            the maximum number of joint actions played by a simulation before evaluating the game. Default is 50
+     */
+    public void setRolloutDepth(int rolloutDepth) {
+        this.rolloutDepth = rolloutDepth;
+    }
+
+    /**
+     * Search the best move of a player until the timer times out
+     *
+     * @param game
+     *            The current state of the game
+     * @param generators
+     *            The move generator of each player, indexed by player
+     * @param player
+     *            the player whose move is returned
+     * @return the most visited move of the player with the decoupled UCT, the most likely one in the average strategy with the regret matching,
+     *         or null if there is no move
+     */
+    public M best(G game, List<? extends IMoveGenerator<M, G>> generators, int player) {
+        return best(game, generators, player, Long.MAX_VALUE);
+    }
+
+    /**
+     * Search the best move of a player until the timer times out or the number of iterations is reached
+     *
+     * @param game
+     *            The current state of the game
+     * @param generators
+     *            The move generator of each player, indexed by player
+     * @param player
+     *            the player whose move is returned
+     * @param maxIterations
+     *            the maximum number of iterations
+     * @return the most visited move of the player with the decoupled UCT, the most likely one in the average strategy with the regret matching,
+     *         or null if there is no move
+     * @throws IllegalStateException
+     *             if there is not one generator per player
+     */
+    public M best(G game, List<? extends IMoveGenerator<M, G>> generators, int player, long maxIterations) {
+        if (generators.size() != players) {
+            throw new IllegalStateException("One move generator per player is needed");
+        }
+        nodes = 0;
+        actions = 0;
+        newNode();
+        iterations = 0;
+        try {
+            while (iterations < maxIterations) {
+                timer.timeCheck();
+                iterate(game, generators);
+                iterations++;
+            }
+        } catch (final TimeoutException e) {
+            // The game state is restored at the end of each iteration
+        }
+        return bestMove(player);
+    }
+
+    /**
+     * @return the number of iterations done during the last search
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the number of nodes of the tree built during the last search
+     */
+    public int getNodes() {
+        return nodes;
+    }
+
+    /*
+     * Probability of a move of the root: its share of the visits with the decoupled UCT, its probability in the average strategy with the regret matching
+     */
+    double rootStrategy(int player, int move) {
+        final int action = rootAction(player) + move;
+        if (!regretMatching) {
+            return (double) actionVisits[action] / visits[ROOT];
+        }
+        double sum = 0;
+        final int first = rootAction(player);
+        for (int i = first; i < first + actionsCounts[player]; i++) {
+            sum += strategySums[i];
+        }
+        return strategySums[action] / sum;
+    }
+
+    private int rootAction(int player) {
+        int action = firstActions[ROOT];
+        for (int i = 0; i < player; i++) {
+            action += actionsCounts[i];
+        }
+        return action;
+    }
+
+    private void iterate(G game, List<? extends IMoveGenerator<M, G>> generators) {
+        int node = ROOT;
+        int steps = 0;
+        while (true) {
+            if (firstActions[node] == NOT_EXPANDED && !expand(node, game, generators)) {
+                break;// the tree is full
+            }
+            if (firstActions[node] == END_OF_GAME) {
+                break;
+            }
+            ensurePath(steps);
+            pathNodes[steps] = node;
+            final List<M> joint = jointMoves(steps);
+            long key = 0;
+            long radix = 1;
+            int action = firstActions[node];
+            for (int player = 0; player < players; player++) {
+                final int count = actionsCounts[node * players + player];
+                final int choice = regretMatching ? sample(action, count, steps * players + player) : select(node, action, count);
+                pathChoices[steps * players + player] = choice;
+                joint.set(player, move(action + choice));
+                key += choice * radix;
+                radix *= count;
+                action += count;
+            }
+            game.execute(joint);
+            steps++;
+            node = child(node, key);
+            if (node == NONE || visits[node] == 0) {
+                break;
+            }
+        }
+        int rollouts = 0;
+        while (rollouts < rolloutDepth) {
+            final List<M> joint = jointMoves(steps + rollouts);
+            boolean ended = false;
+            for (int player = 0; player < players && !ended; player++) {
+                final List<M> moves = generators.get(player).generateMoves(game);
+                ended = moves.isEmpty();
+                if (!ended) {
+                    joint.set(player, rolloutPolicy.select(game, moves, random));
+                }
+            }
+            if (ended) {
+                break;
+            }
+            game.execute(joint);
+            rollouts++;
+        }
+        final double[] scores;
+        if (game instanceof IBufferedEvaluationGame) {
+            ((IBufferedEvaluationGame) game).evaluateInto(evaluation, steps + rollouts);
+            scores = evaluation;
+        } else {
+            scores = game.evaluate(steps + rollouts);
+        }
+        for (int i = steps + rollouts - 1; i >= 0; i--) {
+            game.cancel(jointMoves.get(i));
+        }
+        backPropagate(steps, node, scores);
+    }
+
+    private boolean expand(int node, G game, List<? extends IMoveGenerator<M, G>> generators) {
+        int total = 0;
+        for (int player = 0; player < players; player++) {
+            final List<M> moves = generators.get(player).generateMoves(game);
+            if (moves.isEmpty()) {
+                firstActions[node] = END_OF_GAME;
+                return true;
+            }
+            generatedMoves.set(player, moves);
+            total += moves.size();
+        }
+        if (actions + total > capacity) {
+            return false;
+        }
+        firstActions[node] = actions;
+        for (int player = 0; player < players; player++) {
+            final List<M> moves = generatedMoves.get(player);
+            actionsCounts[node * players + player] = moves.size();
+            for (final M move : moves) {
+                actionVisits[actions] = 0;
+                actionRewards[actions] = 0;
+                regrets[actions] = 0;
+                strategySums[actions] = 0;
+                actionMoves[actions] = move;
+                actions++;
+            }
+            generatedMoves.set(player, null);
+        }
+        return true;
+    }
+
+    private int newNode() {
+        final int node = nodes++;
+        visits[node] = 0;
+        firstChildren[node] = NONE;
+        nextSiblings[node] = NONE;
+        firstActions[node] = NOT_EXPANDED;
+        return node;
+    }
+
+    /*
+     * The child reached by the joint action, created if it has never been explored. NONE if the tree is full
+     */
+    private int child(int node, long key) {
+        for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+            if (jointActions[child] == key) {
+                return child;
+            }
+        }
+        if (nodes >= capacity) {
+            return NONE;
+        }
+        final int child = newNode();
+        jointActions[child] = key;
+        nextSiblings[child] = firstChildren[node];
+        firstChildren[node] = child;
+        return child;
+    }
+
+    /*
+     * Decoupled UCT: the first unvisited move of the player, otherwise the one maximizing its UCT value
+     */
+    private int select(int node, int first, int count) {
+        final double logVisits = Math.log(visits[node]);
+        int best = 0;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            final int action = first + i;
+            if (actionVisits[action] == 0) {
+                return i;
+            }
+            final double value = actionRewards[action] / actionVisits[action] + exploration * Math.sqrt(logVisits / actionVisits[action]);
+            if (value > bestValue) {
+                bestValue = value;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /*
+     * Regret matching: sample a move with a probability proportional to its positive regret, mixed with the uniform distribution.
+     * The current strategy is added to the average strategy.
+     */
+    private int sample(int first, int count, int pathIndex) {
+        if (strategy.length < count) {
+            strategy = new double[count * 2];
+        }
+        double positiveRegrets = 0;
+        for (int i = 0; i < count; i++) {
+            positiveRegrets += Math.max(0, regrets[first + i]);
+        }
+        for (int i = 0; i < count; i++) {
+            strategy[i] = positiveRegrets > 0 ? Math.max(0, regrets[first + i]) / positiveRegrets : 1.0 / count;
+            strategySums[first + i] += strategy[i];
+        }
+        double remaining = random.nextDouble();
+        int choice = count - 1;
+        for (int i = 0; i < count; i++) {
+            remaining -= (1 - mixing) * strategy[i] + mixing / count;
+            if (remaining < 0) {
+                choice = i;
+                break;
+            }
+        }
+        pathProbabilities[pathIndex] = (1 - mixing) * strategy[choice] + mixing / count;
+        return choice;
+    }
+
+    private void backPropagate(int steps, int leaf, double[] scores) {
+        if (leaf != NONE) {
+            visits[leaf]++;
+        }
+        for (int step = 0; step < steps; step++) {
+            final int node = pathNodes[step];
+            visits[node]++;
+            int first = firstActions[node];
+            for (int player = 0; player < players; player++) {
+                final int count = actionsCounts[node * players + player];
+                final int index = step * players + player;
+                final int action = first + pathChoices[index];
+                final double reward = scores[player];
+                actionVisits[action]++;
+                actionRewards[action] += reward;
+                if (regretMatching) {
+                    // the reward of the played move is estimated by importance sampling, the other moves would have got nothing
+                    for (int i = first; i < first + count; i++) {
+                        regrets[i] -= reward;
+                    }
+                    regrets[action] += reward / pathProbabilities[index];
+                }
+                first += count;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private M move(int action) {
+        return (M) actionMoves[action];
+    }
+
+    private M bestMove(int player) {
+        if (firstActions[ROOT] < 0) {
+            return null;
+        }
+        final int first = rootAction(player);
+        int best = first;
+        for (int action = first + 1; action < first + actionsCounts[player]; action++) {
+            if (regretMatching ? strategySums[action] > strategySums[best] : actionVisits[action] > actionVisits[best]) {
+                best = action;
+            }
+        }
+        return move(best);
+    }
+
+    private List<M> jointMoves(int step) {
+        while (jointMoves.size() <= step) {
+            final List<M> joint = new ArrayList<>(players);
+            for (int player = 0; player < players; player++) {
+                joint.add(null);
+            }
+            jointMoves.add(joint);
+        }
+        return jointMoves.get(step);
+    }
+
+    private void ensurePath(int step) {
+        if (step >= pathNodes.length) {
+            pathNodes = Arrays.copyOf(pathNodes, pathNodes.length * 2);
+            pathChoices = Arrays.copyOf(pathChoices, pathNodes.length * players);
+            pathProbabilities = Arrays.copyOf(pathProbabilities, pathNodes.length * players);
+        }
+    }
+}
@@ -39,8 +39,18 @@ public class Timer {
      * @throws TimeoutException
      */
     public void timeCheck() throws TimeoutException {
-        if (startTime > 0 && System.nanoTime() > timeout) {
+        if (isTimedOut()) {
             throw new TimeoutException();
         }
     }
+
+    /**
+     * Verify if the timeout has been reached, without throwing any exception.
+     * Useful in hot loops that prefer to unwind by themselves rather than paying for an exception.
+     *
+     * @return true if the timer has been started and the timeout has been reached
+     */
+    public boolean isTimedOut() {
+        return startTime > 0 && System.nanoTime() > timeout;
+    }
 }
@@ -0,0 +1,14 @@
+package competitive.programming.gametheory;
+
+import competitive.programming.gametheory.IBufferedEvaluationGame;
+import competitive.programming.gametheory.IZeroSumGame;
+
+/**
+ * TreeGame letting the engines evaluate it without allocating an array: same moves and same scores
+ */
+public class BufferedTreeGame extends TreeGame implements IBufferedEvaluationGame, IZeroSumGame {
+
+    public BufferedTreeGame(int players, int branching, long seed) {
+        super(players, branching, seed);
+    }
+}
@@ -0,0 +1,24 @@
+package competitive.programming.gametheory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class IncrementalTreeGenerator extends TreeGenerator {
+
+    private final TreeMove[] moves = new TreeMove[MAX_BRANCHING];
+
+    public IncrementalTreeGenerator() {
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = new IncrementalTreeMove(i);
+        }
+    }
+
+    @Override
+    public List<TreeMove> generateMoves(TreeGame game) {
+        final List<TreeMove> generated = new ArrayList<TreeMove>();
+        for (int i = 0; i < game.getBranching(); i++) {
+            generated.add(moves[i]);
+        }
+        return generated;
+    }
+}
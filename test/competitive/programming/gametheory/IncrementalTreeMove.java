@@ -0,0 +1,18 @@
+package competitive.programming.gametheory;
+
+import competitive.programming.gametheory.IIncrementalMove;
+
+/**
+ * TreeMove giving the change of the evaluation of a StrengthTreeGame
+ */
+public class IncrementalTreeMove extends TreeMove implements IIncrementalMove<TreeGame> {
+
+    public IncrementalTreeMove(int index) {
+        super(index);
+    }
+
+    @Override
+    public void addDeltas(TreeGame game, double[] scores) {
+        scores[game.currentPlayer()] += game.gain(getIndex());
+    }
+}
@@ -0,0 +1,72 @@
+package competitive.programming.gametheory;
+
+import java.util.List;
+
+import competitive.programming.gametheory.ISimultaneousGame;
+
+/**
+ * Two players repeat a matrix game a given number of turns: both choose a row at the same time, and each one gets the payoff of the pair of rows.
+ * The evaluation of a player is the average of its payoffs.
+ */
+public class MatrixGame implements ISimultaneousGame<MatrixMove> {
+
+    private final double[][][] payoffs;// indexed by player, row of player 0, row of player 1
+    private final int turns;
+    private final int[] choices = new int[2];
+    private final int[][] history;
+    private final double[] scores = new double[2];
+    private int turn;
+
+    public MatrixGame(double[][][] payoffs, int turns) {
+        this.payoffs = payoffs;
+        this.turns = turns;
+        this.history = new int[turns][2];
+    }
+
+    public void choose(int player, int row) {
+        choices[player] = row;
+    }
+
+    @Override
+    public void execute(List<MatrixMove> moves) {
+        for (final MatrixMove move : moves) {
+            move.execute(this);
+        }
+        history[turn][0] = choices[0];
+        history[turn][1] = choices[1];
+        for (int player = 0; player < 2; player++) {
+            scores[player] += payoffs[player][choices[0]][choices[1]];
+        }
+        turn++;
+    }
+
+    @Override
+    public void cancel(List<MatrixMove> moves) {
+        turn--;
+        for (int player = 0; player < 2; player++) {
+            scores[player] -= payoffs[player][history[turn][0]][history[turn][1]];
+        }
+    }
+
+    @Override
+    public int currentPlayer() {
+        return 0;// both players play at each turn
+    }
+
+    @Override
+    public double[] evaluate(int depth) {
+        return new double[] { scores[0] / turns, scores[1] / turns };
+    }
+
+    public int rows() {
+        return payoffs[0].length;
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    public boolean isOver() {
+        return turn == turns;
+    }
+}
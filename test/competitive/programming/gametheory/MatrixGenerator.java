@@ -0,0 +1,29 @@
+package competitive.programming.gametheory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import competitive.programming.gametheory.IMoveGenerator;
+
+public class MatrixGenerator implements IMoveGenerator<MatrixMove, MatrixGame> {
+
+    private final MatrixMove[] moves;
+
+    public MatrixGenerator(int player, int rows) {
+        moves = new MatrixMove[rows];
+        for (int i = 0; i < rows; i++) {
+            moves[i] = new MatrixMove(player, i);
+        }
+    }
+
+    @Override
+    public List<MatrixMove> generateMoves(MatrixGame game) {
+        final List<MatrixMove> generated = new ArrayList<MatrixMove>();
+        if (!game.isOver()) {
+            for (final MatrixMove move : moves) {
+                generated.add(move);
+            }
+        }
+        return generated;
+    }
+}
@@ -0,0 +1,34 @@
+package competitive.programming.gametheory;
+
+import competitive.programming.gametheory.IMove;
+
+public class MatrixMove implements IMove<MatrixGame> {
+
+    private final int player;
+    private final int row;
+
+    public MatrixMove(int player, int row) {
+        this.player = player;
+        this.row = row;
+    }
+
+    @Override
+    public MatrixGame execute(MatrixGame game) {
+        game.choose(player, row);
+        return game;
+    }
+
+    @Override
+    public MatrixGame cancel(MatrixGame game) {
+        return game;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    @Override
+    public String toString() {
+        return "Row[" + row + "]";
+    }
+}
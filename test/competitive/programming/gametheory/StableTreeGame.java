@@ -0,0 +1,21 @@
+package competitive.programming.gametheory;
+
+/**
+ * TreeGame whose evaluation is the strength of each player, the player to play getting the strength it is expected to gain with its next move.
+ * The evaluation does not swing from one depth to the next: the value found by a search is a good guess of the value of the next one.
+ */
+public class StableTreeGame extends TreeGame {
+    private static final long TEMPO = 700;// about half of the gain of the best move
+
+    public StableTreeGame(int players, int branching, long seed) {
+        super(players, branching, seed);
+    }
+
+    @Override
+    public void evaluateInto(double[] evaluation, int depth) {
+        super.evaluateInto(evaluation, depth);// counts the evaluation
+        for (int i = 0; i < evaluation.length; i++) {
+            evaluation[i] = strength(i) + (i == currentPlayer() ? TEMPO : 0);
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package competitive.programming.gametheory;
 
-import competitive.programming.gametheory.IGame;
+import competitive.programming.gametheory.ICloneableGame;
+import competitive.programming.gametheory.IHashableGame;
+import competitive.programming.gametheory.IPrimitiveGame;
 
 
-public class StickGame implements IGame {
+public class StickGame implements IHashableGame, ICloneableGame<StickGame>, IPrimitiveGame {
     private int player;
     private int sticksRemaining;
 
@@ -26,6 +28,11 @@ public class StickGame implements IGame {
         player = (player + 1) % 2;
     }
 
+    @Override
+    public StickGame copy() {
+        return new StickGame(player, sticksRemaining);
+    }
+
     @Override
     public int currentPlayer() {
         return player;
@@ -50,6 +57,23 @@ public class StickGame implements IGame {
         return evaluation;
     }
 
+    @Override
+    public void execute(int sticks) {
+        sticksRemaining -= sticks;
+        changePlayer();
+    }
+
+    @Override
+    public void cancel(int sticks) {
+        changePlayer();
+        sticksRemaining += sticks;
+    }
+
+    @Override
+    public long hash() {
+        return sticksRemaining * 2 + player;
+    }
+
     public int getSticksRemaining() {
         return sticksRemaining;
     }
@@ -57,4 +81,4 @@ public class StickGame implements IGame {
     public void setSticksRemaining(int sticksRemaining) {
         this.sticksRemaining = sticksRemaining;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,25 @@
+package competitive.programming.gametheory;
+
+import competitive.programming.gametheory.IPrimitiveMoveGenerator;
+
+/**
+ * Same moves as StickGenerator, the code of a move being the number of sticks taken
+ */
+public class StickPrimitiveGenerator implements IPrimitiveMoveGenerator<StickGame> {
+
+    @Override
+    public int maxMoves() {
+        return 3;
+    }
+
+    @Override
+    public int generateMoves(StickGame game, int[] moves) {
+        int size = 0;
+        for (int sticks = 3; sticks > 0; sticks--) {
+            if (game.getSticksRemaining() >= sticks) {
+                moves[size++] = sticks;
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,19 @@
+package competitive.programming.gametheory;
+
+/**
+ * TreeGame whose evaluation is the strength of each player instead of its share: a sum of the gains of the moves, that can be evaluated incrementally
+ */
+public class StrengthTreeGame extends TreeGame {
+
+    public StrengthTreeGame(int players, int branching, long seed) {
+        super(players, branching, seed);
+    }
+
+    @Override
+    public void evaluateInto(double[] evaluation, int depth) {
+        super.evaluateInto(evaluation, depth);// counts the evaluation
+        for (int i = 0; i < evaluation.length; i++) {
+            evaluation[i] = strength(i);
+        }
+    }
+}
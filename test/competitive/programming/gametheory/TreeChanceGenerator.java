@@ -0,0 +1,27 @@
+package competitive.programming.gametheory;
+
+import java.util.List;
+
+import competitive.programming.gametheory.IChanceMoveGenerator;
+
+/**
+ * Generator of a TreeGame where the last player is a random event: its moves are the outcomes, the move i having a probability proportional to i+1
+ */
+public class TreeChanceGenerator extends TreeGenerator implements IChanceMoveGenerator<TreeMove, TreeGame> {
+
+    @Override
+    public boolean isChanceNode(TreeGame game) {
+        return game.currentPlayer() == game.players() - 1;
+    }
+
+    @Override
+    public List<TreeMove> generateOutcomes(TreeGame game) {
+        return generateMoves(game);
+    }
+
+    @Override
+    public double probability(TreeGame game, TreeMove outcome) {
+        final int branching = game.getBranching();
+        return (outcome.getIndex() + 1) * 2.0 / (branching * (branching + 1));
+    }
+}
@@ -0,0 +1,180 @@
+package competitive.programming.gametheory;
+
+import competitive.programming.gametheory.ICloneableGame;
+import competitive.programming.gametheory.IHashableGame;
+import competitive.programming.gametheory.IPassableGame;
+import competitive.programming.gametheory.IPrimitiveGame;
+
+/**
+ * Synthetic game where each position has the same number of moves.
+ * Each move gives to the player playing it a pseudo random strength made of a bias depending on the move index (some moves are usually better than others)
+ * and of a noise depending on the path leading to the position.
+ * The scores of the players are their share of the total strength: integers summing to SCORES_SUM so that ties are rare and the engines can be compared.
+ */
+public class TreeGame implements IHashableGame, IPassableGame<TreeGame>, ICloneableGame<TreeGame>, IPrimitiveGame {
+    public static final int SCORES_SUM = 1000000;
+
+    private final int players;
+    private final int branching;
+    private static final int MAX_DEPTH = 1024;
+    private static final int STRENGTH = 1000;
+
+    private final long[] path = new long[MAX_DEPTH];
+    private final long[][] strengths;
+    private final long[] bias;
+    private int depth;
+    private int player;
+    private int evaluations;
+    private final double[] scores;
+
+    public TreeGame(int players, int branching, long seed) {
+        this.players = players;
+        this.branching = branching;
+        this.path[0] = seed;
+        this.strengths = new long[MAX_DEPTH][players];
+        this.scores = new double[players];
+        this.bias = new long[TreeGenerator.MAX_BRANCHING];
+        for (int i = 0; i < players; i++) {
+            strengths[0][i] = STRENGTH;
+        }
+        for (int i = 0; i < bias.length; i++) {
+            bias[i] = (mix(seed + i) >>> 1) % STRENGTH;
+        }
+    }
+
+    private TreeGame(TreeGame game) {
+        this.players = game.players;
+        this.branching = game.branching;
+        this.depth = game.depth;
+        this.player = game.player;
+        this.bias = game.bias;
+        this.scores = new double[players];
+        System.arraycopy(game.path, 0, path, 0, depth + 1);
+        this.strengths = new long[MAX_DEPTH][players];
+        for (int i = 0; i <= depth; i++) {
+            System.arraycopy(game.strengths[i], 0, strengths[i], 0, players);
+        }
+    }
+
+    @Override
+    public TreeGame copy() {
+        return new TreeGame(this);
+    }
+
+    @Override
+    public int currentPlayer() {
+        return player;
+    }
+
+    @Override
+    public double[] evaluate(int depth) {
+        final double[] evaluation = new double[players];
+        evaluateInto(evaluation, depth);
+        return evaluation;
+    }
+
+    public int players() {
+        return players;
+    }
+
+    /**
+     * Same evaluation as evaluate, in the given array. Only BufferedTreeGame lets the engines know it
+     */
+    public void evaluateInto(double[] evaluation, int depth) {
+        evaluations++;
+        final long[] strength = strengths[this.depth];
+        long total = 0;
+        for (int i = 0; i < players; i++) {
+            total += strength[i];
+        }
+        long remaining = SCORES_SUM;
+        for (int i = 0; i < players - 1; i++) {
+            final long score = SCORES_SUM * strength[i] / total;
+            evaluation[i] = score;
+            remaining -= score;
+        }
+        evaluation[players - 1] = remaining;
+    }
+
+    /**
+     * Same evaluation as evaluate for 2 players, without any allocation
+     */
+    public double evaluateScore(int depth) {
+        evaluateInto(scores, depth);
+        return scores[0] - scores[1];
+    }
+
+    @Override
+    public void execute(int move) {
+        final long gain = gain(move);
+        path[depth + 1] = mix(path[depth] + move + 1);
+        System.arraycopy(strengths[depth], 0, strengths[depth + 1], 0, players);
+        strengths[depth + 1][player] += gain;
+        depth++;
+        player = (player + 1) % players;
+    }
+
+    /**
+     * @return the strength the current player would gain playing the move
+     */
+    public long gain(int move) {
+        return bias[move] + (mix(path[depth] + move + 1) >>> 1) % STRENGTH;
+    }
+
+    public long strength(int player) {
+        return strengths[depth][player];
+    }
+
+    @Override
+    public boolean canPass() {
+        return true;
+    }
+
+    @Override
+    public TreeGame pass() {
+        path[depth + 1] = mix(~path[depth]);
+        System.arraycopy(strengths[depth], 0, strengths[depth + 1], 0, players);
+        depth++;
+        player = (player + 1) % players;
+        return this;
+    }
+
+    @Override
+    public TreeGame cancelPass() {
+        cancel();
+        return this;
+    }
+
+    @Override
+    public void cancel(int move) {
+        cancel();
+    }
+
+    public void cancel() {
+        depth--;
+        player = (player + players - 1) % players;
+    }
+
+    public int getBranching() {
+        return branching;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getEvaluations() {
+        return evaluations;
+    }
+
+    @Override
+    public long hash() {
+        return path[depth];
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,27 @@
+package competitive.programming.gametheory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import competitive.programming.gametheory.IMoveGenerator;
+
+public class TreeGenerator implements IMoveGenerator<TreeMove, TreeGame> {
+    public static final int MAX_BRANCHING = 64;
+
+    private final TreeMove[] moves = new TreeMove[MAX_BRANCHING];
+
+    public TreeGenerator() {
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = new TreeMove(i);
+        }
+    }
+
+    @Override
+    public List<TreeMove> generateMoves(TreeGame game) {
+        final List<TreeMove> generated = new ArrayList<TreeMove>();
+        for (int i = 0; i < game.getBranching(); i++) {
+            generated.add(moves[i]);
+        }
+        return generated;
+    }
+}
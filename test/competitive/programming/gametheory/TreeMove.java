@@ -0,0 +1,38 @@
+package competitive.programming.gametheory;
+
+import competitive.programming.gametheory.IOrderableMove;
+
+public class TreeMove implements IOrderableMove<TreeGame> {
+
+    private final int index;
+
+    public TreeMove(int index) {
+        this.index = index;
+    }
+
+    @Override
+    public TreeGame cancel(TreeGame game) {
+        game.cancel();
+        return game;
+    }
+
+    @Override
+    public TreeGame execute(TreeGame game) {
+        game.execute(index);
+        return game;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public int key() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "Move[" + index + "]";
+    }
+}
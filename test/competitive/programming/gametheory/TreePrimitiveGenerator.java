@@ -0,0 +1,22 @@
+package competitive.programming.gametheory;
+
+import competitive.programming.gametheory.IPrimitiveMoveGenerator;
+
+/**
+ * Same moves as TreeGenerator, the code of a move being its index
+ */
+public class TreePrimitiveGenerator implements IPrimitiveMoveGenerator<TreeGame> {
+
+    @Override
+    public int maxMoves() {
+        return TreeGenerator.MAX_BRANCHING;
+    }
+
+    @Override
+    public int generateMoves(TreeGame game, int[] moves) {
+        for (int i = 0; i < game.getBranching(); i++) {
+            moves[i] = i;
+        }
+        return game.getBranching();
+    }
+}
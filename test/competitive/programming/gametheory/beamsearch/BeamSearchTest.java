@@ -0,0 +1,186 @@
+package competitive.programming.gametheory.beamsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import competitive.programming.gametheory.ICloneableGame;
+import competitive.programming.gametheory.IHashableGame;
+import competitive.programming.gametheory.IMove;
+import competitive.programming.gametheory.IMoveGenerator;
+import competitive.programming.gametheory.TreeGame;
+import competitive.programming.gametheory.TreeGenerator;
+import competitive.programming.gametheory.TreeMove;
+import competitive.programming.timemanagement.Timer;
+
+public class BeamSearchTest {
+
+    /*
+     * Walk on a line from 0, one step left or right at each move, the closer to the target the better.
+     * Many sequences of moves lead to the same position.
+     */
+    private static class WalkGame implements ICloneableGame<WalkGame>, IHashableGame {
+        private final int target;
+        private int position;
+        private int steps;
+
+        WalkGame(int target) {
+            this.target = target;
+        }
+
+        @Override
+        public int currentPlayer() {
+            return 0;
+        }
+
+        @Override
+        public double[] evaluate(int depth) {
+            return new double[] { -Math.abs(target - position) };
+        }
+
+        @Override
+        public WalkGame copy() {
+            final WalkGame copy = new WalkGame(target);
+            copy.position = position;
+            copy.steps = steps;
+            return copy;
+        }
+
+        @Override
+        public long hash() {
+            return steps * 1000L + position;
+        }
+    }
+
+    private static class Step implements IMove<WalkGame> {
+        private final int direction;
+
+        Step(int direction) {
+            this.direction = direction;
+        }
+
+        @Override
+        public WalkGame execute(WalkGame game) {
+            game.position += direction;
+            game.steps++;
+            return game;
+        }
+
+        @Override
+        public WalkGame cancel(WalkGame game) {
+            game.position -= direction;
+            game.steps--;
+            return game;
+        }
+    }
+
+    private static final IMoveGenerator<Step, WalkGame> WALK_GENERATOR = game -> {
+        final List<Step> steps = new ArrayList<>();
+        steps.add(new Step(-1));
+        steps.add(new Step(1));
+        return steps;
+    };
+
+    @Test
+    public void wideBeamFindsTheBestSequence() {
+        final TreeGenerator generator = new TreeGenerator();
+        for (int seed = 0; seed < 10; seed++) {
+            final TreeGame game = new TreeGame(2, 4, seed);
+            final BeamSearch<TreeMove, TreeGame> beamSearch = new BeamSearch<TreeMove, TreeGame>(new Timer(), 1024);
+            final List<TreeMove> sequence = beamSearch.bestSequence(game, generator, 6);
+
+            assertEquals(0, game.getDepth());
+            assertEquals(reference(game, generator, 6), beamSearch.getBestScore(), 0);
+            for (final TreeMove move : sequence) {
+                move.execute(game);
+            }
+            assertEquals(beamSearch.getBestScore(), game.evaluate(0)[0], 0);
+        }
+    }
+
+    @Test
+    public void narrowBeamIsBetterThanGreedy() {
+        final TreeGenerator generator = new TreeGenerator();
+        for (int seed = 0; seed < 10; seed++) {
+            final TreeGame game = new TreeGame(2, 4, seed);
+            final BeamSearch<TreeMove, TreeGame> greedy = new BeamSearch<TreeMove, TreeGame>(new Timer(), 1);
+            final BeamSearch<TreeMove, TreeGame> beamSearch = new BeamSearch<TreeMove, TreeGame>(new Timer(), 16);
+            greedy.bestSequence(game, generator, 6);
+            beamSearch.bestSequence(game, generator, 6);
+
+            assertTrue(beamSearch.getBestScore() >= greedy.getBestScore());
+            assertTrue(beamSearch.getBestScore() <= reference(game, generator, 6));
+            assertTrue(beamSearch.getEvaluatedStates() < 4 + 16 * 4 * 5 + 1);
+        }
+    }
+
+    @Test
+    public void duplicatesAreKeptOnce() {
+        final BeamSearch<Step, WalkGame> beamSearch = new BeamSearch<Step, WalkGame>(new Timer(), 3);
+        final List<Step> sequence = beamSearch.bestSequence(new WalkGame(7), WALK_GENERATOR, 10);
+
+        // without duplicates, the 3 kept positions are always around the target, which is reached
+        assertEquals(0, beamSearch.getBestScore(), 0);
+        assertEquals(7, sequence.size());
+        assertTrue(beamSearch.getDuplicates() > 0);
+    }
+
+    @Test
+    public void parallelExpansionFindsTheSameSequence() {
+        final TreeGenerator generator = new TreeGenerator();
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        for (int seed = 0; seed < 10; seed++) {
+            final TreeGame game = new TreeGame(2, 6, seed);
+            final BeamSearch<TreeMove, TreeGame> beamSearch = new BeamSearch<TreeMove, TreeGame>(new Timer(), 50);
+            final List<TreeMove> expected = beamSearch.bestSequence(game, generator, 8);
+            beamSearch.setPool(pool);
+
+            assertEquals(expected, beamSearch.bestSequence(game, generator, 8));
+            assertEquals(0, game.getDepth());
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void searchStopsAtTimeout() {
+        final Timer timer = new Timer();
+        final BeamSearch<TreeMove, TreeGame> beamSearch = new BeamSearch<TreeMove, TreeGame>(timer, 100);
+        final TreeGame game = new TreeGame(2, 10, 0);
+
+        timer.startTimer(50);
+        final TreeMove move = beamSearch.best(game, new TreeGenerator(), 1000);
+
+        assertNotNull(move);
+        assertEquals(0, game.getDepth());
+        assertTrue(beamSearch.getReachedDepth() > 0);
+        assertTrue(beamSearch.getReachedDepth() < 1000);
+        System.out.println("Beam search depth reached in 50ms: " + beamSearch.getReachedDepth() + ", states: " + beamSearch.getEvaluatedStates());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void widthMustBePositive() {
+        new BeamSearch<TreeMove, TreeGame>(new Timer(), 0);
+    }
+
+    /*
+     * Best evaluation of player 0 over all the sequences of at most depth moves
+     */
+    private double reference(TreeGame game, TreeGenerator generator, int depth) {
+        double best = Double.NEGATIVE_INFINITY;
+        if (depth == 0) {
+            return best;
+        }
+        for (final TreeMove move : generator.generateMoves(game)) {
+            game.execute(move.getIndex());
+            best = Math.max(best, Math.max(game.evaluate(0)[0], reference(game, generator, depth - 1)));
+            game.cancel();
+        }
+        return best;
+    }
+}
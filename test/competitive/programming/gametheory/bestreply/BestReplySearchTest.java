@@ -0,0 +1,141 @@
+package competitive.programming.gametheory.bestreply;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import competitive.programming.gametheory.StrengthTreeGame;
+import competitive.programming.gametheory.TreeGame;
+import competitive.programming.gametheory.TreeGenerator;
+import competitive.programming.gametheory.TreeMove;
+import competitive.programming.gametheory.maxntree.IScoreConverter;
+import competitive.programming.gametheory.minimax.Minimax;
+import competitive.programming.timemanagement.TimeoutException;
+import competitive.programming.timemanagement.Timer;
+
+public class BestReplySearchTest {
+
+    private static final IScoreConverter OWN_SCORE = (rawScores, player) -> rawScores[player];
+
+    @Test
+    public void twoPlayersBestReplyIsMinimax() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        for (int seed = 0; seed < 10; seed++) {
+            final TreeGame game = new TreeGame(2, 6, seed);
+            final BestReplySearch<TreeMove, TreeGame> brs = new BestReplySearch<TreeMove, TreeGame>(new Timer(), OWN_SCORE);
+            final Minimax<TreeMove, TreeGame> minimax = new Minimax<TreeMove, TreeGame>(new Timer());
+
+            assertEquals(minimax.best(game, generator, 5).getIndex(), brs.best(game, generator, 5).getIndex());
+            assertEquals(0, game.getDepth());
+        }
+    }
+
+    @Test
+    public void bestReplyIsTheUnprunedSearch() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        for (int players = 3; players <= 4; players++) {
+            for (int seed = 0; seed < 10; seed++) {
+                final TreeGame game = new TreeGame(players, 5, seed);
+                final BestReplySearch<TreeMove, TreeGame> brs = new BestReplySearch<TreeMove, TreeGame>(new Timer(), OWN_SCORE);
+
+                assertEquals(referenceBest(game, generator, 4), brs.best(game, generator, 4).getIndex());
+                assertEquals(0, game.getDepth());
+            }
+        }
+    }
+
+    @Test
+    public void rootPlayerPlayingAgainIsSearched() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        for (int seed = 0; seed < 10; seed++) {
+            // a single player plays all the moves: no opponent ever replies
+            final TreeGame game = new StrengthTreeGame(1, 5, seed);
+            final BestReplySearch<TreeMove, TreeGame> brs = new BestReplySearch<TreeMove, TreeGame>(new Timer(), OWN_SCORE);
+
+            assertEquals(referenceBest(game, generator, 4), brs.best(game, generator, 4).getIndex());
+            assertEquals(0, game.getDepth());
+        }
+    }
+
+    /*
+     * Best reply search without any pruning: at each opponents level, each opponent in turn replies while the others pass
+     */
+    private static int referenceBest(TreeGame game, TreeGenerator generator, int depth) {
+        final int rootPlayer = game.currentPlayer();
+        final List<TreeMove> moves = generator.generateMoves(game);
+        int best = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (final TreeMove move : moves) {
+            move.execute(game);
+            final double value = referenceReply(game, generator, depth - 1, rootPlayer);
+            move.cancel(game);
+            if (best < 0 || value > bestValue) {
+                best = move.getIndex();
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+
+    private static double referenceRootPlayerMove(TreeGame game, TreeGenerator generator, int depth, int rootPlayer) {
+        if (depth == 0) {
+            return game.evaluate(0)[rootPlayer];
+        }
+        double best = Double.NEGATIVE_INFINITY;
+        for (final TreeMove move : generator.generateMoves(game)) {
+            move.execute(game);
+            best = Math.max(best, referenceReply(game, generator, depth - 1, rootPlayer));
+            move.cancel(game);
+        }
+        return best;
+    }
+
+    private static double referenceReply(TreeGame game, TreeGenerator generator, int depth, int rootPlayer) {
+        if (depth == 0) {
+            return game.evaluate(0)[rootPlayer];
+        }
+        if (game.currentPlayer() == rootPlayer) {
+            return referenceRootPlayerMove(game, generator, depth - 1, rootPlayer);
+        }
+        double best = Double.POSITIVE_INFINITY;
+        int passes = 0;
+        while (game.currentPlayer() != rootPlayer) {
+            for (final TreeMove move : generator.generateMoves(game)) {
+                move.execute(game);
+                int replyPasses = 0;
+                while (game.currentPlayer() != rootPlayer) {
+                    game.pass();
+                    replyPasses++;
+                }
+                best = Math.min(best, referenceRootPlayerMove(game, generator, depth - 1, rootPlayer));
+                for (int i = 0; i < replyPasses; i++) {
+                    game.cancelPass();
+                }
+                move.cancel(game);
+            }
+            game.pass();
+            passes++;
+        }
+        for (int i = 0; i < passes; i++) {
+            game.cancelPass();
+        }
+        return best;
+    }
+
+    @Test
+    public void searchesDeeperThanMaxN() throws TimeoutException {
+        final Timer timer = new Timer();
+        final BestReplySearch<TreeMove, TreeGame> brs = new BestReplySearch<TreeMove, TreeGame>(timer, OWN_SCORE);
+        final TreeGame game = new TreeGame(4, 10, 0);
+
+        timer.startTimer(100);
+        brs.bestIterativeDeepening(game, new TreeGenerator(), 100);
+
+        assertEquals(0, game.getDepth());
+        System.out.println("Best reply search depth reached in 100ms with 4 players: " + brs.getReachedDepth());
+        assertTrue(brs.getReachedDepth() > 3);
+    }
+}
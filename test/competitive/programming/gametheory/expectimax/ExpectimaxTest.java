@@ -0,0 +1,154 @@
+package competitive.programming.gametheory.expectimax;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import competitive.programming.gametheory.StickGame;
+import competitive.programming.gametheory.StickMove;
+import competitive.programming.gametheory.Tester;
+import competitive.programming.gametheory.TreeChanceGenerator;
+import competitive.programming.gametheory.TreeGame;
+import competitive.programming.gametheory.TreeMove;
+import competitive.programming.timemanagement.TimeoutException;
+import competitive.programming.timemanagement.Timer;
+
+public class ExpectimaxTest {
+
+    @Test
+    public void testStickGame() {
+        final Expectimax<StickMove, StickGame> expectimax = new Expectimax<StickMove, StickGame>(new Timer());
+
+        Tester.testAlgo((game, generator, maxdepth) -> expectimax.best(game, generator, maxdepth));
+    }
+
+    @Test
+    public void testStickGameIterativeDeepening() {
+        final Expectimax<StickMove, StickGame> expectimax = new Expectimax<StickMove, StickGame>(new Timer());
+
+        Tester.testAlgo((game, generator, maxdepth) -> expectimax.bestIterativeDeepening(game, generator, maxdepth));
+    }
+
+    @Test
+    public void findsTheExpectimaxValue() throws TimeoutException {
+        checkExpectimaxValue(new Expectimax<TreeMove, TreeGame>(new Timer()));
+    }
+
+    @Test
+    public void star1FindsTheExpectimaxValue() throws TimeoutException {
+        final Expectimax<TreeMove, TreeGame> expectimax = new Expectimax<TreeMove, TreeGame>(new Timer());
+        expectimax.setBounds(-TreeGame.SCORES_SUM, TreeGame.SCORES_SUM, false);
+        checkExpectimaxValue(expectimax);
+    }
+
+    @Test
+    public void star2FindsTheExpectimaxValue() throws TimeoutException {
+        final Expectimax<TreeMove, TreeGame> expectimax = new Expectimax<TreeMove, TreeGame>(new Timer());
+        expectimax.setBounds(-TreeGame.SCORES_SUM, TreeGame.SCORES_SUM, true);
+        checkExpectimaxValue(expectimax);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void boundsMustBeOrdered() {
+        new Expectimax<TreeMove, TreeGame>(new Timer()).setBounds(1, -1, false);
+    }
+
+    @Test
+    public void chanceNodesPruningVisitsLessNodes() throws TimeoutException {
+        final TreeChanceGenerator generator = new TreeChanceGenerator();
+        long expectimaxNodes = 0;
+        long star1Nodes = 0;
+        long star2Nodes = 0;
+        for (int seed = 0; seed < 10; seed++) {
+            final Expectimax<TreeMove, TreeGame> expectimax = new Expectimax<TreeMove, TreeGame>(new Timer());
+            final int expected = expectimax.best(new TreeGame(3, 5, seed), generator, 6).getIndex();
+            expectimaxNodes += expectimax.getVisitedNodes();
+
+            final Expectimax<TreeMove, TreeGame> star1 = new Expectimax<TreeMove, TreeGame>(new Timer());
+            star1.setBounds(-TreeGame.SCORES_SUM, TreeGame.SCORES_SUM, false);
+            assertEquals(expected, star1.best(new TreeGame(3, 5, seed), generator, 6).getIndex());
+            star1Nodes += star1.getVisitedNodes();
+
+            final Expectimax<TreeMove, TreeGame> star2 = new Expectimax<TreeMove, TreeGame>(new Timer());
+            star2.setBounds(-TreeGame.SCORES_SUM, TreeGame.SCORES_SUM, true);
+            assertEquals(expected, star2.best(new TreeGame(3, 5, seed), generator, 6).getIndex());
+            star2Nodes += star2.getVisitedNodes();
+        }
+        System.out.println("Nodes visited by expectimax: " + expectimaxNodes + ", star1: " + star1Nodes + ", star2: " + star2Nodes);
+        assertTrue(star1Nodes < expectimaxNodes);
+        assertTrue(star2Nodes < expectimaxNodes);
+        assertTrue(star2Nodes <= star1Nodes);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void searchMustStartWithAPlayer() throws TimeoutException {
+        final TreeGame game = new TreeGame(3, 5, 0);
+        game.execute(0);
+        game.execute(0);
+        new Expectimax<TreeMove, TreeGame>(new Timer()).best(game, new TreeChanceGenerator(), 3);
+    }
+
+    @Test
+    public void iterativeDeepeningStopsAtTimeout() throws TimeoutException {
+        final Timer timer = new Timer();
+        final Expectimax<TreeMove, TreeGame> expectimax = new Expectimax<TreeMove, TreeGame>(timer);
+        expectimax.setBounds(-TreeGame.SCORES_SUM, TreeGame.SCORES_SUM, true);
+        final TreeGame game = new TreeGame(3, 10, 0);
+
+        timer.startTimer(100);
+        expectimax.bestIterativeDeepening(game, new TreeChanceGenerator(), 100);
+
+        assertEquals(0, game.getDepth());
+        System.out.println("Expectimax depth reached in 100ms: " + expectimax.getReachedDepth());
+        assertTrue(expectimax.getReachedDepth() > 2);
+    }
+
+    private void checkExpectimaxValue(Expectimax<TreeMove, TreeGame> expectimax) throws TimeoutException {
+        final TreeChanceGenerator generator = new TreeChanceGenerator();
+        for (int seed = 0; seed < 10; seed++) {
+            final TreeGame game = new TreeGame(3, 4, seed);
+            final TreeMove move = expectimax.best(game, generator, 5);
+
+            game.execute(move.getIndex());
+            final double found = reference(game, generator, 4);
+            game.cancel();
+            double expected = Double.NEGATIVE_INFINITY;
+            for (final TreeMove reference : generator.generateMoves(game)) {
+                game.execute(reference.getIndex());
+                expected = Math.max(expected, reference(game, generator, 4));
+                game.cancel();
+            }
+            assertEquals(expected, found, 1e-6);
+            assertEquals(0, game.getDepth());
+        }
+    }
+
+    /*
+     * Expectimax value without pruning
+     */
+    private double reference(TreeGame game, TreeChanceGenerator generator, int depth) {
+        if (depth == 0) {
+            final double[] scores = game.evaluate(0);
+            return scores[0] - scores[1];
+        }
+        if (generator.isChanceNode(game)) {
+            double expected = 0;
+            for (final TreeMove outcome : generator.generateOutcomes(game)) {
+                game.execute(outcome.getIndex());
+                expected += generator.probability(game, outcome) * reference(game, generator, depth);
+                game.cancel();
+            }
+            return expected;
+        }
+        final boolean maximizing = game.currentPlayer() == 0;
+        double best = maximizing ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        for (final TreeMove move : generator.generateMoves(game)) {
+            game.execute(move.getIndex());
+            final double value = reference(game, generator, depth - 1);
+            game.cancel();
+            best = maximizing ? Math.max(best, value) : Math.min(best, value);
+        }
+        return best;
+    }
+}
@@ -1,15 +1,141 @@
 package competitive.programming.gametheory.maxntree;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
+import competitive.programming.gametheory.BufferedTreeGame;
+import competitive.programming.gametheory.IMove;
+import competitive.programming.gametheory.IMoveGenerator;
+import competitive.programming.gametheory.IPrimitiveGame;
+import competitive.programming.gametheory.IPrimitiveMoveGenerator;
+import competitive.programming.gametheory.IncrementalTreeGenerator;
 import competitive.programming.gametheory.StickGame;
 import competitive.programming.gametheory.StickMove;
+import competitive.programming.gametheory.StrengthTreeGame;
 import competitive.programming.gametheory.Tester;
+import competitive.programming.gametheory.TreeGame;
+import competitive.programming.gametheory.TreeGenerator;
+import competitive.programming.gametheory.TreeMove;
+import competitive.programming.gametheory.TreePrimitiveGenerator;
 import competitive.programming.gametheory.maxntree.MaxNTree;
+import competitive.programming.timemanagement.TimeoutException;
 import competitive.programming.timemanagement.Timer;
 
 public class MaxNTreeTest {
 
+    /*
+     * Game that does not allocate anything once created, in order to measure the allocations of the search
+     */
+    private static class BufferGame implements IPrimitiveGame {
+        private final double[] evaluation;
+        private final long[] hashes = new long[64];
+        private int depth;
+        private int player;
+
+        BufferGame(int players) {
+            evaluation = new double[players];
+            hashes[0] = 1;
+        }
+
+        @Override
+        public int currentPlayer() {
+            return player;
+        }
+
+        @Override
+        public double[] evaluate(int depth) {
+            for (int i = 0; i < evaluation.length; i++) {
+                evaluation[i] = ((hashes[this.depth] * (i + 1)) >>> 40) % 1000;
+            }
+            return evaluation;
+        }
+
+        void play(int move) {
+            hashes[depth + 1] = (hashes[depth] + move + 1) * 0x9E3779B97F4A7C15L;
+            depth++;
+            player = (player + 1) % evaluation.length;
+        }
+
+        void undo() {
+            depth--;
+            player = (player + evaluation.length - 1) % evaluation.length;
+        }
+
+        @Override
+        public void execute(int move) {
+            play(move);
+        }
+
+        @Override
+        public void cancel(int move) {
+            undo();
+        }
+    }
+
+    private static class BufferMove implements IMove<BufferGame> {
+        private final int index;
+
+        BufferMove(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public BufferGame cancel(BufferGame game) {
+            game.undo();
+            return game;
+        }
+
+        @Override
+        public BufferGame execute(BufferGame game) {
+            game.play(index);
+            return game;
+        }
+    }
+
+    private static class BufferGenerator implements IMoveGenerator<BufferMove, BufferGame> {
+        private final List<BufferMove> moves = new ArrayList<>();
+
+        BufferGenerator(int branching) {
+            for (int i = 0; i < branching; i++) {
+                moves.add(new BufferMove(i));
+            }
+        }
+
+        @Override
+        public List<BufferMove> generateMoves(BufferGame game) {
+            return moves;
+        }
+    }
+
+    private static class BufferPrimitiveGenerator implements IPrimitiveMoveGenerator<BufferGame> {
+        private final int branching;
+
+        BufferPrimitiveGenerator(int branching) {
+            this.branching = branching;
+        }
+
+        @Override
+        public int maxMoves() {
+            return branching;
+        }
+
+        @Override
+        public int generateMoves(BufferGame game, int[] moves) {
+            for (int i = 0; i < branching; i++) {
+                moves[i] = i;
+            }
+            return branching;
+        }
+    }
+
     @Test
     public void testStickGame() {
         final Timer timer = new Timer();
@@ -18,4 +144,202 @@ public class MaxNTreeTest {
         Tester.testAlgo((game, generator, maxdepth) -> maxNTree.best(game, generator, maxdepth));
     }
 
+    private static final IScoreConverter SHARE = (rawScores, player) -> rawScores[player];
+    private static final IScoreConverter WINNER = (rawScores, player) -> {
+        int winner = 0;
+        for (int i = 1; i < rawScores.length; i++) {
+            if (rawScores[i] > rawScores[winner]) {
+                winner = i;
+            }
+        }
+        return winner == player ? 1 : 0;
+    };
+
+    @Test
+    public void pruningFindsTheSameMovesWithShares() throws TimeoutException {
+        final long[] evaluations = comparePruning(SHARE, TreeGame.SCORES_SUM);
+        assertTrue(evaluations[1] <= evaluations[0]);
+        assertTrue(evaluations[2] < evaluations[1]);
+    }
+
+    @Test
+    public void pruningFindsTheSameMovesWithWinnerTakesAll() throws TimeoutException {
+        final long[] evaluations = comparePruning(WINNER, 1);
+        assertTrue(evaluations[1] < evaluations[0]);
+        assertTrue(evaluations[2] <= evaluations[1]);
+    }
+
+    /*
+     * Evaluations done by plain Max-N, Max-N with shallow pruning and Max-N with speculative pruning, which must find the same moves
+     */
+    private long[] comparePruning(IScoreConverter converter, double scoresSum) throws TimeoutException {
+        final long[] evaluations = new long[3];
+        for (int players = 3; players <= 4; players++) {
+            for (int seed = 0; seed < 20; seed++) {
+                final TreeGame plain = new TreeGame(players, 5, seed);
+                final TreeGame shallow = new TreeGame(players, 5, seed);
+                final TreeGame speculative = new TreeGame(players, 5, seed);
+                final int expected = search(plain, converter, null, scoresSum).getIndex();
+
+                assertEquals(expected, search(shallow, converter, false, scoresSum).getIndex());
+                assertEquals(expected, search(speculative, converter, true, scoresSum).getIndex());
+                evaluations[0] += plain.getEvaluations();
+                evaluations[1] += shallow.getEvaluations();
+                evaluations[2] += speculative.getEvaluations();
+            }
+        }
+        System.out.println("Max-N evaluations with 3 and 4 players at depth 5: plain " + evaluations[0] + ", shallow pruning " + evaluations[1]
+                + ", speculative pruning " + evaluations[2]);
+        return evaluations;
+    }
+
+    private TreeMove search(TreeGame game, IScoreConverter converter, Boolean speculativePruning, double scoresSum) throws TimeoutException {
+        final MaxNTree<TreeMove, TreeGame> maxNTree = new MaxNTree<TreeMove, TreeGame>(new Timer(), converter);
+        if (speculativePruning != null) {
+            maxNTree.setPruning(0, scoresSum, scoresSum, speculativePruning);
+        }
+        final TreeMove move = maxNTree.best(game, new TreeGenerator(), 4);
+        assertEquals(0, game.getDepth());
+        return move;
+    }
+
+    @Test
+    public void testStickGameWithPruning() {
+        final Timer timer = new Timer();
+        final MaxNTree<StickMove, StickGame> maxNTree = new MaxNTree<StickMove, StickGame>(timer, (rawScores, player) -> rawScores[player]);
+        maxNTree.setPruning(-100, 100, 0, true);
+
+        Tester.testAlgo((game, generator, maxdepth) -> maxNTree.best(game, generator, maxdepth));
+    }
+
+    @Test
+    public void allocationFreeModeFindsTheSameMoves() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        for (int seed = 0; seed < 20; seed++) {
+            final MaxNTree<TreeMove, TreeGame> plain = new MaxNTree<TreeMove, TreeGame>(new Timer(), SHARE);
+            final MaxNTree<TreeMove, TreeGame> allocationFree = new MaxNTree<TreeMove, TreeGame>(new Timer(), SHARE);
+            allocationFree.setAllocationFree(true, true);
+            final TreeGame game = new TreeGame(3, 5, seed);
+
+            assertEquals(plain.best(game, generator, 4).getIndex(), allocationFree.best(game, generator, 4).getIndex());
+            assertNotNull(allocationFree.bestGame());
+            assertEquals(0, game.getDepth());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void bestGameIsOnlyRecordedOnRequest() throws TimeoutException {
+        final MaxNTree<TreeMove, TreeGame> maxNTree = new MaxNTree<TreeMove, TreeGame>(new Timer(), SHARE);
+        maxNTree.setAllocationFree(true, false);
+        maxNTree.best(new TreeGame(3, 5, 0), new TreeGenerator(), 2);
+        maxNTree.bestGame();
+    }
+
+    @Test
+    public void allocationFreeModeDoesNotAllocatePerNode() throws TimeoutException {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long thread = Thread.currentThread().getId();
+        final BufferGenerator generator = new BufferGenerator(8);
+        final MaxNTree<BufferMove, BufferGame> maxNTree = new MaxNTree<BufferMove, BufferGame>(new Timer(), SHARE);
+        maxNTree.setAllocationFree(true, false);
+        final BufferGame game = new BufferGame(3);
+        for (int i = 0; i < 20; i++) {
+            maxNTree.best(game, generator, 5);// warm up, and preallocate the buffers
+        }
+
+        long start = threads.getThreadAllocatedBytes(thread);
+        maxNTree.best(game, generator, 2);// 585 nodes
+        final long smallSearch = threads.getThreadAllocatedBytes(thread) - start;
+        start = threads.getThreadAllocatedBytes(thread);
+        maxNTree.best(game, generator, 5);// 299593 nodes
+        final long bigSearch = threads.getThreadAllocatedBytes(thread) - start;
+
+        System.out.println("Bytes allocated by the allocation free Max-N: " + smallSearch + " for 585 nodes, " + bigSearch + " for 299593 nodes");
+        assertTrue(bigSearch - smallSearch < 1024);
+    }
+
+    @Test
+    public void primitiveMovesFindTheSameMoves() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        final TreePrimitiveGenerator primitiveGenerator = new TreePrimitiveGenerator();
+        for (int seed = 0; seed < 20; seed++) {
+            final MaxNTree<TreeMove, TreeGame> maxNTree = new MaxNTree<TreeMove, TreeGame>(new Timer(), SHARE);
+            final TreeGame game = new TreeGame(3, 5, seed);
+
+            assertEquals(maxNTree.best(game, generator, 4).getIndex(), maxNTree.best(game, primitiveGenerator, 4));
+            assertEquals(0, game.getDepth());
+        }
+    }
+
+    @Test
+    public void primitiveMovesDoNotAllocatePerNode() throws TimeoutException {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long thread = Thread.currentThread().getId();
+        final BufferPrimitiveGenerator generator = new BufferPrimitiveGenerator(8);
+        final MaxNTree<BufferMove, BufferGame> maxNTree = new MaxNTree<BufferMove, BufferGame>(new Timer(), SHARE);
+        final BufferGame game = new BufferGame(3);
+        for (int i = 0; i < 3; i++) {
+            maxNTree.best(game, generator, 5);// warm up, and preallocate the buffers
+        }
+
+        final long start = threads.getThreadAllocatedBytes(thread);
+        maxNTree.best(game, generator, 5);// 299593 nodes
+        final long allocated = threads.getThreadAllocatedBytes(thread) - start;
+
+        System.out.println("Bytes allocated by the Max-N with primitive moves: " + allocated + " for 299593 nodes");
+        assertTrue(allocated < 1024);
+    }
+
+    @Test
+    public void bufferedEvaluationFindsTheSameMoves() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        final TreePrimitiveGenerator primitiveGenerator = new TreePrimitiveGenerator();
+        for (int seed = 0; seed < 20; seed++) {
+            final MaxNTree<TreeMove, TreeGame> plain = new MaxNTree<TreeMove, TreeGame>(new Timer(), SHARE);
+            final MaxNTree<TreeMove, TreeGame> allocationFree = new MaxNTree<TreeMove, TreeGame>(new Timer(), SHARE);
+            allocationFree.setAllocationFree(true, false);
+            final int expected = plain.best(new TreeGame(3, 5, seed), generator, 4).getIndex();
+            final BufferedTreeGame game = new BufferedTreeGame(3, 5, seed);
+
+            assertEquals(expected, allocationFree.best(game, generator, 4).getIndex());
+            assertEquals(expected, allocationFree.best(game, primitiveGenerator, 4));
+        }
+    }
+
+    @Test
+    public void incrementalEvaluationFindsTheSameMoves() throws TimeoutException {
+        final IncrementalTreeGenerator generator = new IncrementalTreeGenerator();
+        for (int seed = 0; seed < 20; seed++) {
+            final MaxNTree<TreeMove, TreeGame> plain = new MaxNTree<TreeMove, TreeGame>(new Timer(), SHARE);
+            final MaxNTree<TreeMove, TreeGame> incremental = new MaxNTree<TreeMove, TreeGame>(new Timer(), SHARE);
+            incremental.setAllocationFree(true, false);
+            incremental.setIncrementalEvaluation(true, true);
+            final StrengthTreeGame game = new StrengthTreeGame(3, 5, seed);
+
+            assertEquals(plain.best(game, generator, 4).getIndex(), incremental.best(game, generator, 4).getIndex());
+            assertEquals(0, game.getDepth());
+        }
+    }
+
+    @Test
+    public void allocationFreeModeRestoresTheGameAtTimeout() throws TimeoutException {
+        final IncrementalTreeGenerator generator = new IncrementalTreeGenerator();
+        final Timer timer = new Timer();
+        final MaxNTree<TreeMove, TreeGame> maxNTree = new MaxNTree<TreeMove, TreeGame>(timer, SHARE);
+        maxNTree.setAllocationFree(true, false);
+        maxNTree.setIncrementalEvaluation(true, true);
+        final StrengthTreeGame game = new StrengthTreeGame(3, 5, 0);
+
+        timer.startTimer(20);
+        try {
+            maxNTree.best(game, generator, 100);
+            fail();
+        } catch (final TimeoutException e) {
+            assertEquals(0, game.getDepth());
+        }
+        // the incremental evaluations of the interrupted search have been canceled too
+        final MaxNTree<TreeMove, TreeGame> plain = new MaxNTree<TreeMove, TreeGame>(new Timer(), SHARE);
+        timer.startTimer(60000);
+        assertEquals(plain.best(game, generator, 4).getIndex(), maxNTree.best(game, generator, 4).getIndex());
+    }
 }
@@ -0,0 +1,89 @@
+package competitive.programming.gametheory.mcts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import competitive.programming.gametheory.StickGame;
+import competitive.programming.gametheory.StickMove;
+import competitive.programming.gametheory.Tester;
+import competitive.programming.gametheory.TreeGame;
+import competitive.programming.gametheory.TreeGenerator;
+import competitive.programming.gametheory.TreeMove;
+import competitive.programming.timemanagement.Timer;
+
+public class MonteCarloTreeSearchTest {
+
+    @Test
+    public void testStickGame() {
+        final Timer timer = new Timer();
+        final MonteCarloTreeSearch<StickMove, StickGame> mcts = new MonteCarloTreeSearch<StickMove, StickGame>(timer, 2, 100000);
+        mcts.setRandom(new Random(0));
+        mcts.setExploration(100);// the stick game evaluations are in [-100, 100]
+
+        Tester.testAlgo((game, generator, maxdepth) -> mcts.best(game, generator, 5000));
+    }
+
+    @Test
+    public void searchStopsAtTimeout() {
+        final Timer timer = new Timer();
+        final MonteCarloTreeSearch<TreeMove, TreeGame> mcts = new MonteCarloTreeSearch<TreeMove, TreeGame>(timer, 3, 1000000);
+        mcts.setExploration(TreeGame.SCORES_SUM);
+        mcts.setRolloutDepth(10);
+        final TreeGame game = new TreeGame(3, 10, 0);
+
+        timer.startTimer(50);
+        // only the timer can stop this search
+        final TreeMove move = mcts.best(game, new TreeGenerator());
+
+        assertNotNull(move);
+        assertEquals(0, game.getDepth());
+        assertTrue(mcts.getIterations() > 0);
+        System.out.println("MCTS iterations in 50ms: " + mcts.getIterations() + ", nodes: " + mcts.getNodes());
+
+        // once timed out, a search does not start any iteration
+        mcts.best(game, new TreeGenerator());
+        assertEquals(0, mcts.getIterations());
+        assertEquals(0, game.getDepth());
+    }
+
+    @Test
+    public void fullTreeKeepsSearching() {
+        final MonteCarloTreeSearch<TreeMove, TreeGame> mcts = new MonteCarloTreeSearch<TreeMove, TreeGame>(new Timer(), 2, 100);
+        final TreeGame game = new TreeGame(2, 10, 0);
+
+        assertNotNull(mcts.best(game, new TreeGenerator(), 1000));
+        assertEquals(1000, mcts.getIterations());
+        assertTrue(mcts.getNodes() <= 100);
+    }
+
+    @Test
+    public void treeIsKeptForTheNextTurn() {
+        final MonteCarloTreeSearch<TreeMove, TreeGame> mcts = new MonteCarloTreeSearch<TreeMove, TreeGame>(new Timer(), 2, 1000000);
+        mcts.setRandom(new Random(0));
+        mcts.setExploration(TreeGame.SCORES_SUM);
+        mcts.setTreeReuse(true);
+        final TreeGenerator generator = new TreeGenerator();
+        final TreeGame game = new TreeGame(2, 5, 0);
+
+        final TreeMove move = mcts.best(game, generator, 10000);
+        final int nodes = mcts.getNodes();
+        game.execute(move.getIndex());
+        mcts.play(move);
+        final int keptVisits = mcts.getRootVisits();
+        final int keptNodes = mcts.getNodes();
+
+        assertTrue(keptVisits > 0);
+        assertTrue(keptNodes < nodes);
+        assertEquals(0, mcts.spareMoves());// the released nodes do not hold their moves anymore
+        assertNotNull(mcts.best(game, generator, 1000));
+        assertEquals(keptVisits + 1000, mcts.getRootVisits());
+
+        mcts.play(new TreeMove(-1));// not in the tree
+        assertEquals(0, mcts.getNodes());
+    }
+}
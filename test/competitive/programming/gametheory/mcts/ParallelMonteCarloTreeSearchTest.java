@@ -0,0 +1,82 @@
+package competitive.programming.gametheory.mcts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import competitive.programming.gametheory.StickGame;
+import competitive.programming.gametheory.StickMove;
+import competitive.programming.gametheory.Tester;
+import competitive.programming.gametheory.TreeGame;
+import competitive.programming.gametheory.TreeGenerator;
+import competitive.programming.gametheory.TreeMove;
+import competitive.programming.gametheory.mcts.ParallelMonteCarloTreeSearch.ParallelMode;
+import competitive.programming.timemanagement.Timer;
+
+public class ParallelMonteCarloTreeSearchTest {
+
+    @Test
+    public void testStickGameTreeParallel() {
+        testStickGame(ParallelMode.TREE);
+    }
+
+    @Test
+    public void testStickGameRootParallel() {
+        testStickGame(ParallelMode.ROOT);
+    }
+
+    private void testStickGame(ParallelMode mode) {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final ParallelMonteCarloTreeSearch<StickMove, StickGame> mcts = new ParallelMonteCarloTreeSearch<StickMove, StickGame>(new Timer(), 2, 100000,
+                pool);
+        mcts.setParallelMode(mode);
+        mcts.setSeed(0);
+        mcts.setExploration(100);// the stick game evaluations are in [-100, 100]
+        mcts.setVirtualLoss(100);
+
+        try {
+            Tester.testAlgo((game, generator, maxdepth) -> mcts.best(game, generator, 8000));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void playoutsPerSecondBenchmark() {
+        final TreeGenerator generator = new TreeGenerator();
+        for (final ParallelMode mode : ParallelMode.values()) {
+            for (int threads = 1; threads <= 4; threads *= 2) {
+                final Timer timer = new Timer();
+                final ForkJoinPool pool = new ForkJoinPool(threads);
+                final ParallelMonteCarloTreeSearch<TreeMove, TreeGame> mcts = new ParallelMonteCarloTreeSearch<TreeMove, TreeGame>(timer, 3, 1000000,
+                        pool);
+                mcts.setParallelMode(mode);
+                mcts.setExploration(TreeGame.SCORES_SUM);
+                mcts.setVirtualLoss(TreeGame.SCORES_SUM);
+                mcts.setRolloutDepth(10);
+                final TreeGame game = new TreeGame(3, 10, 0);
+                final TreeMove move;
+                final long elapsed;
+                try {
+                    // warm up
+                    timer.startTimer(100);
+                    mcts.best(game, generator);
+
+                    timer.startTimer(200);
+                    move = mcts.best(game, generator);
+                    elapsed = timer.currentTimeTakenInNanoSeconds();
+                } finally {
+                    pool.shutdown();
+                }
+
+                assertNotNull(move);
+                assertEquals(0, game.getDepth());
+                System.out.println("MCTS " + mode + " parallel with " + threads + " threads: " + mcts.getIterations() * 1000000000L / elapsed
+                        + " playouts/s, " + mcts.getNodes() + " nodes");
+            }
+        }
+    }
+}
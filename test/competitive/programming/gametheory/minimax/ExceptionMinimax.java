@@ -0,0 +1,138 @@
+package competitive.programming.gametheory.minimax;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import competitive.programming.gametheory.IGame;
+import competitive.programming.gametheory.IMove;
+import competitive.programming.gametheory.IMoveGenerator;
+import competitive.programming.timemanagement.TimeoutException;
+import competitive.programming.timemanagement.Timer;
+
+/**
+ * The alpha beta search of the Minimax before the exceptions were removed from its hot path: the cutoffs throw an AlphaBetaPrunningException
+ * and the timer is checked with timeCheck() at every move. It visits the same nodes as the Minimax without any option,
+ * so that the benchmark can compare the two ways of signalling a cutoff.
+ */
+class ExceptionMinimax<M extends IMove<G>, G extends IGame> {
+
+    private static class AlphaBetaPrunningException extends Exception {
+        private static final long serialVersionUID = 4338636523317720681L;
+    }
+
+    private class MinMaxEvaluatedMove implements Comparable<MinMaxEvaluatedMove> {
+        private final M move;
+        private final double value;
+        private final MinMaxEvaluatedMove bestSubMove;
+
+        public MinMaxEvaluatedMove(M move, double value, MinMaxEvaluatedMove bestSubMove) {
+            this.move = move;
+            this.value = value;
+            this.bestSubMove = bestSubMove;
+        }
+
+        @Override
+        public int compareTo(MinMaxEvaluatedMove o) {
+            if (value > o.value) {
+                return 1;
+            } else if (value < o.value) {
+                return -1;
+            }
+            return 0;
+        }
+    }
+
+    private final Timer timer;
+    private MinMaxEvaluatedMove killer;
+    private long visitedNodes;
+
+    ExceptionMinimax(Timer timer) {
+        this.timer = timer;
+    }
+
+    long getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    private List<MinMaxEvaluatedMove> evaluateSubPossibilities(G game, IMoveGenerator<M, G> generator, List<M> generatedMoves, int depth, double alpha,
+            double beta, boolean player, MinMaxEvaluatedMove previousAnalysisBest) throws AlphaBetaPrunningException, TimeoutException {
+        final List<MinMaxEvaluatedMove> moves = new LinkedList<MinMaxEvaluatedMove>();
+
+        List<M> orderedMoves;
+
+        // killer first
+        if (previousAnalysisBest != null && generatedMoves.contains(previousAnalysisBest.move)) {
+            orderedMoves = new ArrayList<>();
+            final M killerMove = generatedMoves.remove(generatedMoves.indexOf(previousAnalysisBest.move));
+            orderedMoves.add(killerMove);
+            orderedMoves.addAll(generatedMoves);
+        } else {
+            orderedMoves = generatedMoves;
+        }
+
+        for (final M move : orderedMoves) {
+            timer.timeCheck();
+            final G movedGame = move.execute(game);
+            MinMaxEvaluatedMove child = null;
+            try {
+                final MinMaxEvaluatedMove bestSubChild = minimax(movedGame, generator, depth - 1, alpha, beta, !player,
+                        previousAnalysisBest == null ? null : previousAnalysisBest.bestSubMove);
+                child = new MinMaxEvaluatedMove(move, bestSubChild.value, bestSubChild);
+            } catch (final AlphaBetaPrunningException e) {
+                move.cancel(game);
+            }
+            if (child != null) {
+                if (player) {
+                    alpha = Math.max(alpha, child.value);
+                } else {
+                    beta = Math.min(beta, child.value);
+                }
+                if (beta <= alpha) {
+                    move.cancel(game);
+                    throw new AlphaBetaPrunningException();
+                }
+                moves.add(child);
+                move.cancel(game);
+            }
+        }
+        return moves;
+    }
+
+    private MinMaxEvaluatedMove minimax(G game, IMoveGenerator<M, G> generator, int depth, double alpha, double beta, boolean player,
+            MinMaxEvaluatedMove previousAnalysisBest) throws AlphaBetaPrunningException, TimeoutException {
+        visitedNodes++;
+        if (depth == 0) {
+            return new MinMaxEvaluatedMove(null, score(game.evaluate(depth)), null);// Evaluated game status
+        }
+        final List<M> generatedMoves = generator.generateMoves(game);
+        if (generatedMoves.isEmpty()) {
+            return new MinMaxEvaluatedMove(null, score(game.evaluate(depth)), null);// Real end game status
+        }
+        final List<MinMaxEvaluatedMove> moves = evaluateSubPossibilities(game, generator, generatedMoves, depth, alpha, beta, player, previousAnalysisBest);
+        if (moves.size() > 0) {
+            Collections.sort(moves);
+            return moves.get(player ? (moves.size() - 1) : 0);
+        }
+        // All the moves have been pruned: none of them is better than the bound we received
+        return new MinMaxEvaluatedMove(null, player ? alpha : beta, null);
+    }
+
+    M best(final G game, final IMoveGenerator<M, G> generator, int depthmax) throws TimeoutException {
+        visitedNodes = 0;
+        try {
+            final MinMaxEvaluatedMove best = minimax(game, generator, depthmax, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                    game.currentPlayer() == 0, killer);
+            killer = best;
+            return best.move;
+        } catch (final AlphaBetaPrunningException e) {
+            // Should never happen
+            throw new RuntimeException("evaluated move found with value not between + infinity and - infinity...");
+        }
+    }
+
+    private double score(double[] scores) {
+        return scores[0] - scores[1];
+    }
+}
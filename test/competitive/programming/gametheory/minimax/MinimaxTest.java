@@ -1,14 +1,65 @@
 package competitive.programming.gametheory.minimax;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import org.junit.Test;
 
+import competitive.programming.gametheory.BufferedTreeGame;
+import competitive.programming.gametheory.IQuiescenceMoveGenerator;
+import competitive.programming.gametheory.IncrementalTreeGenerator;
 import competitive.programming.gametheory.StickGame;
+import competitive.programming.gametheory.StickGenerator;
 import competitive.programming.gametheory.StickMove;
+import competitive.programming.gametheory.StableTreeGame;
+import competitive.programming.gametheory.StickPrimitiveGenerator;
+import competitive.programming.gametheory.StrengthTreeGame;
 import competitive.programming.gametheory.Tester;
+import competitive.programming.gametheory.TreeGame;
+import competitive.programming.gametheory.TreeGenerator;
+import competitive.programming.gametheory.TreeMove;
+import competitive.programming.gametheory.TreePrimitiveGenerator;
 import competitive.programming.gametheory.minimax.Minimax;
+import competitive.programming.gametheory.minimax.Minimax.SearchMode;
+import competitive.programming.gametheory.minimax.TranspositionTable;
+import competitive.programming.timemanagement.TimeoutException;
 import competitive.programming.timemanagement.Timer;
 
 public class MinimaxTest {
+
+    private static class NoisyTreeGenerator extends TreeGenerator implements IQuiescenceMoveGenerator<TreeMove, TreeGame> {
+        @Override
+        public List<TreeMove> generateNoisyMoves(TreeGame game) {
+            // only the two first moves are noisy
+            return generateMoves(game).subList(0, 2);
+        }
+    }
+
+    /*
+     * Stick game whose evaluation does not allocate anything, in order to measure the allocations of the search
+     */
+    private static class BufferStickGame extends StickGame {
+        private final double[] evaluation = new double[2];
+
+        BufferStickGame(int currentPlayer, int sticksRemaining) {
+            super(currentPlayer, sticksRemaining);
+        }
+
+        @Override
+        public double[] evaluate(int depth) {
+            final double eval = getSticksRemaining() == 0 ? -100 : getSticksRemaining() % 4 == 1 ? 1 : -1;
+            evaluation[currentPlayer()] = eval;
+            evaluation[1 - currentPlayer()] = -eval;
+            return evaluation;
+        }
+    }
+
     @Test
     public void testStickGame() {
         final Timer timer = new Timer();
@@ -16,4 +67,607 @@ public class MinimaxTest {
 
         Tester.testAlgo((game, generator, maxdepth) -> minimax.best(game, generator, maxdepth));
     }
+
+    @Test
+    public void testStickGameWithTranspositionTable() {
+        final Timer timer = new Timer();
+        final Minimax<StickMove, StickGame> minimax = new Minimax<StickMove, StickGame>(timer);
+        final TranspositionTable table = new TranspositionTable(1024);
+        minimax.setTranspositionTable(table);
+
+        Tester.testAlgo((game, generator, maxdepth) -> minimax.best(game, generator, maxdepth));
+        assertTrue(table.getHits() > 0);
+        assertTrue(table.getCutoffs() > 0);
+    }
+
+    @Test
+    public void testStickGameIterativeDeepening() {
+        final Timer timer = new Timer();
+        final Minimax<StickMove, StickGame> minimax = new Minimax<StickMove, StickGame>(timer);
+
+        Tester.testAlgo((game, generator, maxdepth) -> minimax.bestIterativeDeepening(game, generator, maxdepth));
+    }
+
+    @Test
+    public void iterativeDeepeningStopsAtTimeout() throws TimeoutException {
+        final Timer timer = new Timer();
+        final Minimax<StickMove, StickGame> minimax = new Minimax<StickMove, StickGame>(timer);
+        final StickGame game = new StickGame(0, 1000);
+
+        timer.startTimer(20);
+        final StickMove move = minimax.bestIterativeDeepening(game, new StickGenerator(), 1000);
+
+        assertNotNull(move);
+        assertTrue(minimax.getReachedDepth() > 1);
+        assertTrue(minimax.getReachedDepth() < 1000);
+        assertEquals(1000, game.getSticksRemaining());
+    }
+
+    @Test
+    public void testStickGamePrincipalVariationSearch() {
+        final Timer timer = new Timer();
+        final Minimax<StickMove, StickGame> minimax = new Minimax<StickMove, StickGame>(timer);
+        minimax.setSearchMode(SearchMode.PRINCIPAL_VARIATION);
+
+        Tester.testAlgo((game, generator, maxdepth) -> minimax.bestIterativeDeepening(game, generator, maxdepth));
+    }
+
+    @Test
+    public void principalVariationSearchFindsTheSameMoves() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        long alphaBetaNodes = 0;
+        long principalVariationNodes = 0;
+        for (int seed = 0; seed < 20; seed++) {
+            final Minimax<TreeMove, TreeGame> alphaBeta = new Minimax<TreeMove, TreeGame>(new Timer());
+            final Minimax<TreeMove, TreeGame> principalVariation = new Minimax<TreeMove, TreeGame>(new Timer());
+            // the null windows only pay off when the first move is usually the best one
+            alphaBeta.setMoveOrdering(TreeGenerator.MAX_BRANCHING);
+            principalVariation.setMoveOrdering(TreeGenerator.MAX_BRANCHING);
+            principalVariation.setSearchMode(SearchMode.PRINCIPAL_VARIATION);
+
+            final TreeMove expected = alphaBeta.bestIterativeDeepening(new TreeGame(2, 6, seed), generator, 7);
+            final TreeMove found = principalVariation.bestIterativeDeepening(new TreeGame(2, 6, seed), generator, 7);
+
+            assertEquals(expected.getIndex(), found.getIndex());
+            alphaBetaNodes += alphaBeta.getVisitedNodes();
+            principalVariationNodes += principalVariation.getVisitedNodes();
+        }
+        System.out.println("Nodes visited at depth 7: alpha beta " + alphaBetaNodes + ", principal variation search " + principalVariationNodes);
+        assertTrue(principalVariationNodes < alphaBetaNodes);
+    }
+
+    @Test
+    public void testStickGameAspirationWindow() {
+        final Timer timer = new Timer();
+        final Minimax<StickMove, StickGame> minimax = new Minimax<StickMove, StickGame>(timer);
+        minimax.setAspirationWindow(0.5);
+
+        Tester.testAlgo((game, generator, maxdepth) -> minimax.bestIterativeDeepening(game, generator, maxdepth));
+    }
+
+    @Test
+    public void aspirationWindowFindsTheSameMoves() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        long fullWindowNodes = 0;
+        long aspirationNodes = 0;
+        long researches = 0;
+        for (int seed = 0; seed < 20; seed++) {
+            final Minimax<TreeMove, TreeGame> fullWindow = new Minimax<TreeMove, TreeGame>(new Timer());
+            final Minimax<TreeMove, TreeGame> aspiration = new Minimax<TreeMove, TreeGame>(new Timer());
+            aspiration.setAspirationWindow(TreeGame.SCORES_SUM / 10);
+
+            final TreeMove expected = fullWindow.bestIterativeDeepening(new TreeGame(2, 6, seed), generator, 6);
+            final TreeMove found = aspiration.bestIterativeDeepening(new TreeGame(2, 6, seed), generator, 6);
+
+            assertEquals(expected.getIndex(), found.getIndex());
+            fullWindowNodes += fullWindow.getVisitedNodes();
+            aspirationNodes += aspiration.getVisitedNodes();
+            researches += aspiration.getAspirationFailLows() + aspiration.getAspirationFailHighs();
+        }
+        System.out.println("Nodes visited at depth 6: full window " + fullWindowNodes + ", aspiration window " + aspirationNodes + " with " + researches
+                + " researches");
+    }
+
+    @Test
+    public void aspirationWindowVisitsLessNodesOnAStableEvaluation() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        long fullWindowNodes = 0;
+        long aspirationNodes = 0;
+        long researches = 0;
+        for (int seed = 0; seed < 20; seed++) {
+            final Minimax<TreeMove, TreeGame> fullWindow = new Minimax<TreeMove, TreeGame>(new Timer());
+            final Minimax<TreeMove, TreeGame> aspiration = new Minimax<TreeMove, TreeGame>(new Timer());
+            // the value changes by a few hundreds from one depth to the next
+            aspiration.setAspirationWindow(200);
+
+            final TreeMove expected = fullWindow.bestIterativeDeepening(new StableTreeGame(2, 6, seed), generator, 6);
+            final TreeMove found = aspiration.bestIterativeDeepening(new StableTreeGame(2, 6, seed), generator, 6);
+
+            assertEquals(expected.getIndex(), found.getIndex());
+            fullWindowNodes += fullWindow.getVisitedNodes();
+            aspirationNodes += aspiration.getVisitedNodes();
+            researches += aspiration.getAspirationFailLows() + aspiration.getAspirationFailHighs();
+        }
+        System.out.println("Nodes visited at depth 6 on a stable evaluation: full window " + fullWindowNodes + ", aspiration window " + aspirationNodes
+                + " with " + researches + " researches");
+        assertTrue(aspirationNodes < fullWindowNodes);
+    }
+
+    @Test
+    public void aspirationWindowResearchesAreCapped() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        for (int seed = 0; seed < 20; seed++) {
+            final Minimax<TreeMove, TreeGame> aspiration = new Minimax<TreeMove, TreeGame>(new Timer());
+            aspiration.setAspirationWindow(1);
+            final TreeGame game = new TreeGame(2, 6, seed);
+            // the iterations of an iterative deepening, each one centered on the value of the previous one
+            for (int depth = 1; depth <= 6; depth++) {
+                aspiration.best(game, generator, depth);
+
+                // whatever the window, the second failure on a side opens it: at most two researches per side
+                assertTrue(aspiration.getAspirationFailLows() <= 2);
+                assertTrue(aspiration.getAspirationFailHighs() <= 2);
+            }
+        }
+    }
+
+    @Test
+    public void moveOrderingFindsTheSameMoves() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        long unorderedNodes = 0;
+        long orderedNodes = 0;
+        for (int seed = 0; seed < 20; seed++) {
+            final Minimax<TreeMove, TreeGame> unordered = new Minimax<TreeMove, TreeGame>(new Timer());
+            final Minimax<TreeMove, TreeGame> ordered = new Minimax<TreeMove, TreeGame>(new Timer());
+            ordered.setMoveOrdering(TreeGenerator.MAX_BRANCHING);
+
+            final TreeMove expected = unordered.bestIterativeDeepening(new TreeGame(2, 6, seed), generator, 6);
+            final TreeMove found = ordered.bestIterativeDeepening(new TreeGame(2, 6, seed), generator, 6);
+
+            assertEquals(expected.getIndex(), found.getIndex());
+            unorderedNodes += unordered.getVisitedNodes();
+            orderedNodes += ordered.getVisitedNodes();
+        }
+        System.out.println("Nodes visited at depth 6: previous best move first " + unorderedNodes + ", killer moves and history " + orderedNodes);
+        assertTrue(orderedNodes < unorderedNodes);
+    }
+
+    @Test
+    public void quiescenceSearchExtendsTheLeaves() throws TimeoutException {
+        final NoisyTreeGenerator generator = new NoisyTreeGenerator();
+        for (int seed = 0; seed < 20; seed++) {
+            final Minimax<TreeMove, TreeGame> minimax = new Minimax<TreeMove, TreeGame>(new Timer());
+            minimax.setQuiescenceDepth(4);
+            final TreeGame game = new TreeGame(2, 5, seed);
+
+            final TreeMove found = minimax.best(game, generator, 3);
+
+            int expected = -1;
+            double expectedValue = 0;
+            for (final TreeMove move : generator.generateMoves(game)) {
+                move.execute(game);
+                final double value = quiescenceReference(game, generator, 2, 4);
+                move.cancel(game);
+                if (expected < 0 || (game.currentPlayer() == 0 ? value > expectedValue : value < expectedValue)) {
+                    expected = move.getIndex();
+                    expectedValue = value;
+                }
+            }
+            assertEquals(expected, found.getIndex());
+            assertTrue(minimax.getQuiescenceNodes() > 0);
+        }
+    }
+
+    // Minimax without any pruning, with a stand pat option and only noisy moves once the depth is reached
+    private double quiescenceReference(TreeGame game, NoisyTreeGenerator generator, int depth, int quiescenceDepth) {
+        final double[] evaluation = game.evaluate(0);
+        final boolean maximize = game.currentPlayer() == 0;
+        List<TreeMove> moves = generator.generateMoves(game);
+        double best = maximize ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        if (depth == 0) {
+            best = evaluation[0] - evaluation[1];
+            if (quiescenceDepth == 0) {
+                return best;
+            }
+            moves = generator.generateNoisyMoves(game);
+            quiescenceDepth--;
+        } else {
+            depth--;
+        }
+        for (final TreeMove move : moves) {
+            move.execute(game);
+            final double value = quiescenceReference(game, generator, depth, quiescenceDepth);
+            move.cancel(game);
+            best = maximize ? Math.max(best, value) : Math.min(best, value);
+        }
+        return best;
+    }
+
+    @Test
+    public void selectiveSearchVisitsLessNodes() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        long fullNodes = 0;
+        long nullMoveNodes = 0;
+        long lateMoveNodes = 0;
+        int nullMoveSameMoves = 0;
+        int lateMoveSameMoves = 0;
+        for (int seed = 0; seed < 20; seed++) {
+            final Minimax<TreeMove, TreeGame> full = new Minimax<TreeMove, TreeGame>(new Timer());
+            final Minimax<TreeMove, TreeGame> nullMove = new Minimax<TreeMove, TreeGame>(new Timer());
+            final Minimax<TreeMove, TreeGame> lateMove = new Minimax<TreeMove, TreeGame>(new Timer());
+            // the share evaluation of the tree game swings between the odd and the even depths:
+            // the reductions keep the parity of the number of moves searched
+            nullMove.setNullMovePruning(3);
+            nullMove.setMoveOrdering(TreeGenerator.MAX_BRANCHING);
+            lateMove.setMoveOrdering(TreeGenerator.MAX_BRANCHING);
+            lateMove.setLateMoveReductions(3, 2);
+            full.setMoveOrdering(TreeGenerator.MAX_BRANCHING);
+
+            final TreeGame game = new TreeGame(2, 6, seed);
+            final TreeMove expected = full.bestIterativeDeepening(game, generator, 7);
+            final TreeMove nullMoveFound = nullMove.bestIterativeDeepening(game, generator, 7);
+            final TreeMove lateMoveFound = lateMove.bestIterativeDeepening(game, generator, 7);
+
+            assertEquals(0, game.getDepth());
+            assertTrue(nullMove.getNullMoveCutoffs() > 0);
+            assertTrue(nullMove.getNullMoveCutoffs() <= nullMove.getNullMoveSearches());
+            assertTrue(lateMove.getLateMoveResearches() <= lateMove.getLateMoveReductions());
+            fullNodes += full.getVisitedNodes();
+            nullMoveNodes += nullMove.getVisitedNodes();
+            lateMoveNodes += lateMove.getVisitedNodes();
+            if (expected.getIndex() == nullMoveFound.getIndex()) {
+                nullMoveSameMoves++;
+            }
+            if (expected.getIndex() == lateMoveFound.getIndex()) {
+                lateMoveSameMoves++;
+            }
+        }
+        System.out.println("Nodes visited at depth 7: full " + fullNodes + ", null move pruning " + nullMoveNodes + ", late move reductions " + lateMoveNodes
+                + ", same moves found " + nullMoveSameMoves + "/20 and " + lateMoveSameMoves + "/20");
+        // about 26% and 48% less nodes, for the same move in 20 and 18 positions
+        assertTrue(nullMoveNodes < fullNodes * 4 / 5);
+        assertTrue(lateMoveNodes < fullNodes * 2 / 3);
+        assertTrue(nullMoveSameMoves >= 18);
+        assertTrue(lateMoveSameMoves >= 16);
+    }
+
+    @Test
+    public void testStickGameParallel() {
+        final Timer timer = new Timer();
+        final Minimax<StickMove, StickGame> minimax = new Minimax<StickMove, StickGame>(timer);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        minimax.setParallelism(pool);
+
+        Tester.testAlgo((game, generator, maxdepth) -> minimax.bestIterativeDeepening(game, generator, maxdepth));
+        pool.shutdown();
+    }
+
+    @Test
+    public void parallelSearchFindsTheSameMoves() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        long sequentialTime = 0;
+        long parallelTime = 0;
+        long sequentialNodes = 0;
+        long parallelNodes = 0;
+        for (int seed = 0; seed < 10; seed++) {
+            final Minimax<TreeMove, TreeGame> sequential = new Minimax<TreeMove, TreeGame>(new Timer());
+            final Minimax<TreeMove, TreeGame> parallel = new Minimax<TreeMove, TreeGame>(new Timer());
+            sequential.setMoveOrdering(TreeGenerator.MAX_BRANCHING);
+            parallel.setMoveOrdering(TreeGenerator.MAX_BRANCHING);
+            parallel.setParallelism(pool);
+            final TreeGame game = new TreeGame(2, 12, seed);
+
+            long start = System.nanoTime();
+            final TreeMove expected = sequential.bestIterativeDeepening(game, generator, 6);
+            sequentialTime += System.nanoTime() - start;
+            start = System.nanoTime();
+            final TreeMove found = parallel.bestIterativeDeepening(game, generator, 6);
+            parallelTime += System.nanoTime() - start;
+
+            assertEquals(expected.getIndex(), found.getIndex());
+            assertEquals(0, game.getDepth());
+            sequentialNodes += sequential.getVisitedNodes();
+            parallelNodes += parallel.getVisitedNodes();
+        }
+        pool.shutdown();
+        System.out.println("Time to search depth 6 with " + pool.getParallelism() + " threads: sequential " + sequentialTime / 1000000 + "ms, parallel "
+                + parallelTime / 1000000 + "ms, nodes: sequential " + sequentialNodes + ", parallel " + parallelNodes);
+        // the root bound shared by the threads keeps the search overhead low
+        assertTrue(parallelNodes < sequentialNodes * 3 / 2);
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void parallelSearchStopsAtTimeout() throws TimeoutException {
+        final Timer timer = new Timer();
+        final Minimax<TreeMove, TreeGame> minimax = new Minimax<TreeMove, TreeGame>(timer);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        minimax.setParallelism(pool);
+
+        timer.startTimer(10);
+        try {
+            minimax.best(new TreeGame(2, 20, 0), new TreeGenerator(), 20);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testStickGameLazySmp() {
+        final Timer timer = new Timer();
+        final Minimax<StickMove, StickGame> minimax = new Minimax<StickMove, StickGame>(timer);
+        minimax.setLazySmp(4, new SharedTranspositionTable(1024));
+
+        Tester.testAlgo((game, generator, maxdepth) -> minimax.bestIterativeDeepening(game, generator, maxdepth));
+        minimax.shutdownLazySmp();
+    }
+
+    @Test
+    public void lazySmpHelpersAreStoppedWhenDisabled() {
+        final Minimax<StickMove, StickGame> minimax = new Minimax<StickMove, StickGame>(new Timer());
+        minimax.setLazySmp(4, new SharedTranspositionTable(1024));
+        assertTrue(minimax.hasLazySmpHelpers());
+        minimax.setLazySmp(4, null);
+        assertFalse(minimax.hasLazySmpHelpers());
+
+        minimax.setLazySmp(2, new SharedTranspositionTable(1024));
+        assertTrue(minimax.hasLazySmpHelpers());
+        minimax.shutdownLazySmp();
+        assertFalse(minimax.hasLazySmpHelpers());
+    }
+
+    @Test
+    public void lazySmpBenchmark() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        for (int threads = 1; threads <= 4; threads *= 2) {
+            final Timer timer = new Timer();
+            final Minimax<TreeMove, TreeGame> minimax = new Minimax<TreeMove, TreeGame>(timer);
+            minimax.setMoveOrdering(TreeGenerator.MAX_BRANCHING);
+            minimax.setLazySmp(threads, new SharedTranspositionTable(1 << 16));
+            final TreeGame game = new TreeGame(2, 8, 0);
+
+            timer.startTimer(200);
+            final TreeMove move = minimax.bestIterativeDeepening(game, generator, 30);
+            final long elapsed = timer.currentTimeTakenInNanoSeconds();
+
+            assertNotNull(move);
+            assertEquals(0, game.getDepth());
+            System.out.println("Lazy SMP with " + threads + " threads: depth " + minimax.getReachedDepth() + ", "
+                    + minimax.getVisitedNodes() * 1000000000L / elapsed + " nodes/s");
+            minimax.shutdownLazySmp();
+        }
+    }
+
+    @Test
+    public void parallelSearchWithLazySmpFindsTheSameValues() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int seed = 0; seed < 10; seed++) {
+                final SharedTranspositionTable table = new SharedTranspositionTable(1 << 16);
+                final Minimax<TreeMove, TreeGame> sequential = new Minimax<TreeMove, TreeGame>(new Timer());
+                final Minimax<TreeMove, TreeGame> parallel = new Minimax<TreeMove, TreeGame>(new Timer());
+                parallel.setMoveOrdering(TreeGenerator.MAX_BRANCHING);
+                parallel.setParallelism(pool);
+                parallel.setLazySmp(4, table);
+                final TreeGame game = new TreeGame(2, 8, seed);
+
+                sequential.best(game, generator, 6);
+                try {
+                    parallel.bestIterativeDeepening(game, generator, 6);
+                } finally {
+                    parallel.shutdownLazySmp();
+                }
+
+                assertEquals(sequential.getBestValue(), parallel.getBestValue(), 0);
+                assertEquals(0, game.getDepth());
+                // the table is kept for the next turn: its entries must be sound for the positions of all the root moves
+                for (int move = 0; move < game.getBranching(); move++) {
+                    game.execute(move);
+                    final Minimax<TreeMove, TreeGame> reference = new Minimax<TreeMove, TreeGame>(new Timer());
+                    final Minimax<TreeMove, TreeGame> nextTurn = new Minimax<TreeMove, TreeGame>(new Timer());
+                    nextTurn.setLazySmp(1, table);
+                    reference.best(game, generator, 5);
+                    nextTurn.best(game, generator, 5);
+                    game.cancel(move);
+                    assertEquals(reference.getBestValue(), nextTurn.getBestValue(), 0);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void playedMovesKeepThePrincipalVariation() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        long reusedNodes = 0;
+        long scratchNodes = 0;
+        for (int seed = 0; seed < 20; seed++) {
+            final Minimax<TreeMove, TreeGame> reused = new Minimax<TreeMove, TreeGame>(new Timer());
+            final TreeGame game = new TreeGame(2, 10, seed);
+            final TreeMove move = reused.best(game, generator, 6);
+            game.execute(move.getIndex());
+            reused.play(move);
+
+            final Minimax<TreeMove, TreeGame> scratch = new Minimax<TreeMove, TreeGame>(new Timer());
+            final TreeMove expected = scratch.best(game, generator, 6);
+            assertEquals(expected.getIndex(), reused.best(game, generator, 6).getIndex());
+            reusedNodes += reused.getVisitedNodes();
+            scratchNodes += scratch.getVisitedNodes();
+        }
+        System.out.println("Nodes visited at depth 6 on the next turn: from scratch " + scratchNodes + ", principal variation kept " + reusedNodes);
+        assertTrue(reusedNodes < scratchNodes);
+    }
+
+    @Test
+    public void nodesPerSecondBenchmark() throws TimeoutException {
+        final StickGame stickGame = new StickGame(0, 1000);
+        final StickGenerator stickGenerator = new StickGenerator();
+        final TreeGame treeGame = new TreeGame(2, 8, 0);
+        final TreeGenerator treeGenerator = new TreeGenerator();
+        final Minimax<StickMove, StickGame> stickMinimax = new Minimax<StickMove, StickGame>(new Timer());
+        final ExceptionMinimax<StickMove, StickGame> stickExceptionMinimax = new ExceptionMinimax<StickMove, StickGame>(new Timer());
+        final Minimax<TreeMove, TreeGame> treeMinimax = new Minimax<TreeMove, TreeGame>(new Timer());
+        final ExceptionMinimax<TreeMove, TreeGame> treeExceptionMinimax = new ExceptionMinimax<TreeMove, TreeGame>(new Timer());
+        for (int run = 0; run < 2; run++) {// the first run warms up
+            long nodes = 0;
+            long exceptionNodes = 0;
+            long time = 0;
+            long exceptionTime = 0;
+            for (int i = 0; i < 20; i++) {
+                long start = System.nanoTime();
+                final StickMove move = stickMinimax.best(stickGame, stickGenerator, 16);
+                time += System.nanoTime() - start;
+                start = System.nanoTime();
+                final StickMove exceptionMove = stickExceptionMinimax.best(stickGame, stickGenerator, 16);
+                exceptionTime += System.nanoTime() - start;
+                // both searches visit the same tree
+                assertEquals(exceptionMove.toString(), move.toString());
+                assertEquals(stickExceptionMinimax.getVisitedNodes(), stickMinimax.getVisitedNodes());
+                nodes += stickMinimax.getVisitedNodes();
+                exceptionNodes += stickExceptionMinimax.getVisitedNodes();
+            }
+            final String stick = "stick game depth 16 " + nodes * 1000000000L / time + " (exceptions " + exceptionNodes * 1000000000L / exceptionTime + ")";
+            nodes = 0;
+            exceptionNodes = 0;
+            time = 0;
+            exceptionTime = 0;
+            for (int i = 0; i < 3; i++) {
+                long start = System.nanoTime();
+                final TreeMove move = treeMinimax.best(treeGame, treeGenerator, 8);
+                time += System.nanoTime() - start;
+                start = System.nanoTime();
+                final TreeMove exceptionMove = treeExceptionMinimax.best(treeGame, treeGenerator, 8);
+                exceptionTime += System.nanoTime() - start;
+                assertEquals(exceptionMove.getIndex(), move.getIndex());
+                assertEquals(treeExceptionMinimax.getVisitedNodes(), treeMinimax.getVisitedNodes());
+                nodes += treeMinimax.getVisitedNodes();
+                exceptionNodes += treeExceptionMinimax.getVisitedNodes();
+            }
+            final String tree = "tree game depth 8 " + nodes * 1000000000L / time + " (exceptions " + exceptionNodes * 1000000000L / exceptionTime + ")";
+            if (run == 1) {
+                System.out.println("Minimax nodes/s: " + stick + ", " + tree);
+            }
+        }
+    }
+
+    @Test
+    public void primitiveMovesFindTheSameMoves() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        final TreePrimitiveGenerator primitiveGenerator = new TreePrimitiveGenerator();
+        for (int seed = 0; seed < 20; seed++) {
+            final TreeGame game = new TreeGame(2, 6, seed);
+            final Minimax<TreeMove, TreeGame> minimax = new Minimax<TreeMove, TreeGame>(new Timer());
+            assertEquals(minimax.best(game, generator, 5).getIndex(), minimax.best(game, primitiveGenerator, 5));
+
+            final Minimax<TreeMove, TreeGame> enhanced = new Minimax<TreeMove, TreeGame>(new Timer());
+            enhanced.setTranspositionTable(new TranspositionTable(16));
+            enhanced.setSearchMode(SearchMode.PRINCIPAL_VARIATION);
+            enhanced.setMoveOrdering(TreeGenerator.MAX_BRANCHING);
+            assertEquals(minimax.best(game, generator, 6).getIndex(), enhanced.bestIterativeDeepening(game, primitiveGenerator, 6));
+            assertEquals(0, game.getDepth());
+        }
+    }
+
+    @Test
+    public void primitiveMovesWithStickGame() throws TimeoutException {
+        final Minimax<StickMove, StickGame> minimax = new Minimax<StickMove, StickGame>(new Timer());
+        final StickPrimitiveGenerator generator = new StickPrimitiveGenerator();
+        for (int sticks = 1; sticks < 30; sticks++) {
+            if (sticks % 4 != 1) {
+                // the winning move leaves a multiple of 4 plus 1 sticks
+                assertEquals((sticks - 1) % 4, minimax.best(new StickGame(0, sticks), generator, 8));
+            }
+        }
+    }
+
+    @Test
+    public void primitiveMovesDoNotAllocatePerNode() throws TimeoutException {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long thread = Thread.currentThread().getId();
+        final Minimax<StickMove, StickGame> minimax = new Minimax<StickMove, StickGame>(new Timer());
+        minimax.setMoveOrdering(4);
+        final StickPrimitiveGenerator generator = new StickPrimitiveGenerator();
+        final BufferStickGame game = new BufferStickGame(0, 1000);
+        for (int i = 0; i < 3; i++) {
+            minimax.bestIterativeDeepening(game, generator, 16);// warm up, and preallocate the buffers
+        }
+
+        final long start = threads.getThreadAllocatedBytes(thread);
+        minimax.bestIterativeDeepening(game, generator, 16);
+        final long allocated = threads.getThreadAllocatedBytes(thread) - start;
+
+        System.out.println("Bytes allocated by the Minimax with primitive moves: " + allocated + " for " + minimax.getVisitedNodes() + " nodes");
+        assertTrue(allocated < 1024);
+    }
+
+    @Test
+    public void scalarEvaluationFindsTheSameMoves() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        for (int seed = 0; seed < 20; seed++) {
+            final Minimax<TreeMove, TreeGame> minimax = new Minimax<TreeMove, TreeGame>(new Timer());
+            final TreeGame game = new TreeGame(2, 6, seed);
+            final int expected = minimax.best(game, generator, 5).getIndex();
+            final long expectedNodes = minimax.getVisitedNodes();
+
+            final Minimax<TreeMove, TreeGame> scalar = new Minimax<TreeMove, TreeGame>(new Timer());
+            final BufferedTreeGame scalarGame = new BufferedTreeGame(2, 6, seed);
+            assertEquals(expected, scalar.best(scalarGame, generator, 5).getIndex());
+            assertEquals(expectedNodes, scalar.getVisitedNodes());
+            assertEquals(game.getEvaluations(), scalarGame.getEvaluations());
+        }
+    }
+
+    @Test
+    public void scalarEvaluationDoesNotAllocate() throws TimeoutException {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long thread = Thread.currentThread().getId();
+        final Minimax<TreeMove, TreeGame> minimax = new Minimax<TreeMove, TreeGame>(new Timer());
+        final TreePrimitiveGenerator generator = new TreePrimitiveGenerator();
+        final BufferedTreeGame game = new BufferedTreeGame(2, 8, 0);
+        for (int i = 0; i < 3; i++) {
+            minimax.best(game, generator, 6);// warm up, and preallocate the buffers
+        }
+
+        final long start = threads.getThreadAllocatedBytes(thread);
+        minimax.best(game, generator, 6);
+        final long allocated = threads.getThreadAllocatedBytes(thread) - start;
+
+        System.out.println("Bytes allocated by the Minimax with scalar evaluation: " + allocated + " for " + minimax.getVisitedNodes() + " nodes");
+        assertTrue(allocated < 1024);
+    }
+
+    @Test
+    public void incrementalEvaluationFindsTheSameMoves() throws TimeoutException {
+        final IncrementalTreeGenerator generator = new IncrementalTreeGenerator();
+        for (int seed = 0; seed < 20; seed++) {
+            final Minimax<TreeMove, TreeGame> minimax = new Minimax<TreeMove, TreeGame>(new Timer());
+            final StrengthTreeGame game = new StrengthTreeGame(2, 6, seed);
+            final int expected = minimax.best(game, generator, 5).getIndex();
+            final int fullEvaluations = game.getEvaluations();
+
+            final Minimax<TreeMove, TreeGame> incremental = new Minimax<TreeMove, TreeGame>(new Timer());
+            incremental.setIncrementalEvaluation(true, false);
+            final StrengthTreeGame incrementalGame = new StrengthTreeGame(2, 6, seed);
+            assertEquals(expected, incremental.best(incrementalGame, generator, 5).getIndex());
+            // only the root is fully evaluated
+            assertEquals(1, incrementalGame.getEvaluations());
+            assertTrue(fullEvaluations > 100);
+
+            final Minimax<TreeMove, TreeGame> checked = new Minimax<TreeMove, TreeGame>(new Timer());
+            checked.setIncrementalEvaluation(true, true);
+            checked.setSearchMode(SearchMode.PRINCIPAL_VARIATION);
+            checked.setNullMovePruning(2);
+            checked.best(game, generator, 6);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void incrementalEvaluationCheckDetectsWrongDeltas() throws TimeoutException {
+        final Minimax<TreeMove, TreeGame> minimax = new Minimax<TreeMove, TreeGame>(new Timer());
+        minimax.setIncrementalEvaluation(true, true);
+        // the deltas are the gains of strength, but the evaluation of a TreeGame is a share of the total strength
+        minimax.best(new TreeGame(2, 6, 0), new IncrementalTreeGenerator(), 3);
+    }
 }
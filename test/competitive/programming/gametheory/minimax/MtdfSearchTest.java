@@ -0,0 +1,132 @@
+package competitive.programming.gametheory.minimax;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import competitive.programming.gametheory.StickGame;
+import competitive.programming.gametheory.StickGenerator;
+import competitive.programming.gametheory.StickMove;
+import competitive.programming.gametheory.Tester;
+import competitive.programming.gametheory.TreeGame;
+import competitive.programming.gametheory.TreeGenerator;
+import competitive.programming.gametheory.TreeMove;
+import competitive.programming.timemanagement.TimeoutException;
+import competitive.programming.timemanagement.Timer;
+
+public class MtdfSearchTest {
+
+    /*
+     * Tree game whose scores are rounded to a few values, as the evaluations MTD(f) suits best
+     */
+    private static class CoarseTreeGame extends TreeGame {
+        private static final double STEP = SCORES_SUM / 20;
+
+        CoarseTreeGame(long seed) {
+            super(2, 6, seed);
+        }
+
+        @Override
+        public void evaluateInto(double[] evaluation, int depth) {
+            super.evaluateInto(evaluation, depth);
+            evaluation[0] = Math.round(evaluation[0] / STEP);
+            evaluation[1] = SCORES_SUM / STEP - evaluation[0];
+        }
+    }
+
+    @Test
+    public void testStickGame() {
+        final MtdfSearch<StickMove, StickGame> mtdf = new MtdfSearch<StickMove, StickGame>(new Timer(), 1024);
+
+        Tester.testAlgo((game, generator, maxdepth) -> mtdf.best(game, generator, maxdepth));
+    }
+
+    @Test
+    public void testStickGameIterativeDeepening() {
+        final MtdfSearch<StickMove, StickGame> mtdf = new MtdfSearch<StickMove, StickGame>(new Timer(), 1024);
+
+        Tester.testAlgo((game, generator, maxdepth) -> mtdf.bestIterativeDeepening(game, generator, maxdepth));
+    }
+
+    @Test
+    public void mtdfFindsTheAlphaBetaMoves() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        for (int seed = 0; seed < 20; seed++) {
+            final Minimax<TreeMove, TreeGame> alphaBeta = new Minimax<TreeMove, TreeGame>(new Timer());
+            final MtdfSearch<TreeMove, TreeGame> mtdf = new MtdfSearch<TreeMove, TreeGame>(new Timer(), 1 << 16);
+
+            final TreeMove expected = alphaBeta.best(new TreeGame(2, 6, seed), generator, 5);
+            final TreeMove found = mtdf.bestIterativeDeepening(new TreeGame(2, 6, seed), generator, 5);
+
+            assertEquals(expected.getIndex(), found.getIndex());
+            assertEquals(5, mtdf.getReachedDepth());
+            for (int depth = 1; depth <= 5; depth++) {
+                assertTrue(mtdf.getPasses(depth) >= 1);
+            }
+        }
+    }
+
+    @Test
+    public void mtdfEvaluatesFewerPositionsOnSmallEvaluationRanges() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        long alphaBetaNodes = 0;
+        long mtdfNodes = 0;
+        long alphaBetaEvaluations = 0;
+        long mtdfEvaluations = 0;
+        long passes = 0;
+        for (int seed = 0; seed < 20; seed++) {
+            final Minimax<TreeMove, TreeGame> alphaBeta = new Minimax<TreeMove, TreeGame>(new Timer());
+            alphaBeta.setTranspositionTable(new TranspositionTable(1 << 16));
+            final MtdfSearch<TreeMove, TreeGame> mtdf = new MtdfSearch<TreeMove, TreeGame>(new Timer(), 1 << 16);
+            final TreeGame alphaBetaGame = new CoarseTreeGame(seed);
+            final TreeGame mtdfGame = new CoarseTreeGame(seed);
+
+            assertNotNull(alphaBeta.bestIterativeDeepening(alphaBetaGame, generator, 8));
+            assertNotNull(mtdf.bestIterativeDeepening(mtdfGame, generator, 8));
+
+            alphaBetaNodes += alphaBeta.getVisitedNodes();
+            mtdfNodes += mtdf.getVisitedNodes();
+            alphaBetaEvaluations += alphaBetaGame.getEvaluations();
+            mtdfEvaluations += mtdfGame.getEvaluations();
+            for (int depth = 1; depth <= 8; depth++) {
+                passes += mtdf.getPasses(depth);
+            }
+        }
+        System.out.println("Nodes visited at depth 8: alpha beta " + alphaBetaNodes + " with " + alphaBetaEvaluations + " evaluations, MTD(f) " + mtdfNodes
+                + " with " + mtdfEvaluations + " evaluations in " + passes + " passes");
+        assertTrue(mtdfEvaluations < alphaBetaEvaluations);
+    }
+
+    @Test
+    public void previousScoreIsAGoodGuess() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        final MtdfSearch<TreeMove, TreeGame> mtdf = new MtdfSearch<TreeMove, TreeGame>(new Timer(), 1 << 16);
+        final TreeGame game = new TreeGame(2, 6, 42);
+
+        final TreeMove first = mtdf.best(game, generator, 5);
+        final double value = mtdf.getValue();
+        final TreeMove second = mtdf.best(game, generator, 5);
+
+        assertEquals(first.getIndex(), second.getIndex());
+        assertEquals(value, mtdf.getValue(), 0);
+        // one pass proving the value is reached, one proving it is not exceeded
+        assertEquals(2, mtdf.getPasses(5));
+    }
+
+    @Test
+    public void iterativeDeepeningStopsAtTimeout() throws TimeoutException {
+        final Timer timer = new Timer();
+        final MtdfSearch<StickMove, StickGame> mtdf = new MtdfSearch<StickMove, StickGame>(timer, 1024);
+        final StickGame game = new StickGame(0, 1000);
+
+        timer.startTimer(20);
+        final StickMove move = mtdf.bestIterativeDeepening(game, new StickGenerator(), 1000);
+
+        assertNotNull(move);
+        assertTrue(mtdf.getReachedDepth() > 1);
+        assertTrue(mtdf.getReachedDepth() < 1000);
+        assertEquals(1000, game.getSticksRemaining());
+    }
+}
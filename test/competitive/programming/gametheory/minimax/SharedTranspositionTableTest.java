@@ -0,0 +1,72 @@
+package competitive.programming.gametheory.minimax;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class SharedTranspositionTableTest {
+
+    @Test
+    public void storedPositionIsFound() {
+        final SharedTranspositionTable table = new SharedTranspositionTable(16);
+        final long[] entry = new long[SharedTranspositionTable.ENTRY_SIZE];
+        table.store(42, 3, TranspositionTable.LOWER_BOUND, 12.5, 2);
+
+        assertTrue(table.probe(42, entry));
+        assertEquals(3, SharedTranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER_BOUND, SharedTranspositionTable.bound(entry));
+        assertEquals(12.5, SharedTranspositionTable.value(entry), 0);
+        assertEquals(2, SharedTranspositionTable.move(entry));
+        assertFalse(table.probe(43, entry));
+    }
+
+    @Test
+    public void deepestAnalysisIsKept() {
+        final SharedTranspositionTable table = new SharedTranspositionTable(2);// a single bucket
+        final long[] entry = new long[SharedTranspositionTable.ENTRY_SIZE];
+        table.store(1, 5, TranspositionTable.EXACT, 1, 0);
+        table.store(2, 1, TranspositionTable.EXACT, 2, 0);
+        table.store(3, 1, TranspositionTable.EXACT, 3, -1);
+
+        assertTrue(table.probe(1, entry));
+        assertEquals(5, SharedTranspositionTable.depth(entry));
+        assertFalse(table.probe(2, entry));
+        assertTrue(table.probe(3, entry));
+        assertEquals(-1, SharedTranspositionTable.move(entry));
+    }
+
+    @Test
+    public void concurrentStoresNeverGiveMixedEntries() throws InterruptedException {
+        final SharedTranspositionTable table = new SharedTranspositionTable(64);
+        final AtomicLong invalidEntries = new AtomicLong();
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int seed = t;
+            threads.add(new Thread(() -> {
+                final long[] entry = new long[SharedTranspositionTable.ENTRY_SIZE];
+                for (long i = 0; i < 200000; i++) {
+                    // every thread writes the same analysis for a given hash, but different analysis collide in the same buckets
+                    final long hash = (i * 31 + seed) % 1000;
+                    if (table.probe(hash, entry)
+                            && (SharedTranspositionTable.value(entry) != hash || SharedTranspositionTable.move(entry) != (int) (hash % 7))) {
+                        invalidEntries.incrementAndGet();
+                    }
+                    table.store(hash, (int) (hash % 10), TranspositionTable.EXACT, hash, (int) (hash % 7));
+                }
+            }));
+        }
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, invalidEntries.get());
+    }
+}
@@ -0,0 +1,54 @@
+package competitive.programming.gametheory.minimax;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void storedPositionIsFound() {
+        final TranspositionTable table = new TranspositionTable(16);
+        table.store(42, 3, TranspositionTable.LOWER_BOUND, 12.5, 2);
+
+        final int entry = table.probe(42);
+        assertEquals(3, table.depth(entry));
+        assertEquals(TranspositionTable.LOWER_BOUND, table.bound(entry));
+        assertEquals(12.5, table.value(entry), 0);
+        assertEquals(2, table.move(entry));
+        assertEquals(-1, table.probe(43));
+        assertEquals(1, table.getHits());
+    }
+
+    @Test
+    public void deepestAnalysisIsKept() {
+        final TranspositionTable table = new TranspositionTable(2);// a single bucket
+        table.store(1, 5, TranspositionTable.EXACT, 1, 0);
+        table.store(2, 1, TranspositionTable.EXACT, 2, 0);
+        table.store(3, 1, TranspositionTable.EXACT, 3, 0);
+
+        assertEquals(5, table.depth(table.probe(1)));
+        assertEquals(-1, table.probe(2));
+        assertEquals(3, table.value(table.probe(3)), 0);
+        assertEquals(1, table.getCollisions());
+    }
+
+    @Test
+    public void previousSearchesAreReplaced() {
+        final TranspositionTable table = new TranspositionTable(2);
+        table.store(1, 5, TranspositionTable.EXACT, 1, 0);
+        table.newSearch();
+        table.store(2, 1, TranspositionTable.EXACT, 2, 0);
+
+        assertEquals(1, table.depth(table.probe(2)));
+    }
+
+    @Test
+    public void bestMoveIsKeptWhenUnknown() {
+        final TranspositionTable table = new TranspositionTable(16);
+        table.store(42, 3, TranspositionTable.EXACT, 1, 4);
+        table.store(42, 4, TranspositionTable.UPPER_BOUND, 0, -1);
+
+        assertEquals(4, table.move(table.probe(42)));
+    }
+}
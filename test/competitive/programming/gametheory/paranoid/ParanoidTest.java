@@ -0,0 +1,106 @@
+package competitive.programming.gametheory.paranoid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import competitive.programming.gametheory.BufferedTreeGame;
+import competitive.programming.gametheory.StickGame;
+import competitive.programming.gametheory.StickMove;
+import competitive.programming.gametheory.Tester;
+import competitive.programming.gametheory.TreeGame;
+import competitive.programming.gametheory.TreeGenerator;
+import competitive.programming.gametheory.TreeMove;
+import competitive.programming.gametheory.maxntree.IScoreConverter;
+import competitive.programming.timemanagement.TimeoutException;
+import competitive.programming.timemanagement.Timer;
+
+public class ParanoidTest {
+
+    private static final IScoreConverter OWN_SCORE = (rawScores, player) -> rawScores[player];
+
+    @Test
+    public void testStickGame() {
+        final Paranoid<StickMove, StickGame> paranoid = new Paranoid<StickMove, StickGame>(new Timer(), OWN_SCORE);
+
+        Tester.testAlgo((game, generator, maxdepth) -> paranoid.best(game, generator, maxdepth));
+    }
+
+    @Test
+    public void testStickGameIterativeDeepening() {
+        final Paranoid<StickMove, StickGame> paranoid = new Paranoid<StickMove, StickGame>(new Timer(), OWN_SCORE);
+
+        Tester.testAlgo((game, generator, maxdepth) -> paranoid.bestIterativeDeepening(game, generator, maxdepth));
+    }
+
+    @Test
+    public void pruningFindsTheParanoidValue() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        for (int seed = 0; seed < 10; seed++) {
+            final TreeGame game = new TreeGame(4, 5, seed);
+            final Paranoid<TreeMove, TreeGame> paranoid = new Paranoid<TreeMove, TreeGame>(new Timer(), OWN_SCORE);
+            final TreeMove move = paranoid.best(game, generator, 5);
+
+            game.execute(move.getIndex());
+            final double found = reference(game, generator, 4, 0);
+            game.cancel();
+            double expected = Double.NEGATIVE_INFINITY;
+            for (final TreeMove reference : generator.generateMoves(game)) {
+                game.execute(reference.getIndex());
+                expected = Math.max(expected, reference(game, generator, 4, 0));
+                game.cancel();
+            }
+            assertEquals(expected, found, 0);
+            assertEquals(0, game.getDepth());
+        }
+    }
+
+    @Test
+    public void searchesDeeperThanMaxN() throws TimeoutException {
+        final Timer timer = new Timer();
+        final Paranoid<TreeMove, TreeGame> paranoid = new Paranoid<TreeMove, TreeGame>(timer, OWN_SCORE);
+        final TreeGame game = new TreeGame(4, 10, 0);
+
+        timer.startTimer(100);
+        paranoid.bestIterativeDeepening(game, new TreeGenerator(), 100);
+
+        assertEquals(0, game.getDepth());
+        System.out.println("Paranoid depth reached in 100ms with 4 players: " + paranoid.getReachedDepth());
+        assertTrue(paranoid.getReachedDepth() > 3);
+    }
+
+    /*
+     * Paranoid value without pruning
+     */
+    private double reference(TreeGame game, TreeGenerator generator, int depth, int rootPlayer) {
+        if (depth == 0) {
+            return game.evaluate(0)[rootPlayer];
+        }
+        final List<TreeMove> moves = generator.generateMoves(game);
+        final boolean maximizing = game.currentPlayer() == rootPlayer;
+        double best = maximizing ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        for (final TreeMove move : moves) {
+            game.execute(move.getIndex());
+            final double value = reference(game, generator, depth - 1, rootPlayer);
+            game.cancel();
+            best = maximizing ? Math.max(best, value) : Math.min(best, value);
+        }
+        return best;
+    }
+
+    @Test
+    public void bufferedEvaluationFindsTheSameMoves() throws TimeoutException {
+        final TreeGenerator generator = new TreeGenerator();
+        for (int seed = 0; seed < 10; seed++) {
+            final Paranoid<TreeMove, TreeGame> paranoid = new Paranoid<TreeMove, TreeGame>(new Timer(), OWN_SCORE);
+            final int expected = paranoid.best(new TreeGame(4, 5, seed), generator, 5).getIndex();
+            final long expectedNodes = paranoid.getVisitedNodes();
+
+            assertEquals(expected, paranoid.best(new BufferedTreeGame(4, 5, seed), generator, 5).getIndex());
+            assertEquals(expectedNodes, paranoid.getVisitedNodes());
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package competitive.programming.gametheory.proofnumber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import competitive.programming.gametheory.IHashableGame;
+import competitive.programming.gametheory.IMove;
+import competitive.programming.gametheory.IMoveGenerator;
+import competitive.programming.gametheory.ITerminalGame;
+import competitive.programming.gametheory.StickGame;
+import competitive.programming.gametheory.StickGenerator;
+import competitive.programming.gametheory.StickMove;
+import competitive.programming.gametheory.minimax.Minimax;
+import competitive.programming.gametheory.proofnumber.ProofNumberSearch.Result;
+import competitive.programming.timemanagement.TimeoutException;
+import competitive.programming.timemanagement.Timer;
+
+public class ProofNumberSearchTest {
+
+    /*
+     * Tic tac toe, decided as soon as a line is complete
+     */
+    private static class TicTacToe implements ITerminalGame, IHashableGame {
+        private static final int[][] LINES = { { 0, 1, 2 }, { 3, 4, 5 }, { 6, 7, 8 }, { 0, 3, 6 }, { 1, 4, 7 }, { 2, 5, 8 }, { 0, 4, 8 },
+                { 2, 4, 6 } };
+        private final int[] cells = new int[9];// 0 empty, otherwise player + 1
+        private int played;
+
+        TicTacToe(String board) {
+            for (int i = 0; i < 9; i++) {
+                final char c = board.charAt(i);
+                cells[i] = c == 'X' ? 1 : c == 'O' ? 2 : 0;
+                if (cells[i] != 0) {
+                    played++;
+                }
+            }
+        }
+
+        @Override
+        public int currentPlayer() {
+            return played % 2;
+        }
+
+        @Override
+        public double[] evaluate(int depth) {
+            final int winner = winner();
+            return new double[] { winner == 0 ? 1 : 0, winner == 1 ? 1 : 0 };
+        }
+
+        @Override
+        public int winner() {
+            for (final int[] line : LINES) {
+                if (cells[line[0]] != 0 && cells[line[0]] == cells[line[1]] && cells[line[0]] == cells[line[2]]) {
+                    return cells[line[0]] - 1;
+                }
+            }
+            return played == 9 ? DRAW : NOT_OVER;
+        }
+
+        @Override
+        public long hash() {
+            long hash = 0;
+            for (final int cell : cells) {
+                hash = hash * 3 + cell;
+            }
+            return hash;
+        }
+    }
+
+    private static class Mark implements IMove<TicTacToe> {
+        private final int cell;
+
+        Mark(int cell) {
+            this.cell = cell;
+        }
+
+        @Override
+        public TicTacToe execute(TicTacToe game) {
+            game.cells[cell] = game.currentPlayer() + 1;
+            game.played++;
+            return game;
+        }
+
+        @Override
+        public TicTacToe cancel(TicTacToe game) {
+            game.played--;
+            game.cells[cell] = 0;
+            return game;
+        }
+    }
+
+    private static final IMoveGenerator<Mark, TicTacToe> MARKS = game -> {
+        final List<Mark> marks = new ArrayList<>();
+        for (int cell = 0; cell < 9; cell++) {
+            if (game.cells[cell] == 0) {
+                marks.add(new Mark(cell));
+            }
+        }
+        return marks;
+    };
+
+    @Test
+    public void solvesStickGame() {
+        final ProofNumberSearch<StickMove, StickGame> solver = new ProofNumberSearch<StickMove, StickGame>(new Timer(), 100000);
+        final StickGenerator generator = new StickGenerator();
+        for (int player = 0; player < 2; player++) {
+            for (int sticks = 1; sticks < 20; sticks++) {
+                final StickGame game = new StickGame(player, sticks);
+                final Result result = solver.solve(game, generator);
+
+                assertEquals(sticks, game.getSticksRemaining());
+                if ((sticks - 1) % 4 == 0) {
+                    assertEquals(Result.LOSS, result);
+                } else {
+                    assertEquals(Result.WIN, result);
+                    assertEquals((sticks - 1) % 4, solver.getWinningLine().get(0).getSticks());
+                }
+                for (final StickMove move : solver.getWinningLine()) {
+                    move.execute(game);
+                }
+                assertEquals(0, game.getSticksRemaining());
+                assertEquals(result == Result.WIN ? player : 1 - player, game.currentPlayer());
+            }
+        }
+    }
+
+    @Test
+    public void solvesTicTacToe() {
+        final ProofNumberSearch<Mark, TicTacToe> solver = new ProofNumberSearch<Mark, TicTacToe>(new Timer(), 1000000);
+
+        assertEquals(Result.DRAW, solver.solve(new TicTacToe("........."), MARKS));
+
+        // X to play completes its line
+        final TicTacToe game = new TicTacToe("XX.OO....");
+        assertEquals(Result.WIN, solver.solve(game, MARKS));
+        for (final Mark move : solver.getWinningLine()) {
+            move.execute(game);
+        }
+        assertEquals(0, game.winner());
+
+        // O to play can not block both lines of X
+        assertEquals(Result.LOSS, solver.solve(new TicTacToe("XX.XO...O"), MARKS));
+        assertEquals(2, solver.getWinningLine().size());
+    }
+
+    @Test
+    public void resultIsUnknownWhenTheTreeIsFull() {
+        final ProofNumberSearch<Mark, TicTacToe> solver = new ProofNumberSearch<Mark, TicTacToe>(new Timer(), 100);
+
+        assertEquals(Result.UNKNOWN, solver.solve(new TicTacToe("........."), MARKS));
+        assertTrue(solver.getNodes() <= 100);
+    }
+
+    @Test
+    public void resultIsUnknownAtTimeout() {
+        final Timer timer = new Timer();
+        final ProofNumberSearch<Mark, TicTacToe> solver = new ProofNumberSearch<Mark, TicTacToe>(timer, 1000000);
+        final TicTacToe game = new TicTacToe(".........");
+
+        timer.startTimer(0);
+        assertEquals(Result.UNKNOWN, solver.solve(game, MARKS));
+        assertEquals(0, game.played);
+    }
+
+    @Test
+    public void provenPositionsAreReused() {
+        final ProvenPositions provenPositions = new ProvenPositions(1 << 16);
+        final ProofNumberSearch<Mark, TicTacToe> solver = new ProofNumberSearch<Mark, TicTacToe>(new Timer(), 1000000);
+        solver.setProvenPositions(provenPositions);
+
+        assertEquals(Result.DRAW, solver.solve(new TicTacToe("........."), MARKS));
+        final long expanded = solver.getExpandedNodes();
+        assertTrue(provenPositions.size() > 0);
+        assertEquals(ITerminalGame.DRAW, provenPositions.probe(new TicTacToe(".........").hash()));
+
+        assertEquals(Result.DRAW, solver.solve(new TicTacToe("........."), MARKS));
+        assertEquals(0, solver.getExpandedNodes());
+        assertTrue(expanded > 0);
+    }
+
+    @Test
+    public void minimaxUsesTheProvenPositions() throws TimeoutException {
+        final ProvenPositions provenPositions = new ProvenPositions(1 << 10);
+        final ProofNumberSearch<StickMove, StickGame> solver = new ProofNumberSearch<StickMove, StickGame>(new Timer(), 100000);
+        solver.setProvenPositions(provenPositions);
+        final StickGenerator generator = new StickGenerator();
+        assertEquals(Result.WIN, solver.solve(new StickGame(0, 22), generator));
+
+        final Minimax<StickMove, StickGame> minimax = new Minimax<StickMove, StickGame>(new Timer());
+        minimax.best(new StickGame(0, 22), generator, 10);
+        final long nodes = minimax.getVisitedNodes();
+        minimax.setProvenPositions(provenPositions, 1000);
+        final StickMove move = minimax.best(new StickGame(0, 22), generator, 10);
+
+        assertEquals(1, move.getSticks());
+        assertTrue(minimax.getProvenPositionHits() > 0);
+        assertTrue(minimax.getVisitedNodes() < nodes);
+    }
+}
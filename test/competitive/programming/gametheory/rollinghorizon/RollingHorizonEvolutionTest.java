@@ -0,0 +1,108 @@
+package competitive.programming.gametheory.rollinghorizon;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import competitive.programming.gametheory.TreeGame;
+import competitive.programming.gametheory.TreeGenerator;
+import competitive.programming.gametheory.TreeMove;
+import competitive.programming.timemanagement.Timer;
+
+public class RollingHorizonEvolutionTest {
+
+    @Test
+    public void findsTheBestSequence() {
+        final TreeGenerator generator = new TreeGenerator();
+        for (int seed = 0; seed < 10; seed++) {
+            final TreeGame game = new TreeGame(2, 4, seed);
+            final RollingHorizonEvolution<TreeMove, TreeGame> evolution = new RollingHorizonEvolution<TreeMove, TreeGame>(new Timer(), 3, 20);
+            evolution.setRandom(new Random(seed));
+            final TreeMove move = evolution.best(game, generator, 100);
+
+            assertEquals(0, game.getDepth());
+            assertEquals(reference(game, 3), evolution.getBestFitness(), 0);
+            assertEquals(evolution.bestGenes()[0] % 4, move.getIndex());
+            assertEquals(100, evolution.getGenerations());
+        }
+    }
+
+    @Test
+    public void shiftKeepsTheBestPlan() {
+        final TreeGenerator generator = new TreeGenerator();
+        final TreeGame game = new TreeGame(2, 4, 0);
+        final RollingHorizonEvolution<TreeMove, TreeGame> evolution = new RollingHorizonEvolution<TreeMove, TreeGame>(new Timer(), 5, 20);
+        evolution.setRandom(new Random(0));
+        evolution.best(game, generator, 50);
+        final int[] plan = evolution.bestGenes().clone();
+
+        evolution.shift();
+
+        assertArrayEquals(Arrays.copyOfRange(plan, 1, 5), Arrays.copyOf(evolution.genes(0), 4));
+
+        // the player plays the first move of the plan, its opponent plays its first move as expected by the opponent policy
+        game.execute(plan[0] % 4);
+        game.execute(0);
+        // the next search starts from the rest of the plan, even without any new generation
+        final TreeMove move = evolution.best(game, generator, 0);
+        assertEquals(plan[1] % 4, move.getIndex());
+        assertArrayEquals(Arrays.copyOfRange(plan, 1, 5), Arrays.copyOf(evolution.bestGenes(), 4));
+    }
+
+    @Test
+    public void evolutionFillsTheTimerBudget() {
+        final Timer timer = new Timer();
+        final RollingHorizonEvolution<TreeMove, TreeGame> evolution = new RollingHorizonEvolution<TreeMove, TreeGame>(timer, 10, 30);
+        final TreeGame game = new TreeGame(2, 10, 0);
+
+        timer.startTimer(50);
+        final TreeMove move = evolution.best(game, new TreeGenerator());
+        final long elapsed = timer.currentTimeTakenInNanoSeconds();
+
+        assertNotNull(move);
+        assertEquals(0, game.getDepth());
+        assertTrue(evolution.getGenerations() > 0);
+        assertTrue(elapsed >= 50000000L);
+        assertTrue(elapsed < 1000000000L);// a generation at most after the timeout, on a loaded machine too
+        System.out.println("Rolling horizon generations per second: " + (long) evolution.getGenerationsPerSecond() + ", evaluations in 50ms: "
+                + evolution.getEvaluations());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void populationNeedsTwoCandidates() {
+        new RollingHorizonEvolution<TreeMove, TreeGame>(new Timer(), 5, 1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void elitesLeaveRoomForChildren() {
+        new RollingHorizonEvolution<TreeMove, TreeGame>(new Timer(), 5, 10).setElites(10);
+    }
+
+    /*
+     * Best evaluation of player 0 after its next moves, player 1 always playing its first move
+     */
+    private double reference(TreeGame game, int moves) {
+        if (moves == 0) {
+            return game.evaluate(0)[0];
+        }
+        double best = Double.NEGATIVE_INFINITY;
+        for (int move = 0; move < game.getBranching(); move++) {
+            game.execute(move);
+            if (moves > 1) {
+                game.execute(0);
+            }
+            best = Math.max(best, reference(game, moves - 1));
+            if (moves > 1) {
+                game.cancel();
+            }
+            game.cancel();
+        }
+        return best;
+    }
+}
@@ -0,0 +1,126 @@
+package competitive.programming.gametheory.simultaneous;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import competitive.programming.gametheory.MatrixGame;
+import competitive.programming.gametheory.MatrixGenerator;
+import competitive.programming.gametheory.MatrixMove;
+import competitive.programming.timemanagement.Timer;
+
+public class SimultaneousMonteCarloTreeSearchTest {
+
+    // cooperate = 0, defect = 1: defecting is always better whatever the other player does
+    private static final double[][][] PRISONER_DILEMMA = { { { 0.6, 0 }, { 1, 0.2 } }, { { 0.6, 1 }, { 0, 0.2 } } };
+    // rock = 0, paper = 1, scissors = 2: the only equilibrium is to play each move with the same probability
+    private static final double[][][] ROCK_PAPER_SCISSORS = { { { 0.5, 0, 1 }, { 1, 0.5, 0 }, { 0, 1, 0.5 } },
+            { { 0.5, 1, 0 }, { 0, 0.5, 1 }, { 1, 0, 0.5 } } };
+
+    @Test
+    public void decoupledUCTFindsTheDominantMove() {
+        final SimultaneousMonteCarloTreeSearch<MatrixMove, MatrixGame> search = new SimultaneousMonteCarloTreeSearch<MatrixMove, MatrixGame>(
+                new Timer(), 2, 100000);
+        search.setRandom(new Random(0));
+        checkDominantMove(search, 10000);
+    }
+
+    @Test
+    public void regretMatchingFindsTheDominantMove() {
+        final SimultaneousMonteCarloTreeSearch<MatrixMove, MatrixGame> search = new SimultaneousMonteCarloTreeSearch<MatrixMove, MatrixGame>(
+                new Timer(), 2, 100000);
+        search.setRandom(new Random(0));
+        search.setRegretMatching(true, 0.1);
+        checkDominantMove(search, 100000);// the average strategy converges slower
+    }
+
+    private void checkDominantMove(SimultaneousMonteCarloTreeSearch<MatrixMove, MatrixGame> search, int iterations) {
+        final MatrixGame game = new MatrixGame(PRISONER_DILEMMA, 3);
+        final List<MatrixGenerator> generators = generators(game);
+        for (int player = 0; player < 2; player++) {
+            assertEquals(1, search.best(game, generators, player, iterations).getRow());
+            assertEquals(iterations, search.getIterations());
+            assertEquals(0, game.getTurn());
+        }
+    }
+
+    @Test
+    public void regretMatchingConvergesToTheMixedEquilibrium() {
+        final SimultaneousMonteCarloTreeSearch<MatrixMove, MatrixGame> search = new SimultaneousMonteCarloTreeSearch<MatrixMove, MatrixGame>(
+                new Timer(), 2, 1000);
+        search.setRandom(new Random(0));
+        search.setRegretMatching(true, 0.1);
+        final MatrixGame game = new MatrixGame(ROCK_PAPER_SCISSORS, 1);
+
+        assertNotNull(search.best(game, generators(game), 0, 100000));
+        for (int player = 0; player < 2; player++) {
+            for (int move = 0; move < 3; move++) {
+                final double probability = search.rootStrategy(player, move);
+                assertTrue("probability of " + move + " for " + player + ": " + probability, Math.abs(probability - 1.0 / 3) < 0.05);
+            }
+        }
+    }
+
+    @Test
+    public void searchStopsAtTimeout() {
+        final Timer timer = new Timer();
+        final SimultaneousMonteCarloTreeSearch<MatrixMove, MatrixGame> search = new SimultaneousMonteCarloTreeSearch<MatrixMove, MatrixGame>(timer, 2,
+                1000000);
+        final MatrixGame game = new MatrixGame(ROCK_PAPER_SCISSORS, 20);
+
+        timer.startTimer(50);
+        // only the timer can stop this search
+        final MatrixMove move = search.best(game, generators(game), 0, Long.MAX_VALUE);
+
+        assertNotNull(move);
+        assertEquals(0, game.getTurn());
+        assertTrue(search.getIterations() > 0);
+        System.out.println("Simultaneous MCTS iterations in 50ms: " + search.getIterations() + ", nodes: " + search.getNodes());
+
+        // once timed out, a search does not start any iteration
+        search.best(game, generators(game), 0, Long.MAX_VALUE);
+        assertEquals(0, search.getIterations());
+        assertEquals(0, game.getTurn());
+    }
+
+    @Test
+    public void fullTreeKeepsSearching() {
+        final SimultaneousMonteCarloTreeSearch<MatrixMove, MatrixGame> search = new SimultaneousMonteCarloTreeSearch<MatrixMove, MatrixGame>(
+                new Timer(), 2, 100);
+        final MatrixGame game = new MatrixGame(ROCK_PAPER_SCISSORS, 10);
+
+        assertNotNull(search.best(game, generators(game), 1, 1000));
+        assertEquals(1000, search.getIterations());
+        assertTrue(search.getNodes() <= 100);
+        assertEquals(0, game.getTurn());
+    }
+
+    @Test
+    public void noMoveAtTheEndOfTheGame() {
+        final SimultaneousMonteCarloTreeSearch<MatrixMove, MatrixGame> search = new SimultaneousMonteCarloTreeSearch<MatrixMove, MatrixGame>(
+                new Timer(), 2, 100);
+        final MatrixGame game = new MatrixGame(ROCK_PAPER_SCISSORS, 0);
+
+        assertNull(search.best(game, generators(game), 0, 10));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void oneGeneratorPerPlayer() {
+        final SimultaneousMonteCarloTreeSearch<MatrixMove, MatrixGame> search = new SimultaneousMonteCarloTreeSearch<MatrixMove, MatrixGame>(
+                new Timer(), 2, 100);
+        final MatrixGame game = new MatrixGame(ROCK_PAPER_SCISSORS, 1);
+
+        search.best(game, Arrays.asList(new MatrixGenerator(0, 3)), 0, 10);
+    }
+
+    private static List<MatrixGenerator> generators(MatrixGame game) {
+        return Arrays.asList(new MatrixGenerator(0, game.rows()), new MatrixGenerator(1, game.rows()));
+    }
+}